@@ -0,0 +1,75 @@
+package framewise.dustview.benchmark;
+
+import framewise.dustview.core.DustTemplateEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile, load and render of {@link DustTemplateEngine} with test templates and JSON fixtures.
+ *
+ * @author chanwook
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DustTemplateEngineBenchmark {
+
+    @Param({"basic1", "section", "context", "escape"})
+    public String templateKey;
+
+    @Param({"-1", "0", "9"})
+    public int optimizationLevel;
+
+    private DustTemplateEngine engine;
+    private String source;
+    private String json;
+    private String[] compiledSources;
+    private int loadCount;
+
+    @Setup
+    public void setUp() {
+        engine = new DustTemplateEngine(false);
+        engine.setOptimizationLevel(optimizationLevel);
+        engine.initializeContext();
+
+        source = Fixtures.template(templateKey);
+        json = Fixtures.json(templateKey);
+
+        String compiled = engine.compile(templateKey, source);
+        // engine does not load same source again, then load is measured by changing source
+        compiledSources = new String[]{compiled, compiled + "\n"};
+        engine.load(templateKey, compiled);
+    }
+
+    @Benchmark
+    public String compile() {
+        return engine.compile(templateKey, source);
+    }
+
+    @Benchmark
+    public boolean load() {
+        return engine.load(templateKey, compiledSources[loadCount++ & 1]);
+    }
+
+    @Benchmark
+    public String render() {
+        StringWriter writer = new StringWriter();
+        engine.render(writer, new StringWriter(), templateKey, json);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package framewise.dustview.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import framewise.dustview.core.Sources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test templates and JSON fixtures of DustView(src/test/resources) used by benchmarks.
+ *
+ * @author chanwook
+ */
+public final class Fixtures {
+
+    public static final String LIST_TEMPLATE = "<ul>{#items}<li>{name} - {price}{?tags}[{#tags}{.};{/tags}]{/tags}</li>{/items}</ul>";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    public static String template(String templateKey) {
+        return resource("/template/" + templateKey + ".html");
+    }
+
+    public static String json(String templateKey) {
+        return resource("/json/" + templateKey + ".json");
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> model(String templateKey) {
+        try {
+            return objectMapper.readValue(json(templateKey), Map.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Fail to parse JSON fixture: " + templateKey, e);
+        }
+    }
+
+    /**
+     * Model of {@link #LIST_TEMPLATE} with given count of items
+     *
+     * @param size count of items
+     * @return
+     */
+    public static Map<String, Object> listModel(int size) {
+        List<Map<String, Object>> items = new ArrayList<Map<String, Object>>(size);
+        for (int index = 0; index < size; index++) {
+            Map<String, Object> item = new HashMap<String, Object>();
+            item.put("name", "item<" + index + ">");
+            item.put("price", index * 100);
+            if (index % 2 == 0) {
+                List<String> tags = new ArrayList<String>();
+                tags.add("new");
+                tags.add("sale");
+                item.put("tags", tags);
+            }
+            items.add(item);
+        }
+
+        Map<String, Object> model = new HashMap<String, Object>();
+        model.put("items", items);
+        return model;
+    }
+
+    public static String toJson(Object model) {
+        try {
+            return objectMapper.writeValueAsString(model);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param path classpath of resource
+     * @return
+     */
+    public static String resource(String path) {
+        InputStream input = Fixtures.class.getResourceAsStream(path);
+        if (input == null) {
+            throw new IllegalStateException("Fixture not found: " + path);
+        }
+        try {
+            return Sources.read(input, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException("Fail to read fixture: " + path, e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package framewise.dustview.benchmark;
+
+import framewise.dustview.core.DustTemplateEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering by size of payload. JSON rendering and Java model rendering are compared.
+ *
+ * @author chanwook
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderPayloadBenchmark {
+
+    private static final String TEMPLATE_KEY = "list";
+
+    @Param({"10", "100", "1000"})
+    public int items;
+
+    @Param({"-1", "9"})
+    public int optimizationLevel;
+
+    private DustTemplateEngine engine;
+    private Map<String, Object> model;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        engine = new DustTemplateEngine(false);
+        engine.setOptimizationLevel(optimizationLevel);
+        engine.initializeContext();
+        engine.load(TEMPLATE_KEY, engine.compile(TEMPLATE_KEY, Fixtures.LIST_TEMPLATE));
+
+        model = Fixtures.listModel(items);
+        json = Fixtures.toJson(model);
+    }
+
+    @Benchmark
+    public String renderJson() {
+        StringWriter writer = new StringWriter();
+        engine.render(writer, new StringWriter(), TEMPLATE_KEY, json);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String renderModel() {
+        StringWriter writer = new StringWriter();
+        engine.renderModel(writer, new StringWriter(), TEMPLATE_KEY, model);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.benchmark.Fixtures;
+import framewise.dustview.support.DustTemplateLoader;
+import framewise.dustview.support.DustViewConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.ModelMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full path of view(model to JSON, template loading, rendering) by
+ * {@link SimpleDustTemplateView#createMergedOutputModel(Map, javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+ *
+ * @author chanwook
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimpleDustTemplateViewBenchmark {
+
+    @Param({"basic1", "section", "context", "escape"})
+    public String templateKey;
+
+    @Param({"-1", "9"})
+    public String optimizationLevel;
+
+    private SimpleDustTemplateView view;
+    private ModelMap model;
+
+    @Setup
+    public void setUp() throws Exception {
+        view = new SimpleDustTemplateView();
+        view.getDustEngine().setOptimizationLevel(Integer.parseInt(optimizationLevel));
+
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        // fixtures are in benchmark jar
+        attributes.put(DustViewConstants.TEMPLATE_LOADER, new DustTemplateLoader() {
+            @Override
+            public String loadTemplate(String templatePath) {
+                return Fixtures.resource(templatePath);
+            }
+        });
+        attributes.put(DustViewConstants.DUST_COMPILED, "false");
+        view.setAttributesMap(attributes);
+        view.afterPropertiesSet();
+
+        model = new ModelMap();
+        model.put(DustViewConstants.TEMPLATE_KEY, templateKey);
+        model.put(DustViewConstants.VIEW_FILE_PATH, "/template/" + templateKey + ".html");
+        model.put(DustViewConstants.CONTENT_KEY, Fixtures.model(templateKey));
+    }
+
+    @Benchmark
+    public Map<String, Object> createMergedOutputModel() {
+        return view.createMergedOutputModel(model, new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+}
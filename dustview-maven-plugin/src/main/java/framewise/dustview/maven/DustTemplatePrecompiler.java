@@ -0,0 +1,179 @@
+package framewise.dustview.maven;
+
+import framewise.dustview.DustViewException;
+import framewise.dustview.core.DustTemplateEngine;
+import framewise.dustview.core.Sources;
+import framewise.dustview.support.DustTemplateManifest;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static framewise.dustview.support.DustViewConstants.COMMON_FILE_EXTENSION_NAME;
+
+/**
+ * Compile dust template(HTML) in directory to JavaScript by same Rhino/dust compiler of runtime,
+ * then write compiled file and manifest({@link DustTemplateManifest}) to output directory.
+ *
+ * @author chanwook
+ */
+public class DustTemplatePrecompiler {
+
+    private static final String COMPILED_FILE_EXTENSION_NAME = ".js";
+
+    private final DustTemplateEngine engine;
+
+    private String encoding = "UTF-8";
+    private String templateExtension = COMMON_FILE_EXTENSION_NAME;
+    private boolean relativePathKey = false;
+
+    /**
+     * @param dustJsFile       dust core file. Required, because dust core is not bundled in dustview
+     * @param dustJsHelperFile dust helper file. nullable
+     */
+    public DustTemplatePrecompiler(File dustJsFile, File dustJsHelperFile) {
+        if (dustJsFile == null) {
+            throw new IllegalArgumentException("dust core file must require!");
+        }
+        this.engine = new FileSystemDustTemplateEngine();
+        engine.setDustJsFilePath(dustJsFile.getAbsolutePath());
+        if (dustJsHelperFile != null) {
+            engine.setDustJsHelperFilePath(dustJsHelperFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Compile all of template in directory(include sub directory)
+     *
+     * @param templateDirectory
+     * @param outputDirectory
+     * @return manifest of compiled template
+     */
+    public DustTemplateManifest precompile(File templateDirectory, File outputDirectory) throws IOException {
+        if (!templateDirectory.isDirectory()) {
+            throw new DustViewException("Template directory does not exist!(path: " + templateDirectory.getPath() + ")");
+        }
+
+        engine.setEncoding(encoding);
+        engine.initializeContext();
+
+        List<String> templatePaths = new ArrayList<String>();
+        collectTemplatePath(templateDirectory, "", templatePaths);
+        Collections.sort(templatePaths);
+
+        DustTemplateManifest manifest = new DustTemplateManifest();
+        Map<String, String> templateKeyToPath = new HashMap<String, String>();
+        for (String templatePath : templatePaths) {
+            String templateKey = resolveTemplateKey(templatePath);
+            if (templateKeyToPath.containsKey(templateKey)) {
+                throw new DustViewException("Duplicated template key '" + templateKey + "'! (" +
+                        templateKeyToPath.get(templateKey) + ", " + templatePath + ")");
+            }
+            templateKeyToPath.put(templateKey, templatePath);
+
+            // compiled as it is, same as runtime compile
+            String source = Sources.read(new File(templateDirectory, templatePath), encoding);
+            String compiled = engine.compile(templateKey, source);
+
+            String compiledPath = templatePath.substring(0, templatePath.length() - templateExtension.length()) + COMPILED_FILE_EXTENSION_NAME;
+            writeFile(new File(outputDirectory, compiledPath), compiled);
+
+            manifest.add(templateKey, compiledPath);
+        }
+
+        OutputStream output = new FileOutputStream(new File(outputDirectory, DustTemplateManifest.DEFAULT_MANIFEST_FILE_NAME));
+        try {
+            manifest.store(output);
+        } finally {
+            output.close();
+        }
+        return manifest;
+    }
+
+    private void collectTemplatePath(File directory, String relativePath, List<String> templatePaths) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String path = relativePath + file.getName();
+            if (file.isDirectory()) {
+                collectTemplatePath(file, path + "/", templatePaths);
+            } else if (file.getName().endsWith(templateExtension)) {
+                templatePaths.add(path);
+            }
+        }
+    }
+
+    /**
+     * Template key is file name without extension(same as multi load of view).
+     * If relativePathKey is true, template key is relative path without extension. (ex. 'common/header')
+     *
+     * @param templatePath
+     * @return
+     */
+    protected String resolveTemplateKey(String templatePath) {
+        String withoutExtension = templatePath.substring(0, templatePath.length() - templateExtension.length());
+        if (relativePathKey) {
+            return withoutExtension;
+        }
+        return withoutExtension.substring(withoutExtension.lastIndexOf('/') + 1);
+    }
+
+    private void writeFile(File file, String content) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory!(path: " + directory.getPath() + ")");
+        }
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), encoding);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public void setTemplateExtension(String templateExtension) {
+        this.templateExtension = templateExtension;
+    }
+
+    public void setRelativePathKey(boolean relativePathKey) {
+        this.relativePathKey = relativePathKey;
+    }
+
+    public DustTemplateEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Engine that load dust script from file system(plugin configuration), or classpath.
+     */
+    static class FileSystemDustTemplateEngine extends DustTemplateEngine {
+
+        FileSystemDustTemplateEngine() {
+            super(false);
+        }
+
+        @Override
+        public InputStream getDustJsStream(String filePath) {
+            File file = new File(filePath);
+            if (file.isFile()) {
+                try {
+                    return new FileInputStream(file);
+                } catch (FileNotFoundException e) {
+                    throw new IllegalArgumentException("Incorrectly filePath! '" + filePath + "' does not exist!", e);
+                }
+            }
+            return super.getDustJsStream(filePath);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package framewise.dustview.maven;
+
+import framewise.dustview.support.DustTemplateManifest;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+
+/**
+ * Precompile dust template at build time.
+ * Output directory has compiled JavaScript file per template and manifest file(dust-manifest.properties),
+ * then view load compiled template by manifest at startup(_PRECOMPILED_MANIFEST attribute).
+ *
+ * @author chanwook
+ */
+@Mojo(name = "precompile", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class PrecompileMojo extends AbstractMojo {
+
+    /**
+     * Directory of dust template(HTML)
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/dust", required = true)
+    private File templateDirectory;
+
+    /**
+     * Directory of compiled template and manifest
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}/dust-compiled", required = true)
+    private File outputDirectory;
+
+    /**
+     * dust core file. Must be same file of runtime(dust core is not bundled in dustview).
+     */
+    @Parameter(required = true)
+    private File dustJsFile;
+
+    /**
+     * dust helper file
+     */
+    @Parameter
+    private File dustJsHelperFile;
+
+    @Parameter(defaultValue = "UTF-8")
+    private String encoding;
+
+    @Parameter(defaultValue = ".html")
+    private String templateExtension;
+
+    /**
+     * If true, template key is relative path without extension(ex. 'common/header'), else file name.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean relativePathKey;
+
+    @Parameter(defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skip dust template precompile.");
+            return;
+        }
+
+        DustTemplatePrecompiler precompiler = new DustTemplatePrecompiler(dustJsFile, dustJsHelperFile);
+        precompiler.setEncoding(encoding);
+        precompiler.setTemplateExtension(templateExtension);
+        precompiler.setRelativePathKey(relativePathKey);
+
+        try {
+            long start = System.currentTimeMillis();
+            DustTemplateManifest manifest = precompiler.precompile(templateDirectory, outputDirectory);
+
+            getLog().info("Precompiled " + manifest.size() + " dust template(s) to " + outputDirectory.getPath() +
+                    " (" + (System.currentTimeMillis() - start) + "ms)");
+        } catch (Exception e) {
+            throw new MojoExecutionException("Fail to precompile dust template!(directory: " + templateDirectory.getPath() + ")", e);
+        }
+    }
+}
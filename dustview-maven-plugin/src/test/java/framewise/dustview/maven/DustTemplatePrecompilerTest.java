@@ -0,0 +1,90 @@
+package framewise.dustview.maven;
+
+import framewise.dustview.core.DustTemplateEngine;
+import framewise.dustview.support.DustTemplateManifest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for DustTemplatePrecompiler class
+ *
+ * @author chanwook
+ */
+public class DustTemplatePrecompilerTest {
+
+    private static final File DUST_JS_FILE = new File("../src/test/resources/dust/dust-full-2.2.3.js");
+    private static final File TEMPLATE_DIRECTORY = new File("../src/test/resources/template/multiple");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void precompileDirectory() throws Exception {
+        File output = folder.newFolder("compiled");
+        DustTemplatePrecompiler precompiler = new DustTemplatePrecompiler(DUST_JS_FILE, null);
+
+        DustTemplateManifest manifest = precompiler.precompile(TEMPLATE_DIRECTORY, output);
+
+        assertEquals(3, manifest.size());
+        assertEquals("master.js", manifest.getPath("master"));
+        assertTrue(new File(output, "master.js").isFile());
+
+        // manifest file
+        DustTemplateManifest loaded = new DustTemplateManifest();
+        InputStream input = new FileInputStream(new File(output, DustTemplateManifest.DEFAULT_MANIFEST_FILE_NAME));
+        try {
+            loaded.load(input);
+        } finally {
+            input.close();
+        }
+        assertEquals(manifest.getTemplateKeys(), loaded.getTemplateKeys());
+        assertEquals("partial1.js", loaded.getPath("partial1"));
+
+        // compiled file can be loaded without compile
+        DustTemplateEngine engine = precompiler.getEngine();
+        for (String templateKey : loaded.getTemplateKeys()) {
+            engine.load(templateKey, read(new File(output, loaded.getPath(templateKey))));
+        }
+        StringWriter writer = new StringWriter();
+        engine.render(writer, new StringWriter(), "master", "{}");
+        assertEquals("<h1>master</h1><h1>partial1</h1><h1>partial2</h1>", writer.toString());
+    }
+
+    @Test
+    public void relativePathKey() throws Exception {
+        File output = folder.newFolder("compiled");
+        DustTemplatePrecompiler precompiler = new DustTemplatePrecompiler(DUST_JS_FILE, null);
+        precompiler.setRelativePathKey(true);
+
+        DustTemplateManifest manifest = precompiler.precompile(new File("../src/test/resources/template"), output);
+
+        assertTrue(manifest.contains("multiple/master"));
+        assertTrue(manifest.contains("common/common1"));
+        assertEquals("multiple/master.js", manifest.getPath("multiple/master"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requireDustJsFile() {
+        new DustTemplatePrecompiler(null, null);
+    }
+
+    private String read(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            StringBuilder builder = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.append(line);
+            }
+            return builder.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
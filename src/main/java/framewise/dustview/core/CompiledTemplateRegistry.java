@@ -0,0 +1,120 @@
+package framewise.dustview.core;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of compiled template that loaded to engine.
+ * Each template is tracked by template key with content fingerprint and version,
+ * so checking whether template is already loaded does not scan other template.
+ * <p/>
+ * Version is increased whenever content of template is changed, and is never reused in same JVM.
+ * Version is -1 if template is not registered.
+ *
+ * @author chanwook
+ */
+public class CompiledTemplateRegistry {
+
+    public static final long NOT_REGISTERED_VERSION = -1;
+
+    private static final AtomicLong versionSequence = new AtomicLong();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Check template is registered with same content.
+     * If same String object is passed(ex. cached source), this is O(1).
+     *
+     * @param templateKey
+     * @param compiledSource
+     * @return
+     */
+    public boolean isRegistered(String templateKey, String compiledSource) {
+        Entry entry = entries.get(templateKey);
+        return entry != null && entry.isSameSource(compiledSource);
+    }
+
+    /**
+     * Register compiled template. If content is not changed, version is kept.
+     *
+     * @param templateKey
+     * @param compiledSource
+     * @return version of template
+     */
+    public long register(String templateKey, String compiledSource) {
+        Entry entry = entries.get(templateKey);
+        if (entry != null && entry.isSameSource(compiledSource)) {
+            return entry.getVersion();
+        }
+
+        Entry registered = new Entry(compiledSource, Fingerprints.of(compiledSource), versionSequence.incrementAndGet());
+        entries.put(templateKey, registered);
+        return registered.getVersion();
+    }
+
+    public boolean remove(String templateKey) {
+        return entries.remove(templateKey) != null;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public Entry get(String templateKey) {
+        return entries.get(templateKey);
+    }
+
+    public long getVersion(String templateKey) {
+        Entry entry = entries.get(templateKey);
+        return entry == null ? NOT_REGISTERED_VERSION : entry.getVersion();
+    }
+
+    public String getFingerprint(String templateKey) {
+        Entry entry = entries.get(templateKey);
+        return entry == null ? null : entry.getFingerprint();
+    }
+
+    public Set<String> getTemplateKeys() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Registered compiled template
+     */
+    public static class Entry {
+
+        private final String compiledSource;
+        private final String fingerprint;
+        private final long version;
+
+        Entry(String compiledSource, String fingerprint, long version) {
+            this.compiledSource = compiledSource;
+            this.fingerprint = fingerprint;
+            this.version = version;
+        }
+
+        boolean isSameSource(String source) {
+            return compiledSource == source ||
+                    (compiledSource.hashCode() == source.hashCode() && compiledSource.equals(source));
+        }
+
+        public String getCompiledSource() {
+            return compiledSource;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
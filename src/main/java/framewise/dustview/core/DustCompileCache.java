@@ -0,0 +1,18 @@
+package framewise.dustview.core;
+
+/**
+ * Cache for compiled template(JavaScript) that used by {@link DustTemplateEngine#compile(String, String)}.
+ * Cache key is fingerprint of template key, source, dust script and compile script.
+ *
+ * @author chanwook
+ */
+public interface DustCompileCache {
+
+    /**
+     * @param cacheKey
+     * @return compiled template, or null if not cached
+     */
+    String get(String cacheKey);
+
+    void put(String cacheKey, String compiledSource);
+}
@@ -0,0 +1,70 @@
+package framewise.dustview.core;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+/**
+ * Rhino {@link ContextFactory} that keeps configured {@link Context} bound to worker thread.
+ * Context is entered at first call of thread, and is not exited until {@link #releaseThreadContext()}.
+ * So rendering on worker thread does not need enter/exit and configuration per call.
+ * <p/>
+ * Bound context holds class loader of application, so caller must release it when unit of work(ex. request)
+ * is finished. Context entered by other code is used as it is, and is not changed or exited by this factory.
+ *
+ * @author chanwook
+ */
+public class DustContextFactory extends ContextFactory {
+
+    private final int optimizationLevel;
+    private final ThreadLocal<Context> boundContext = new ThreadLocal<Context>();
+
+    public DustContextFactory(int optimizationLevel) {
+        this.optimizationLevel = optimizationLevel;
+    }
+
+    @Override
+    protected void onContextCreated(Context context) {
+        super.onContextCreated(context);
+        context.setOptimizationLevel(optimizationLevel);
+    }
+
+    /**
+     * Return context bound to current thread. If not exist, enter new context and keep it.
+     *
+     * @return
+     */
+    public Context getThreadContext() {
+        Context context = Context.getCurrentContext();
+        if (context == null) {
+            context = enterContext();
+            boundContext.set(context);
+        }
+        // context entered by other code in this thread is not configured
+        return context;
+    }
+
+    /**
+     * Exit context bound to current thread by this factory. Call this when unit of work in thread is finished.
+     */
+    public void releaseThreadContext() {
+        Context context = boundContext.get();
+        if (context == null) {
+            return;
+        }
+        boundContext.remove();
+        if (Context.getCurrentContext() == context) {
+            Context.exit();
+        }
+    }
+
+    /**
+     * @return true if current thread has context entered by this factory
+     */
+    public boolean isThreadContextBound() {
+        return boundContext.get() != null;
+    }
+
+    public int getOptimizationLevel() {
+        return optimizationLevel;
+    }
+}
@@ -0,0 +1,221 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache for compiled dust script(dust core, helper, extension file).
+ * Script is compiled once to reusable Rhino {@link Script}, and is executed to each scope without parsing.
+ * <p/>
+ * If class cache directory is set and optimization level >= 0, generated class of script is saved to
+ * the directory by Rhino {@link ClassCompiler}. After restart, saved class is loaded without parsing and codegen.
+ *
+ * @author chanwook
+ */
+public class DustScriptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DustScriptCache.class);
+
+    private static final String GENERATED_CLASS_PREFIX = "framewise.dustview.generated.DustScript_";
+    private static final String CLASS_CACHE_FILE_SUFFIX = ".classes";
+
+    private static final DustScriptCache SHARED_INSTANCE = new DustScriptCache();
+
+    private final ConcurrentMap<String, Script> scripts = new ConcurrentHashMap<String, Script>();
+
+    private final File classCacheDirectory;
+
+    /**
+     * Create in-memory script cache
+     */
+    public DustScriptCache() {
+        this(null);
+    }
+
+    /**
+     * Create script cache that save generated class to directory
+     *
+     * @param classCacheDirectory
+     */
+    public DustScriptCache(File classCacheDirectory) {
+        this.classCacheDirectory = classCacheDirectory;
+    }
+
+    /**
+     * Return in-memory script cache shared in JVM
+     *
+     * @return
+     */
+    public static DustScriptCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Return compiled script for source. Script is compiled with optimization level of context.
+     *
+     * @param context
+     * @param sourceName
+     * @param source
+     * @return
+     */
+    public Script getScript(Context context, String sourceName, String source) {
+        String cacheKey = createCacheKey(context, source);
+
+        Script script = scripts.get(cacheKey);
+        if (script != null) {
+            return script;
+        }
+
+        script = loadClassCache(context, cacheKey);
+        if (script == null) {
+            script = compile(context, sourceName, source, cacheKey);
+        }
+
+        Script previous = scripts.putIfAbsent(cacheKey, script);
+        return previous != null ? previous : script;
+    }
+
+    protected String createCacheKey(Context context, String source) {
+        return Fingerprints.of(context.getImplementationVersion() + "\n" + context.getOptimizationLevel() + "\n" + source);
+    }
+
+    protected Script compile(Context context, String sourceName, String source, String cacheKey) {
+        if (!isUsingClassCache(context)) {
+            if (logger.isInfoEnabled()) {
+                logger.info("Compile dust script! (source name: " + sourceName + ")");
+            }
+            return context.compileString(source, sourceName, 1, null);
+        }
+
+        CompilerEnvirons compilerEnv = new CompilerEnvirons();
+        compilerEnv.initFromContext(context);
+        ClassCompiler compiler = new ClassCompiler(compilerEnv);
+        Object[] classFiles = compiler.compileToClassFiles(source, sourceName, 1, GENERATED_CLASS_PREFIX + cacheKey);
+
+        saveClassCache(cacheKey, classFiles);
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Compile dust script to class! (source name: " + sourceName + ", class: " + classFiles[0] + ")");
+        }
+        return defineScript(context, classFiles);
+    }
+
+    protected Script loadClassCache(Context context, String cacheKey) {
+        if (!isUsingClassCache(context)) {
+            return null;
+        }
+
+        File cacheFile = new File(classCacheDirectory, cacheKey + CLASS_CACHE_FILE_SUFFIX);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            int count = input.readInt();
+            Object[] classFiles = new Object[count * 2];
+            for (int index = 0; index < count; index++) {
+                classFiles[index * 2] = input.readUTF();
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                classFiles[index * 2 + 1] = bytes;
+            }
+
+            if (logger.isInfoEnabled()) {
+                logger.info("Load dust script class from cache! (file: " + cacheFile.getPath() + ")");
+            }
+            return defineScript(context, classFiles);
+        } catch (Exception e) {
+            logger.warn("Fail to load dust script class cache, then compile again!(file: " + cacheFile.getPath() + ")", e);
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    protected void saveClassCache(String cacheKey, Object[] classFiles) {
+        if (!classCacheDirectory.isDirectory() && !classCacheDirectory.mkdirs()) {
+            logger.warn("Could not create dust script class cache directory!(path: " + classCacheDirectory.getPath() + ")");
+            return;
+        }
+
+        File cacheFile = new File(classCacheDirectory, cacheKey + CLASS_CACHE_FILE_SUFFIX);
+        File tempFile = new File(classCacheDirectory, cacheKey + CLASS_CACHE_FILE_SUFFIX + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            output.writeInt(classFiles.length / 2);
+            for (int index = 0; index < classFiles.length; index += 2) {
+                byte[] bytes = (byte[]) classFiles[index + 1];
+                output.writeUTF((String) classFiles[index]);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+            output.close();
+            output = null;
+
+            if (!tempFile.renameTo(cacheFile)) {
+                logger.warn("Could not save dust script class cache!(file: " + cacheFile.getPath() + ")");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not save dust script class cache!(file: " + cacheFile.getPath() + ")", e);
+        } finally {
+            closeQuietly(output);
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    protected Script defineScript(Context context, Object[] classFiles) {
+        GeneratedClassLoader classLoader = context.createClassLoader(DustScriptCache.class.getClassLoader());
+
+        Class<?> scriptClass = null;
+        for (int index = 0; index < classFiles.length; index += 2) {
+            Class<?> definedClass = classLoader.defineClass((String) classFiles[index], (byte[]) classFiles[index + 1]);
+            if (scriptClass == null) {
+                scriptClass = definedClass;
+            }
+        }
+        classLoader.linkClass(scriptClass);
+
+        try {
+            return (Script) scriptClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new DustViewException("Fail to create instance of dust script class(" + scriptClass + ")", e);
+        }
+    }
+
+    private boolean isUsingClassCache(Context context) {
+        return classCacheDirectory != null && context.getOptimizationLevel() >= 0;
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    public int size() {
+        return scripts.size();
+    }
+
+    public File getClassCacheDirectory() {
+        return classCacheDirectory;
+    }
+}
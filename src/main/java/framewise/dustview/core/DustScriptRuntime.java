@@ -0,0 +1,47 @@
+package framewise.dustview.core;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * JavaScript runtime that runs dust compile-load-render for {@link DustTemplateEngine}.
+ * If runtime is not set to engine, engine uses built-in Rhino runtime.
+ * <p/>
+ * Runtime instance is used by one engine. Engine in pool has own runtime created by {@link #newInstance()}.
+ *
+ * @author chanwook
+ * @see GraalJsDustScriptRuntime
+ */
+public interface DustScriptRuntime {
+
+    /**
+     * Load dust core, helper, extension script and compile-load script of engine configuration.
+     * Called whenever engine is initialized, so loaded template is removed.
+     *
+     * @param configuration
+     */
+    void initialize(DustTemplateEngine configuration);
+
+    String compile(String templateKey, String source);
+
+    void load(String templateKey, String compiledSource);
+
+    void render(Writer responseWriter, StringWriter errorWriter, String templateKey, String json);
+
+    /**
+     * Rendering with JSON data, and write markup to writer while rendering.
+     */
+    void renderStream(Writer responseWriter, StringWriter errorWriter, String templateKey, String json);
+
+    /**
+     * Create new runtime with same runtime option for other engine.
+     *
+     * @return
+     */
+    DustScriptRuntime newInstance();
+
+    /**
+     * Release resource of runtime
+     */
+    void close();
+}
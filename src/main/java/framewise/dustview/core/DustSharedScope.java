@@ -0,0 +1,213 @@
+package framewise.dustview.core;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sealed Rhino scope that has dust core, helper, extension and compile-load-render script.
+ * Script files are evaluated once into this scope, and each engine use lightweight child scope
+ * (prototype of child scope is this scope) that only has own template registry.
+ * <p/>
+ * Template registry('dust.cache') of shared scope is bound to current thread by engine when calling dust.
+ *
+ * @author chanwook
+ */
+public class DustSharedScope {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ScriptableObject scope;
+    private final String scriptFingerprint;
+
+    private final ThreadBoundTemplateCache templateCache = new ThreadBoundTemplateCache();
+
+    /**
+     * Create shared scope with default engine configuration
+     */
+    public DustSharedScope() {
+        this(new DustTemplateEngine(false));
+    }
+
+    /**
+     * Create shared scope with engine configuration(script path, script, encoding, optimization level).
+     *
+     * @param configuration
+     */
+    public DustSharedScope(DustTemplateEngine configuration) {
+        DustTemplateEngine coreEngine = new DustTemplateEngine(false);
+        configuration.copyConfigurationTo(coreEngine);
+        coreEngine.setSharedScope(null);
+        coreEngine.setScriptRuntime(null);
+        coreEngine.initializeContext();
+
+        this.scope = (ScriptableObject) coreEngine.getGlobalScope();
+        this.scriptFingerprint = coreEngine.getScriptFingerprint();
+
+        Context.enter();
+        try {
+            Scriptable dust = (Scriptable) scope.get("dust", scope);
+            templateCache.setParentScope(scope);
+            dust.put("cache", dust, templateCache);
+
+            scope.sealObject();
+        } finally {
+            Context.exit();
+        }
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Create shared dust scope! (dust file path: " + configuration.getDustJsFilePath() + ")");
+        }
+    }
+
+    /**
+     * Create child scope that inherits all of dust function from shared scope.
+     *
+     * @return
+     */
+    public Scriptable newChildScope() {
+        Context context = Context.enter();
+        try {
+            Scriptable child = context.newObject(scope);
+            child.setPrototype(scope);
+            child.setParentScope(null);
+            return child;
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Create empty template registry. Registry is used as 'dust.cache' while bound to thread.
+     *
+     * @return
+     */
+    public Scriptable newTemplateRegistry() {
+        Context context = Context.enter();
+        try {
+            return context.newObject(scope);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Bind template registry to current thread.
+     *
+     * @param templateRegistry
+     * @return previous bound registry. must pass to {@link #unbind(Scriptable)}
+     */
+    public Scriptable bind(Scriptable templateRegistry) {
+        return templateCache.bind(templateRegistry);
+    }
+
+    public void unbind(Scriptable previous) {
+        templateCache.bind(previous);
+    }
+
+    Scriptable getScope() {
+        return scope;
+    }
+
+    /**
+     * @return fingerprint of dust script evaluated in shared scope
+     */
+    public String getScriptFingerprint() {
+        return scriptFingerprint;
+    }
+
+    /**
+     * 'dust.cache' object that delegates to template registry bound to current thread
+     */
+    static class ThreadBoundTemplateCache extends ScriptableObject {
+
+        private final ThreadLocal<Scriptable> registry = new ThreadLocal<Scriptable>();
+
+        Scriptable bind(Scriptable templateRegistry) {
+            Scriptable previous = registry.get();
+            if (templateRegistry == null) {
+                registry.remove();
+            } else {
+                registry.set(templateRegistry);
+            }
+            return previous;
+        }
+
+        @Override
+        public String getClassName() {
+            return "Object";
+        }
+
+        @Override
+        public Object get(String name, Scriptable start) {
+            Scriptable bound = registry.get();
+            return bound == null ? super.get(name, start) : bound.get(name, bound);
+        }
+
+        @Override
+        public Object get(int index, Scriptable start) {
+            Scriptable bound = registry.get();
+            return bound == null ? super.get(index, start) : bound.get(index, bound);
+        }
+
+        @Override
+        public boolean has(String name, Scriptable start) {
+            Scriptable bound = registry.get();
+            return bound == null ? super.has(name, start) : bound.has(name, bound);
+        }
+
+        @Override
+        public boolean has(int index, Scriptable start) {
+            Scriptable bound = registry.get();
+            return bound == null ? super.has(index, start) : bound.has(index, bound);
+        }
+
+        @Override
+        public void put(String name, Scriptable start, Object value) {
+            Scriptable bound = registry.get();
+            if (bound == null) {
+                super.put(name, start, value);
+            } else {
+                bound.put(name, bound, value);
+            }
+        }
+
+        @Override
+        public void put(int index, Scriptable start, Object value) {
+            Scriptable bound = registry.get();
+            if (bound == null) {
+                super.put(index, start, value);
+            } else {
+                bound.put(index, bound, value);
+            }
+        }
+
+        @Override
+        public void delete(String name) {
+            Scriptable bound = registry.get();
+            if (bound == null) {
+                super.delete(name);
+            } else {
+                bound.delete(name);
+            }
+        }
+
+        @Override
+        public void delete(int index) {
+            Scriptable bound = registry.get();
+            if (bound == null) {
+                super.delete(index);
+            } else {
+                bound.delete(index);
+            }
+        }
+
+        @Override
+        public Object[] getIds() {
+            Scriptable bound = registry.get();
+            return bound == null ? super.getIds() : bound.getIds();
+        }
+    }
+}
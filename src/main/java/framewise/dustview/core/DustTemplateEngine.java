@@ -1,16 +1,28 @@
 package framewise.dustview.core;
 
 import framewise.dustview.DustViewException;
+import framewise.dustview.core.tree.DustTreeRenderer;
+import framewise.dustview.core.tree.UnsupportedTemplateException;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.json.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Support server-side dust rendering Function. This class load by Rhino JavaScript Engine.
@@ -22,6 +34,9 @@ public class DustTemplateEngine {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private static final int DEFAULT_OPTIMIZATION_LEVEL = -1;
+    private static final int DEFAULT_TIERED_OPTIMIZATION_LEVEL = 9;
+    // optimization level of template loaded by eval()
+    public static final int INTERPRETED_LEVEL = -1;
     private static final String DEFAULT_COMPILE_SOURCE_NAME = "ServerSideDustCompiler";
     private static final String DEFAULT_DUST_JS_FILE_PATH = "/dust/dust-full-2.2.3.js";
     private static final String DEFAULT_DUST_HELPER_JS_FILE_PATH = "";
@@ -38,11 +53,105 @@ public class DustTemplateEngine {
                     "}" +
                     ");" +
                     "}";
+    private static final String DEFAULT_RENDER_MODEL_SCRIPT =
+            "function dustRenderModel(templateKey, _writer, _error, model) {" +
+                    "return dust.render(templateKey,model," +
+                    "function(err, out){" +
+                    "if(out){ _writer.write(out); }" +
+                    "if(err){ _error.write(err); }" +
+                    "}" +
+                    ");" +
+                    "}";
+    private static final String DEFAULT_STREAM_SCRIPT =
+            "var dustStream = (function() {" +
+                    // dust does not expose Chunk and Context, so resolve them by probe template
+                    "var Chunk, Context;" +
+                    "dust.register('__dustview_stream_probe', function(chk, ctx) { Chunk = chk.constructor; Context = ctx.constructor; return chk; });" +
+                    "dust.render('__dustview_stream_probe', {}, function() {});" +
+                    "delete dust.cache['__dustview_stream_probe'];" +
+                    // root of chunk. first chunk writes to writer directly, next chunk is written when flushable
+                    "function Root(_writer, _error) {" +
+                    "this.writer = _writer; this.error = _error;" +
+                    "this.head = new Chunk(this);" +
+                    "this.head.data = { push: function(data) { if (data !== '' && data !== undefined && data !== null) { _writer.write('' + data); } }, join: function() { return ''; } };" +
+                    "}" +
+                    "Root.prototype.flush = function() {" +
+                    "var chunk = this.head;" +
+                    "while (chunk) {" +
+                    "if (chunk.flushable) { var out = chunk.data.join(''); if (out) { this.writer.write(out); } }" +
+                    "else if (chunk.error) { this.error.write('' + chunk.error); this.flush = function() {}; return; }" +
+                    "else { return; }" +
+                    "chunk = chunk.next; this.head = chunk;" +
+                    "}" +
+                    "};" +
+                    // {@flush/} helper flush writer at that point of template (streaming only)
+                    "dust.helpers.flush = function(chunk) { if (chunk.root instanceof Root) { chunk.root.writer.flush(); } return chunk; };" +
+                    "return function(templateKey, _writer, _error, model) {" +
+                    "var root = new Root(_writer, _error);" +
+                    "try { dust.load(templateKey, root.head, Context.wrap(model, templateKey)).end(); } catch (err) { _error.write('' + err); }" +
+                    "};" +
+                    "})();";
+
+    // separator of template name and key in fragment cache
+    static final String FRAGMENT_KEY_SEPARATOR = "::";
+
+    // {@cache key="nav" ttl="60"}...{/cache} helper. markup of block is cached by template name and key(ttl: seconds)
+    private static final String DEFAULT_CACHE_HELPER_SCRIPT =
+            "(function() {" +
+                    "function tap(value, chunk, context) {" +
+                    "if (typeof value !== 'function') { return value; }" +
+                    "var out = ''; chunk.tap(function(data) { out += data; return ''; }).render(value, context).untap();" +
+                    "return out;" +
+                    "}" +
+                    "dust.helpers.cache = function(chunk, context, bodies, params) {" +
+                    "params = params || {};" +
+                    "if (!bodies.block) { return chunk; }" +
+                    "var cache = typeof dustFragmentCache === 'undefined' ? null : dustFragmentCache;" +
+                    "var key = tap(params.key, chunk, context);" +
+                    // template name is not known before dust 2.2, then block is not cached
+                    "if (!cache || !key || !context.templateName) { return chunk.render(bodies.block, context); }" +
+                    "key = context.templateName + '" + FRAGMENT_KEY_SEPARATOR + "' + key;" +
+                    "var cached = cache.get(key);" +
+                    "if (cached !== null && cached !== undefined) { return chunk.write('' + cached); }" +
+                    "var ttl = parseInt(tap(params.ttl, chunk, context), 10);" +
+                    "return chunk.capture(bodies.block, context, function(out, chunk) {" +
+                    "if (ttl > 0) { cache.put(key, out, ttl * 1000); } else { cache.put(key, out); }" +
+                    "chunk.end(out);" +
+                    "});" +
+                    "};" +
+                    "})();";
+
+    private static final String DEFAULT_PARSE_SCRIPT =
+            "function dustParse(source) { return dust.filterNode({}, dust.parse(source)); }";
 
     private static final String DEFAULT_ENCODING = "UTF-8";
 
     private Scriptable globalScope;
 
+    private DustSharedScope sharedScope;
+    private Scriptable templateRegistry;
+
+    private DustScriptCache scriptCache = DustScriptCache.getSharedInstance();
+
+    private DustCompileCache compileCache;
+    private DustScriptRuntime scriptRuntime;
+    private DustTreeRenderer treeRenderer;
+    private RenderedOutputCache renderedOutputCache;
+    private SingleFlight<RenderedMarkup> renderSingleFlight;
+    private RenderedOutputCache fragmentCache;
+    // fingerprint of loaded dust script(core, helper, extension). used to key of compile cache
+    private String scriptFingerprint = "";
+
+    private boolean persistentContext = false;
+    private DustContextFactory contextFactory;
+
+    private Function compileFunction;
+    private Function loadFunction;
+    private Function renderFunction;
+    private Function renderModelFunction;
+    private Function streamFunction;
+    private Function parseFunction;
+
     private String compileSourceName = DEFAULT_COMPILE_SOURCE_NAME;
     private String dustJsFilePath = DEFAULT_DUST_JS_FILE_PATH;
     private String dustJsHelperFilePath = DEFAULT_DUST_HELPER_JS_FILE_PATH;
@@ -50,11 +159,21 @@ public class DustTemplateEngine {
     private String compileScript = DEFAULT_COMPILE_SCRIPT;
     private String loadScript = DEFAULT_LOAD_SCRIPT;
     private String renderScript = DEFAULT_RENDER_SCRIPT;
+    private String renderModelScript = DEFAULT_RENDER_MODEL_SCRIPT;
+    private String streamScript = DEFAULT_STREAM_SCRIPT;
 
     // value: -1 ~ 9
     private int optimizationLevel = DEFAULT_OPTIMIZATION_LEVEL;
 
-    private Map<String, String> compiledSourceCache = new HashMap<String, String>();
+    // hot template is compiled again with tiered optimization level after rendered this count (0: not used)
+    private int tieredCompileThreshold = 0;
+    private int tieredOptimizationLevel = DEFAULT_TIERED_OPTIMIZATION_LEVEL;
+    private final ConcurrentMap<String, AtomicInteger> renderCounts = new ConcurrentHashMap<String, AtomicInteger>();
+    // optimization level of template compiled again (or interpreted level if failed)
+    private final ConcurrentMap<String, Integer> tieredLevels = new ConcurrentHashMap<String, Integer>();
+
+    private final CompiledTemplateRegistry compiledTemplateRegistry = new CompiledTemplateRegistry();
+    private final TemplateDependencyGraph dependencyGraph = new TemplateDependencyGraph();
     private String dustExtensionFilePath;
 
     /**
@@ -79,6 +198,32 @@ public class DustTemplateEngine {
      * dust context initialize method. must call before running dust
      */
     public void initializeContext() {
+        // context bound by previous factory is not reachable after initializing
+        releaseThreadContext();
+        if (persistentContext) {
+            contextFactory = new DustContextFactory(optimizationLevel);
+        } else {
+            contextFactory = null;
+        }
+
+        if (scriptRuntime != null) {
+            initializeScriptRuntime();
+            return;
+        }
+
+        if (sharedScope != null) {
+            initializeChildScope();
+            resolveFunctions();
+            return;
+        }
+
+        // dust script is evaluated again, so loaded template is removed
+        compiledTemplateRegistry.clear();
+        dependencyGraph.clear();
+        clearTreeRenderer();
+        clearTieredCompile(null);
+        scriptFingerprint = "";
+
         loadScriptFile(getDustJsFilePath());
 
         // file exist
@@ -93,6 +238,59 @@ public class DustTemplateEngine {
         if (getDustExtensionFilePath() != null) {
             loadScriptFile(getDustExtensionFilePath());
         }
+
+        resolveFunctions();
+    }
+
+    /**
+     * Initialize pluggable script runtime instead of built-in Rhino runtime.
+     */
+    protected void initializeScriptRuntime() {
+        compiledTemplateRegistry.clear();
+        dependencyGraph.clear();
+        scriptFingerprint = "";
+        fingerprintScriptFile(getDustJsFilePath());
+        if (getDustJsHelperFilePath().length() > 0) {
+            fingerprintScriptFile(getDustJsHelperFilePath());
+        }
+        if (getDustExtensionFilePath() != null) {
+            fingerprintScriptFile(getDustExtensionFilePath());
+        }
+
+        scriptRuntime.initialize(this);
+    }
+
+    private void fingerprintScriptFile(String filePath) {
+        InputStream fileStream = getDustJsStream(filePath);
+        try {
+            scriptFingerprint = Fingerprints.of(scriptFingerprint + Fingerprints.of(Sources.read(fileStream, encoding)));
+        } catch (IOException e) {
+            throw new DustViewException("Throwing exception when initialize step for core engine!", e);
+        } finally {
+            try {
+                fileStream.close();
+            } catch (IOException e) {
+                logger.warn("Fail to close dust script(" + filePath + ")", e);
+            }
+        }
+    }
+
+    /**
+     * Create child scope of shared scope. Dust script is already loaded in shared scope.
+     * Child scope is created one time per shared scope, so loaded template is kept when re-initializing.
+     */
+    protected void initializeChildScope() {
+        if (globalScope != null && sharedScope.getScope() == globalScope.getPrototype()) {
+            return;
+        }
+
+        globalScope = sharedScope.newChildScope();
+        templateRegistry = sharedScope.newTemplateRegistry();
+        compiledTemplateRegistry.clear();
+        dependencyGraph.clear();
+        clearTreeRenderer();
+        clearTieredCompile(null);
+        scriptFingerprint = sharedScope.getScriptFingerprint();
     }
 
     /**
@@ -113,7 +311,15 @@ public class DustTemplateEngine {
             if (globalScope == null) {
                 globalScope = context.initStandardObjects();
             }
-            context.evaluateReader(globalScope, fileReader, filePath, fileStream.available(), null);
+            String source = Sources.read(fileReader);
+            if (scriptCache != null) {
+                // compiled script is reused, so parsing and codegen is skipped
+                Script script = scriptCache.getScript(context, filePath, source);
+                script.exec(context, globalScope);
+            } else {
+                context.evaluateString(globalScope, source, filePath, 1, null);
+            }
+            scriptFingerprint = Fingerprints.of(scriptFingerprint + Fingerprints.of(source));
 
         } catch (Exception e) {
             throw new DustViewException("Throwing exception when initialize step for core engine!", e);
@@ -149,6 +355,13 @@ public class DustTemplateEngine {
             context.evaluateString(globalScope, compileScript, compileSourceName, 0, null);
             context.evaluateString(globalScope, loadScript, compileSourceName, 0, null);
             context.evaluateString(globalScope, renderScript, compileSourceName, 0, null);
+            context.evaluateString(globalScope, renderModelScript, compileSourceName, 0, null);
+            context.evaluateString(globalScope, streamScript, compileSourceName, 0, null);
+            context.evaluateString(globalScope, DEFAULT_PARSE_SCRIPT, compileSourceName, 0, null);
+            context.evaluateString(globalScope, getCacheHelperScript(), compileSourceName, 0, null);
+            if (fragmentCache != null) {
+                ScriptableObject.putProperty(globalScope, "dustFragmentCache", Context.javaToJS(fragmentCache, globalScope));
+            }
 
             if (logger.isDebugEnabled()) {
                 // debugging
@@ -177,19 +390,85 @@ public class DustTemplateEngine {
      * @return Compiled HTML Markup(JavaScript Format)
      */
     public String compile(String templateKey, String source) {
-        final Context context = Context.enter();
+        String compiled = compileSource(templateKey, source);
+        if (treeRenderer != null && scriptRuntime == null && !treeRenderer.isPrepared(templateKey, compiled)) {
+            prepareTree(templateKey, source, compiled);
+        }
+        return compiled;
+    }
+
+    private String compileSource(String templateKey, String source) {
+        String cacheKey = null;
+        if (compileCache != null) {
+            cacheKey = createCompileCacheKey(templateKey, source);
+            String cached = compileCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String compiled;
+        if (scriptRuntime != null) {
+            compiled = scriptRuntime.compile(templateKey, source);
+        } else {
+            compiled = compileByRhino(templateKey, source);
+        }
+
+        if (cacheKey != null) {
+            compileCache.put(cacheKey, compiled);
+        }
+        return compiled;
+    }
+
+    private String compileByRhino(String templateKey, String source) {
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
         try {
-            context.setOptimizationLevel(optimizationLevel);
-            Function fct = (Function) globalScope.get("dustCompile", globalScope);
-            String compiled = (String) fct.call(context, globalScope, globalScope, new Object[]{templateKey, source});
-            return compiled;
+            return (String) compileFunction.call(context, globalScope, globalScope, new Object[]{templateKey, source});
         } catch (JavaScriptException e) {
             throw new DustViewException("thrown error when compile Dust JS Source", e);
         } finally {
-            Context.exit();
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
         }
     }
 
+    /**
+     * Parse template by dust.js, and compile parse tree to Java render tree.
+     */
+    private void prepareTree(String templateKey, String source, String compiledSource) {
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
+        try {
+            Object ast = parseFunction.call(context, globalScope, globalScope, new Object[]{source});
+            if (ast instanceof List) {
+                treeRenderer.prepare(templateKey, compiledSource, (List<?>) ast);
+            }
+        } catch (RhinoException e) {
+            logger.warn("Fail to parse template for tree renderer, so template is rendered by dust.js (templateKey: " + templateKey + ")", e);
+        } finally {
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
+        }
+    }
+
+    private void clearTreeRenderer() {
+        if (treeRenderer != null) {
+            treeRenderer.clear();
+        }
+    }
+
+    /**
+     * Key of compile cache. Compiled result is changed by template key, source, dust script and compile script.
+     *
+     * @param templateKey
+     * @param source
+     * @return
+     */
+    protected String createCompileCacheKey(String templateKey, String source) {
+        return Fingerprints.of(templateKey + "\n" + scriptFingerprint + "\n" + compileScript + "\n" + source);
+    }
+
     /**
      * Load Compiled Markup Source to JavaScript Object
      *
@@ -204,7 +483,14 @@ public class DustTemplateEngine {
             return false;
         }
 
-        final Context context = Context.enter();
+        if (scriptRuntime != null) {
+            scriptRuntime.load(templateKey, compiledSource);
+            registerLoadedTemplate(templateKey, compiledSource);
+            return true;
+        }
+
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
         try {
             if (logger.isInfoEnabled()) {
                 logger.info("Compiled resource load to script engine! " +
@@ -213,28 +499,146 @@ public class DustTemplateEngine {
                 );
             }
 
-            context.setOptimizationLevel(optimizationLevel);
-            Function fct = (Function) globalScope.get("dustLoad", globalScope);
-            fct.call(context, globalScope, globalScope, new Object[]{compiledSource});
+            loadFunction.call(context, globalScope, globalScope, new Object[]{compiledSource});
 
             if (logger.isInfoEnabled()) {
                 logger.info("Add to compiled resource to cache! (templateKey: " + templateKey + ")");
             }
 
-            compiledSourceCache.put(templateKey, compiledSource);
+            registerLoadedTemplate(templateKey, compiledSource);
+            // loaded source is interpreted again
+            clearTieredCompile(templateKey);
+            if (treeRenderer != null) {
+                treeRenderer.activate(templateKey, compiledSource);
+            }
             return true;
         } catch (JavaScriptException e) {
             throw new DustViewException("thrown error when load Dust JS Source", e);
         } finally {
-            Context.exit();
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
+        }
+    }
+
+    /**
+     * Register loaded template to registry and dependency graph.
+     * If content of template is changed, templates depending on it are marked. (other template is not touched)
+     *
+     * @param templateKey
+     * @param compiledSource
+     * @return marked template
+     */
+    protected Set<String> registerLoadedTemplate(String templateKey, String compiledSource) {
+        CompiledTemplateRegistry registry = getCompiledTemplateRegistry();
+        TemplateDependencyGraph graph = getDependencyGraph();
+
+        long previousVersion = registry.getVersion(templateKey);
+        long version = registry.register(templateKey, compiledSource);
+        graph.register(templateKey, compiledSource);
+        if (version == previousVersion) {
+            return Collections.emptySet();
+        }
+
+        Set<String> marked = graph.markDependents(templateKey, version);
+        if (!marked.isEmpty() && logger.isDebugEnabled()) {
+            logger.debug("Template depending on changed partial is marked (templateKey: " + templateKey +
+                    ", dependents: " + marked + ")");
+        }
+        removeFragments(templateKey, marked);
+        return marked;
+    }
+
+    /**
+     * Remove cached fragment of changed template and templates depending on it
+     */
+    private void removeFragments(String templateKey, Set<String> dependents) {
+        if (fragmentCache == null) {
+            return;
+        }
+        int count = fragmentCache.removeByPrefix(templateKey + FRAGMENT_KEY_SEPARATOR);
+        for (String dependent : dependents) {
+            count += fragmentCache.removeByPrefix(dependent + FRAGMENT_KEY_SEPARATOR);
+        }
+        if (count > 0 && logger.isDebugEnabled()) {
+            logger.debug("Remove cached fragment of changed template (templateKey: " + templateKey + ", count: " + count + ")");
         }
     }
 
     protected boolean isLoad(String templateKey, String compiledSource) {
-        if (compiledSourceCache.containsKey(templateKey) && compiledSourceCache.containsValue(compiledSource)) {
-            return true;
+        return compiledTemplateRegistry.isRegistered(templateKey, compiledSource);
+    }
+
+    /**
+     * Version of loaded template. Version is changed whenever template is loaded with different source.
+     *
+     * @param templateKey
+     * @return version, or -1 if template is not loaded
+     */
+    public long getTemplateVersion(String templateKey) {
+        return compiledTemplateRegistry.getVersion(templateKey);
+    }
+
+    /**
+     * @return key of loaded template
+     */
+    public Set<String> getLoadedTemplateKeys() {
+        return compiledTemplateRegistry.getTemplateKeys();
+    }
+
+    protected CompiledTemplateRegistry getCompiledTemplateRegistry() {
+        return compiledTemplateRegistry;
+    }
+
+    /**
+     * @param templateKey
+     * @return partial referenced by loaded template directly
+     */
+    public Set<String> getPartials(String templateKey) {
+        return getDependencyGraph().getPartials(templateKey);
+    }
+
+    /**
+     * Partial referenced by template(directly or through other partial) that is not loaded yet.
+     * Loading these before rendering guarantees that rendering does not fail by missing partial.
+     *
+     * @param templateKey
+     * @return
+     */
+    public Set<String> getMissingPartials(String templateKey) {
+        Set<String> missing = new LinkedHashSet<String>();
+        for (String partial : getDependencyGraph().getTransitivePartials(templateKey)) {
+            if (getTemplateVersion(partial) == CompiledTemplateRegistry.NOT_REGISTERED_VERSION) {
+                missing.add(partial);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @param templateKey
+     * @return loaded template referencing partial directly or through other partial
+     */
+    public Set<String> getDependents(String templateKey) {
+        return getDependencyGraph().getTransitiveDependents(templateKey);
+    }
+
+    /**
+     * Version of template including its partials. This is changed when template is loaded with different source,
+     * or when partial that template depends on(directly or through other partial) is changed.
+     *
+     * @param templateKey
+     * @return version, or -1 if template is not loaded
+     */
+    public long getDependencyVersion(String templateKey) {
+        long version = getTemplateVersion(templateKey);
+        if (version == CompiledTemplateRegistry.NOT_REGISTERED_VERSION) {
+            return version;
         }
-        return false;
+        return Math.max(version, getDependencyGraph().getDependencyVersion(templateKey));
+    }
+
+    protected TemplateDependencyGraph getDependencyGraph() {
+        return dependencyGraph;
     }
 
     /**
@@ -247,19 +651,411 @@ public class DustTemplateEngine {
      * @param json
      */
     public void render(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
-        final Context context = Context.enter();
+        long version = getDependencyVersion(templateKey);
+        if ((renderedOutputCache == null && renderSingleFlight == null) ||
+                version == CompiledTemplateRegistry.NOT_REGISTERED_VERSION) {
+            doRender(responseWriter, errorWriter, templateKey, json);
+            return;
+        }
+
+        String renderKey = createRenderKey(templateKey, version, json);
+        String markup = renderedOutputCache == null ? null : renderedOutputCache.get(renderKey);
+        if (markup != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Using rendered output cache (templateKey: " + templateKey + ", version: " + version + ")");
+            }
+        } else {
+            RenderedMarkup rendered;
+            if (renderSingleFlight != null) {
+                // identical concurrent rendering waits for first rendering, and shares its result
+                rendered = renderSingleFlight.execute(renderKey, new RenderTask(renderKey, templateKey, json));
+            } else {
+                rendered = new RenderTask(renderKey, templateKey, json).call();
+            }
+            errorWriter.write(rendered.error);
+            markup = rendered.markup;
+        }
+
         try {
-            context.setOptimizationLevel(optimizationLevel);
+            responseWriter.write(markup);
+        } catch (IOException e) {
+            throw new DustViewException("Fail to write rendered markup(templateKey: " + templateKey + ")", e);
+        }
+    }
+
+    /**
+     * Key of rendering result. Same key means same markup.
+     *
+     * @param templateKey
+     * @param version     version of template including its partials
+     * @param json
+     * @return
+     */
+    protected String createRenderKey(String templateKey, long version, String json) {
+        return templateKey + "@" + version + "#" + Fingerprints.of(json);
+    }
+
+    /**
+     * Rendering without rendered output cache and single-flight
+     *
+     * @param responseWriter
+     * @param errorWriter
+     * @param templateKey
+     * @param json
+     */
+    protected void doRender(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
+        if (scriptRuntime != null) {
+            scriptRuntime.render(responseWriter, errorWriter, templateKey, json);
+            return;
+        }
+        if (renderTreeJson(responseWriter, templateKey, json)) {
+            return;
+        }
+
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
+        try {
+            renderFunction.call(context, globalScope, globalScope, new Object[]{templateKey, responseWriter, errorWriter, json});
+            countRender(context, templateKey);
+        } catch (JavaScriptException e) {
+            throw new DustViewException("thrown error when Rendering Dust JS Source", e);
+        } finally {
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
+        }
+    }
+
+    /**
+     * Rendering Markup with Java model(Map, List, bean) directly.
+     * Model is not serialized to JSON, and is converted lazily when template access to property.
+     *
+     * @param responseWriter
+     * @param errorWriter
+     * @param templateKey
+     * @param model
+     * @see JavaModelScriptable
+     */
+    public void renderModel(Writer responseWriter, StringWriter errorWriter, String templateKey, Object model) {
+        checkJavaModelSupported();
+        if (renderTree(responseWriter, templateKey, model)) {
+            return;
+        }
+
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
+        try {
+            Object dustModel = JavaModelScriptable.wrap(model, globalScope);
+            renderModelFunction.call(context, globalScope, globalScope, new Object[]{templateKey, responseWriter, errorWriter, dustModel});
+            countRender(context, templateKey);
+        } catch (JavaScriptException e) {
+            throw new DustViewException("thrown error when Rendering Dust JS Source", e);
+        } finally {
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
+        }
+    }
 
-            Function fct = (Function) globalScope.get("dustRender", globalScope);
-            fct.call(context, globalScope, globalScope, new Object[]{templateKey, responseWriter, errorWriter, json});
+    /**
+     * Streaming rendering with JSON data. Rendered markup is written to {@link Writer} as soon as dust write it,
+     * so result is not buffered to String.
+     *
+     * @param responseWriter
+     * @param errorWriter
+     * @param templateKey
+     * @param json
+     */
+    public void renderStream(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
+        if (scriptRuntime != null) {
+            scriptRuntime.renderStream(responseWriter, errorWriter, templateKey, json);
+            return;
+        }
+
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
+        try {
+            Object model = new JsonParser(context, globalScope).parseValue(json);
+            streamFunction.call(context, globalScope, globalScope, new Object[]{templateKey, responseWriter, errorWriter, model});
+            countRender(context, templateKey);
+        } catch (JsonParser.ParseException e) {
+            throw new DustViewException("Fail to parse JSON for rendering(templateKey: " + templateKey + ")", e);
         } catch (JavaScriptException e) {
             throw new DustViewException("thrown error when Rendering Dust JS Source", e);
         } finally {
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
+        }
+    }
+
+    /**
+     * Streaming rendering with Java model.
+     *
+     * @param responseWriter
+     * @param errorWriter
+     * @param templateKey
+     * @param model
+     * @see #renderStream(Writer, StringWriter, String, String)
+     * @see #renderModel(Writer, StringWriter, String, Object)
+     */
+    public void renderModelStream(Writer responseWriter, StringWriter errorWriter, String templateKey, Object model) {
+        checkJavaModelSupported();
+
+        final Context context = enterContext();
+        Scriptable previousRegistry = bindTemplateRegistry();
+        try {
+            Object dustModel = JavaModelScriptable.wrap(model, globalScope);
+            streamFunction.call(context, globalScope, globalScope, new Object[]{templateKey, responseWriter, errorWriter, dustModel});
+            countRender(context, templateKey);
+        } catch (JavaScriptException e) {
+            throw new DustViewException("thrown error when Rendering Dust JS Source", e);
+        } finally {
+            unbindTemplateRegistry(previousRegistry);
+            exitContext();
+        }
+    }
+
+    /**
+     * Count rendering of template, and compile template again with tiered optimization level when it is hot.
+     * dust loads template by eval() that is always interpreted by Rhino(whatever optimization level of engine is),
+     * so loaded template runs interpreted until then.
+     *
+     * @param context     entered context (template registry is bound)
+     * @param templateKey
+     */
+    private void countRender(Context context, String templateKey) {
+        if (tieredCompileThreshold <= 0 || tieredOptimizationLevel <= INTERPRETED_LEVEL ||
+                compiledTemplateRegistry.get(templateKey) == null) {
+            return;
+        }
+
+        AtomicInteger count = renderCounts.get(templateKey);
+        if (count == null) {
+            AtomicInteger created = new AtomicInteger();
+            count = renderCounts.putIfAbsent(templateKey, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        if (count.incrementAndGet() == tieredCompileThreshold) {
+            recompileTemplate(context, templateKey);
+        }
+    }
+
+    /**
+     * Compile loaded template with tiered optimization level. If compiling failed(ex. too large method for JVM),
+     * interpreted template is kept.
+     */
+    private void recompileTemplate(Context context, String templateKey) {
+        CompiledTemplateRegistry.Entry entry = compiledTemplateRegistry.get(templateKey);
+        if (entry == null) {
+            return;
+        }
+
+        int previousLevel = context.getOptimizationLevel();
+        long start = System.currentTimeMillis();
+        try {
+            context.setOptimizationLevel(tieredOptimizationLevel);
+            Script script = context.compileString(entry.getCompiledSource(), templateKey, 1, null);
+            script.exec(context, globalScope);
+            tieredLevels.put(templateKey, tieredOptimizationLevel);
+
+            if (logger.isInfoEnabled()) {
+                logger.info("Hot template is compiled (templateKey: " + templateKey + ", optimization level: " +
+                        tieredOptimizationLevel + ", elapsed: " + (System.currentTimeMillis() - start) + "ms)");
+            }
+        } catch (RuntimeException e) {
+            // EvaluatorException(ex. generated bytecode for method exceeds 64K limit) or error of codegen
+            tieredLevels.put(templateKey, INTERPRETED_LEVEL);
+            logger.warn("Fail to compile hot template, then it is rendered by interpreted mode (templateKey: " +
+                    templateKey + ", optimization level: " + tieredOptimizationLevel + ")", e);
+        } finally {
+            context.setOptimizationLevel(previousLevel);
+        }
+    }
+
+    /**
+     * @param templateKey null if clearing every template
+     */
+    private void clearTieredCompile(String templateKey) {
+        if (templateKey == null) {
+            renderCounts.clear();
+            tieredLevels.clear();
+        } else {
+            renderCounts.remove(templateKey);
+            tieredLevels.remove(templateKey);
+        }
+    }
+
+    /**
+     * @param templateKey
+     * @return optimization level that template is running, {@link #INTERPRETED_LEVEL} if not compiled by tiered compile
+     */
+    public int getTemplateOptimizationLevel(String templateKey) {
+        Integer level = tieredLevels.get(templateKey);
+        return level == null ? INTERPRETED_LEVEL : level;
+    }
+
+    /**
+     * Rendering by tree renderer, if tree renderer is used and template is renderable.
+     *
+     * @return false if template must be rendered by dust.js
+     * @see DustTreeRenderer
+     */
+    protected boolean renderTree(Writer responseWriter, String templateKey, Object model) {
+        if (!isTreeRenderable(templateKey)) {
+            return false;
+        }
+        try {
+            treeRenderer.render(responseWriter, templateKey, model);
+            return true;
+        } catch (UnsupportedTemplateException e) {
+            logTreeFallback(templateKey, e);
+            return false;
+        }
+    }
+
+    /**
+     * Rendering by tree renderer with JSON data.
+     *
+     * @return false if template must be rendered by dust.js
+     * @see #renderTree(Writer, String, Object)
+     */
+    protected boolean renderTreeJson(Writer responseWriter, String templateKey, String json) {
+        if (!isTreeRenderable(templateKey)) {
+            return false;
+        }
+        try {
+            treeRenderer.renderJson(responseWriter, templateKey, json);
+            return true;
+        } catch (UnsupportedTemplateException e) {
+            logTreeFallback(templateKey, e);
+            return false;
+        }
+    }
+
+    private boolean isTreeRenderable(String templateKey) {
+        return treeRenderer != null && scriptRuntime == null && treeRenderer.isRenderable(templateKey);
+    }
+
+    private void logTreeFallback(String templateKey, UnsupportedTemplateException e) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rendering by dust.js instead of tree renderer (templateKey: " + templateKey + ", reason: " + e.getMessage() + ")");
+        }
+    }
+
+    private void checkJavaModelSupported() {
+        if (scriptRuntime != null) {
+            throw new DustViewException("Rendering with Java model is supported by built-in Rhino runtime only! (runtime: " +
+                    scriptRuntime.getClass().getName() + ")");
+        }
+    }
+
+    /**
+     * Copy engine configuration(script path, script, encoding, optimization level) to other engine.
+     * Loaded template and script scope is not copied.
+     *
+     * @param target
+     */
+    public void copyConfigurationTo(DustTemplateEngine target) {
+        target.setDustJsFilePath(getDustJsFilePath());
+        target.setDustJsHelperFilePath(getDustJsHelperFilePath());
+        target.setDustExtensionFilePath(getDustExtensionFilePath());
+        target.setEncoding(getEncoding());
+        target.setCompileScript(getCompileScript());
+        target.setLoadScript(getLoadScript());
+        target.setRenderScript(getRenderScript());
+        target.setRenderModelScript(getRenderModelScript());
+        target.setStreamScript(getStreamScript());
+        target.setCompileSourceName(getCompileSourceName());
+        target.setOptimizationLevel(getOptimizationLevel());
+        target.setTieredCompileThreshold(getTieredCompileThreshold());
+        target.setTieredOptimizationLevel(getTieredOptimizationLevel());
+        target.setSharedScope(getSharedScope());
+        target.setPersistentContext(isPersistentContext());
+        target.setScriptCache(getScriptCache());
+        target.setCompileCache(getCompileCache());
+        target.setTreeRenderer(getTreeRenderer());
+        target.setFragmentCache(getFragmentCache());
+        if (getScriptRuntime() != null && target.getScriptRuntime() == null) {
+            // script runtime is not shared between engines
+            target.setScriptRuntime(getScriptRuntime().newInstance());
+        } else if (getScriptRuntime() == null) {
+            target.setScriptRuntime(null);
+        }
+    }
+
+    /**
+     * Enter Rhino context for calling dust function.
+     * If using persistent context, return context bound to current thread(no enter/exit per call).
+     *
+     * @return
+     */
+    protected Context enterContext() {
+        if (contextFactory != null) {
+            return contextFactory.getThreadContext();
+        }
+
+        Context context = Context.enter();
+        context.setOptimizationLevel(optimizationLevel);
+        return context;
+    }
+
+    protected void exitContext() {
+        if (contextFactory == null) {
             Context.exit();
         }
     }
 
+    /**
+     * Exit Rhino context bound to current thread by persistent context mode. (no-op if not persistent)
+     * Must be called when unit of work(ex. request) is finished, otherwise thread keeps context and class loader.
+     */
+    public void releaseThreadContext() {
+        if (contextFactory != null) {
+            contextFactory.releaseThreadContext();
+        }
+    }
+
+    /**
+     * Release resource of engine (script runtime, and Rhino context bound to current thread).
+     * Engine can't be used after closing until {@link #initializeContext()} is called again.
+     */
+    public void close() {
+        releaseThreadContext();
+        if (scriptRuntime != null) {
+            scriptRuntime.close();
+        }
+    }
+
+    /**
+     * Resolve compile-load-render function once. Function object is cached until next initializing.
+     */
+    protected void resolveFunctions() {
+        compileFunction = (Function) ScriptableObject.getProperty(globalScope, "dustCompile");
+        loadFunction = (Function) ScriptableObject.getProperty(globalScope, "dustLoad");
+        renderFunction = (Function) ScriptableObject.getProperty(globalScope, "dustRender");
+        renderModelFunction = (Function) ScriptableObject.getProperty(globalScope, "dustRenderModel");
+        streamFunction = (Function) ScriptableObject.getProperty(globalScope, "dustStream");
+        parseFunction = (Function) ScriptableObject.getProperty(globalScope, "dustParse");
+    }
+
+    /**
+     * Bind own template registry to shared scope, if using shared scope.
+     *
+     * @return previous bound registry
+     */
+    private Scriptable bindTemplateRegistry() {
+        if (sharedScope == null) {
+            return null;
+        }
+        return sharedScope.bind(templateRegistry);
+    }
+
+    private void unbindTemplateRegistry(Scriptable previousRegistry) {
+        if (sharedScope != null) {
+            sharedScope.unbind(previousRegistry);
+        }
+    }
+
     /**
      * Resolve File InputStream by Path
      *
@@ -309,6 +1105,14 @@ public class DustTemplateEngine {
         this.renderScript = renderScript;
     }
 
+    public void setRenderModelScript(String renderModelScript) {
+        this.renderModelScript = renderModelScript;
+    }
+
+    public void setStreamScript(String streamScript) {
+        this.streamScript = streamScript;
+    }
+
     public void setCompileSourceName(String compileSourceName) {
         this.compileSourceName = compileSourceName;
     }
@@ -317,6 +1121,31 @@ public class DustTemplateEngine {
         this.optimizationLevel = optimizationLevel;
     }
 
+    /**
+     * Template is loaded with optimization level(default: interpreted), and is compiled again with tiered
+     * optimization level after rendered threshold count. Rhino runtime only.
+     *
+     * @param tieredCompileThreshold 0 if not compiling again
+     */
+    public void setTieredCompileThreshold(int tieredCompileThreshold) {
+        this.tieredCompileThreshold = tieredCompileThreshold;
+    }
+
+    public int getTieredCompileThreshold() {
+        return tieredCompileThreshold;
+    }
+
+    /**
+     * @param tieredOptimizationLevel optimization level of hot template (0 ~ 9, default: 9)
+     */
+    public void setTieredOptimizationLevel(int tieredOptimizationLevel) {
+        this.tieredOptimizationLevel = tieredOptimizationLevel;
+    }
+
+    public int getTieredOptimizationLevel() {
+        return tieredOptimizationLevel;
+    }
+
     public int getOptimizationLevel() {
         return optimizationLevel;
     }
@@ -329,6 +1158,14 @@ public class DustTemplateEngine {
         return renderScript;
     }
 
+    public String getRenderModelScript() {
+        return renderModelScript;
+    }
+
+    public String getStreamScript() {
+        return streamScript;
+    }
+
     public String getCompileScript() {
         return compileScript;
     }
@@ -349,6 +1186,146 @@ public class DustTemplateEngine {
         return dustExtensionFilePath;
     }
 
+    /**
+     * Using shared dust scope. Must call {@link #initializeContext()} after setting.
+     *
+     * @param sharedScope
+     */
+    public void setSharedScope(DustSharedScope sharedScope) {
+        this.sharedScope = sharedScope;
+    }
+
+    public DustSharedScope getSharedScope() {
+        return sharedScope;
+    }
+
+    /**
+     * Keep Rhino context bound to worker thread instead of enter/exit every call.
+     * Must call {@link #initializeContext()} after setting.
+     *
+     * @param persistentContext
+     */
+    public void setPersistentContext(boolean persistentContext) {
+        this.persistentContext = persistentContext;
+    }
+
+    public boolean isPersistentContext() {
+        return persistentContext;
+    }
+
+    /**
+     * Cache of compiled dust script file. If null, script file is parsed whenever initializing.
+     *
+     * @param scriptCache
+     */
+    public void setScriptCache(DustScriptCache scriptCache) {
+        this.scriptCache = scriptCache;
+    }
+
+    public DustScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    /**
+     * Cache of compiled template. If null(default), template is compiled by Rhino whenever calling compile.
+     *
+     * @param compileCache
+     * @see FileSystemDustCompileCache
+     */
+    public void setCompileCache(DustCompileCache compileCache) {
+        this.compileCache = compileCache;
+    }
+
+    public DustCompileCache getCompileCache() {
+        return compileCache;
+    }
+
+    /**
+     * Using pluggable script runtime(ex. GraalJS) instead of built-in Rhino runtime.
+     * Must call {@link #initializeContext()} after setting.
+     *
+     * @param scriptRuntime null if using built-in Rhino runtime
+     */
+    public void setScriptRuntime(DustScriptRuntime scriptRuntime) {
+        this.scriptRuntime = scriptRuntime;
+    }
+
+    public DustScriptRuntime getScriptRuntime() {
+        return scriptRuntime;
+    }
+
+    /**
+     * Rendering by pure-Java render tree instead of dust.js when template is renderable(built-in Rhino runtime only).
+     * Template compiled after setting is prepared, and is activated when it is loaded.
+     *
+     * @param treeRenderer null if rendering by dust.js only
+     */
+    public void setTreeRenderer(DustTreeRenderer treeRenderer) {
+        this.treeRenderer = treeRenderer;
+    }
+
+    public DustTreeRenderer getTreeRenderer() {
+        return treeRenderer;
+    }
+
+    /**
+     * Cache rendered markup of {@link #render(Writer, StringWriter, String, String)} by template version and JSON data.
+     * Cache hit does not execute dust at all. Template using dynamic partial name or helper depending on
+     * something other than JSON data(ex. time) should not be rendered with this cache.
+     *
+     * @param renderedOutputCache null if not caching
+     */
+    public void setRenderedOutputCache(RenderedOutputCache renderedOutputCache) {
+        this.renderedOutputCache = renderedOutputCache;
+    }
+
+    public RenderedOutputCache getRenderedOutputCache() {
+        return renderedOutputCache;
+    }
+
+    /**
+     * Cache of fragment helper({@literal @}cache key="..." ttl="seconds"). If cached, block of helper is not rendered.
+     * Fragment is keyed by template name and key of helper, and is removed when template(or its partial) is changed.
+     * Must be set before initializing, and is shared by engines in pool(or shared scope).
+     *
+     * @param fragmentCache null(default) if helper renders block always
+     */
+    public void setFragmentCache(RenderedOutputCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    public RenderedOutputCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * @return script defining fragment cache helper. helper uses 'dustFragmentCache' in global scope.
+     */
+    public String getCacheHelperScript() {
+        return DEFAULT_CACHE_HELPER_SCRIPT;
+    }
+
+    /**
+     * If true, concurrent rendering of same template with same JSON data is executed once,
+     * and other callers wait for it and share rendered markup. Rendering with other template or data is not blocked.
+     *
+     * @param singleFlightRendering
+     */
+    public void setSingleFlightRendering(boolean singleFlightRendering) {
+        this.renderSingleFlight = singleFlightRendering ? new SingleFlight<RenderedMarkup>() : null;
+    }
+
+    public boolean isSingleFlightRendering() {
+        return renderSingleFlight != null;
+    }
+
+    /**
+     * @return fingerprint of loaded dust script(core, helper, extension)
+     */
+    public String getScriptFingerprint() {
+        return scriptFingerprint;
+    }
+
     /**
      * return initialized script engine object
      * <p/>
@@ -359,4 +1336,45 @@ public class DustTemplateEngine {
     Scriptable getGlobalScope() {
         return this.globalScope;
     }
+
+    /**
+     * Rendering to String, and caching result if rendered without error.
+     */
+    private class RenderTask implements Callable<RenderedMarkup> {
+
+        private final String renderKey;
+        private final String templateKey;
+        private final String json;
+
+        RenderTask(String renderKey, String templateKey, String json) {
+            this.renderKey = renderKey;
+            this.templateKey = templateKey;
+            this.json = json;
+        }
+
+        @Override
+        public RenderedMarkup call() {
+            StringWriter writer = new StringWriter();
+            StringWriter errorWriter = new StringWriter();
+            doRender(writer, errorWriter, templateKey, json);
+
+            RenderedMarkup rendered = new RenderedMarkup(writer.toString(), errorWriter.toString());
+            if (renderedOutputCache != null && rendered.error.isEmpty()) {
+                // failed rendering is not cached
+                renderedOutputCache.put(renderKey, rendered.markup);
+            }
+            return rendered;
+        }
+    }
+
+    private static class RenderedMarkup {
+
+        private final String markup;
+        private final String error;
+
+        RenderedMarkup(String markup, String error) {
+            this.markup = markup;
+            this.error = error;
+        }
+    }
 }
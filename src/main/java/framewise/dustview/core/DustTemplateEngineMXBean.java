@@ -0,0 +1,61 @@
+package framewise.dustview.core;
+
+/**
+ * JMX management interface of {@link DustTemplateEngine}.
+ * Cache statistics are 0 if cache is not used.
+ *
+ * @author chanwook
+ */
+public interface DustTemplateEngineMXBean {
+
+    int getLoadedTemplateCount();
+
+    String[] getLoadedTemplateKeys();
+
+    /**
+     * @return total size(character count) of loaded compiled source
+     */
+    long getCompiledSourceSize();
+
+    long getTemplateVersion(String templateKey);
+
+    long getDependencyVersion(String templateKey);
+
+    String[] getDependents(String templateKey);
+
+    int getTemplateOptimizationLevel(String templateKey);
+
+    /**
+     * @return size of engine pool, or 1 if engine is not pooled
+     */
+    int getPoolSize();
+
+    /**
+     * @return idle engine in pool, or -1 if engine is not pooled
+     */
+    int getIdleEngineCount();
+
+    boolean isRenderedOutputCacheEnabled();
+
+    int getRenderedOutputCacheSize();
+
+    long getRenderedOutputCacheBytes();
+
+    long getRenderedOutputCacheHitCount();
+
+    long getRenderedOutputCacheMissCount();
+
+    boolean isFragmentCacheEnabled();
+
+    int getFragmentCacheSize();
+
+    long getFragmentCacheBytes();
+
+    long getFragmentCacheHitCount();
+
+    long getFragmentCacheMissCount();
+
+    void clearRenderedOutputCache();
+
+    void clearFragmentCache();
+}
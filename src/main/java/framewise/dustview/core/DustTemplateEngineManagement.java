@@ -0,0 +1,133 @@
+package framewise.dustview.core;
+
+import java.util.Set;
+
+/**
+ * JMX MBean of {@link DustTemplateEngine}. Loaded template and cache statistics are read from engine on every call.
+ *
+ * @author chanwook
+ */
+public class DustTemplateEngineManagement implements DustTemplateEngineMXBean {
+
+    private final DustTemplateEngine engine;
+
+    public DustTemplateEngineManagement(DustTemplateEngine engine) {
+        this.engine = engine;
+    }
+
+    public int getLoadedTemplateCount() {
+        return engine.getCompiledTemplateRegistry().size();
+    }
+
+    public String[] getLoadedTemplateKeys() {
+        return toArray(engine.getLoadedTemplateKeys());
+    }
+
+    public long getCompiledSourceSize() {
+        CompiledTemplateRegistry registry = engine.getCompiledTemplateRegistry();
+        long size = 0;
+        for (String templateKey : registry.getTemplateKeys()) {
+            CompiledTemplateRegistry.Entry entry = registry.get(templateKey);
+            if (entry != null) {
+                size += entry.getCompiledSource().length();
+            }
+        }
+        return size;
+    }
+
+    public long getTemplateVersion(String templateKey) {
+        return engine.getTemplateVersion(templateKey);
+    }
+
+    public long getDependencyVersion(String templateKey) {
+        return engine.getDependencyVersion(templateKey);
+    }
+
+    public String[] getDependents(String templateKey) {
+        return toArray(engine.getDependents(templateKey));
+    }
+
+    public int getTemplateOptimizationLevel(String templateKey) {
+        return engine.getTemplateOptimizationLevel(templateKey);
+    }
+
+    public int getPoolSize() {
+        if (engine instanceof PooledDustTemplateEngine) {
+            return ((PooledDustTemplateEngine) engine).getPoolSize();
+        }
+        return 1;
+    }
+
+    public int getIdleEngineCount() {
+        if (engine instanceof PooledDustTemplateEngine) {
+            return ((PooledDustTemplateEngine) engine).getIdleCount();
+        }
+        return -1;
+    }
+
+    public boolean isRenderedOutputCacheEnabled() {
+        return engine.getRenderedOutputCache() != null;
+    }
+
+    public int getRenderedOutputCacheSize() {
+        RenderedOutputCache cache = engine.getRenderedOutputCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    public long getRenderedOutputCacheBytes() {
+        RenderedOutputCache cache = engine.getRenderedOutputCache();
+        return cache == null ? 0 : cache.getTotalBytes();
+    }
+
+    public long getRenderedOutputCacheHitCount() {
+        RenderedOutputCache cache = engine.getRenderedOutputCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    public long getRenderedOutputCacheMissCount() {
+        RenderedOutputCache cache = engine.getRenderedOutputCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    public boolean isFragmentCacheEnabled() {
+        return engine.getFragmentCache() != null;
+    }
+
+    public int getFragmentCacheSize() {
+        RenderedOutputCache cache = engine.getFragmentCache();
+        return cache == null ? 0 : cache.size();
+    }
+
+    public long getFragmentCacheBytes() {
+        RenderedOutputCache cache = engine.getFragmentCache();
+        return cache == null ? 0 : cache.getTotalBytes();
+    }
+
+    public long getFragmentCacheHitCount() {
+        RenderedOutputCache cache = engine.getFragmentCache();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    public long getFragmentCacheMissCount() {
+        RenderedOutputCache cache = engine.getFragmentCache();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    public void clearRenderedOutputCache() {
+        RenderedOutputCache cache = engine.getRenderedOutputCache();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public void clearFragmentCache() {
+        RenderedOutputCache cache = engine.getFragmentCache();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private String[] toArray(Set<String> keys) {
+        return keys.toArray(new String[keys.size()]);
+    }
+}
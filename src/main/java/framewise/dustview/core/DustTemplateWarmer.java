@@ -0,0 +1,154 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Warm up engine by rendering every loaded template several times with sample JSON data,
+ * so first requests after startup are not slow by interpreting and JIT compiling.
+ * <p/>
+ * Sample data of template is '{templateKey}.json' file in sample directory. If not exist, empty data('{}') is used.
+ * Rendering result and error are discarded, and rendered output cache is not used.
+ *
+ * @author chanwook
+ */
+public class DustTemplateWarmer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public static final int DEFAULT_ITERATIONS = 10;
+    public static final String SAMPLE_FILE_EXTENSION = ".json";
+
+    private static final String EMPTY_SAMPLE = "{}";
+
+    private File sampleDirectory;
+    private int iterations = DEFAULT_ITERATIONS;
+    private String encoding = "UTF-8";
+
+    public DustTemplateWarmer() {
+    }
+
+    public DustTemplateWarmer(File sampleDirectory, int iterations) {
+        this.sampleDirectory = sampleDirectory;
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return key of template that has sample data
+     */
+    public Set<String> getSampleTemplateKeys() {
+        Set<String> templateKeys = new TreeSet<String>();
+        if (sampleDirectory == null || !sampleDirectory.isDirectory()) {
+            return templateKeys;
+        }
+
+        File[] files = sampleDirectory.listFiles();
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isFile() && name.endsWith(SAMPLE_FILE_EXTENSION)) {
+                templateKeys.add(name.substring(0, name.length() - SAMPLE_FILE_EXTENSION.length()));
+            }
+        }
+        return templateKeys;
+    }
+
+    /**
+     * Render every loaded template. Each engine in pool is warmed up.
+     *
+     * @param engine
+     * @return warm-up time(ms) per template
+     */
+    public Map<String, Long> warmUp(DustTemplateEngine engine) {
+        Map<String, Long> timings = new LinkedHashMap<String, Long>();
+        for (String templateKey : new TreeSet<String>(engine.getLoadedTemplateKeys())) {
+            String sample = readSample(templateKey);
+
+            long start = System.nanoTime();
+            if (engine instanceof PooledDustTemplateEngine) {
+                for (DustTemplateEngine pooledEngine : ((PooledDustTemplateEngine) engine).getEngines()) {
+                    synchronized (pooledEngine) {
+                        render(pooledEngine, templateKey, sample);
+                    }
+                }
+            } else {
+                render(engine, templateKey, sample);
+            }
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            timings.put(templateKey, elapsed);
+
+            if (logger.isInfoEnabled()) {
+                logger.info("Warm up template (templateKey: " + templateKey + ", iterations: " + iterations +
+                        ", sample: " + (sample == EMPTY_SAMPLE ? "none" : "exist") + ", elapsed: " + elapsed + "ms)");
+            }
+        }
+        return timings;
+    }
+
+    private void render(DustTemplateEngine engine, String templateKey, String sample) {
+        for (int index = 0; index < iterations; index++) {
+            StringWriter errorWriter = new StringWriter();
+            try {
+                engine.doRender(new StringWriter(), errorWriter, templateKey, sample);
+            } catch (RuntimeException e) {
+                errorWriter.write(String.valueOf(e.getMessage()));
+            }
+
+            if (errorWriter.getBuffer().length() > 0) {
+                // rendering is failed with sample data, then warming up again is useless
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Fail to warm up template (templateKey: " + templateKey + ", error: " + errorWriter + ")");
+                }
+                return;
+            }
+        }
+    }
+
+    private String readSample(String templateKey) {
+        if (sampleDirectory == null) {
+            return EMPTY_SAMPLE;
+        }
+        File sampleFile = new File(sampleDirectory, templateKey + SAMPLE_FILE_EXTENSION);
+        if (!sampleFile.isFile()) {
+            return EMPTY_SAMPLE;
+        }
+
+        try {
+            return Sources.read(sampleFile, encoding);
+        } catch (IOException e) {
+            throw new DustViewException("Fail to read warm-up sample(path: " + sampleFile.getPath() + ")", e);
+        }
+    }
+
+    public File getSampleDirectory() {
+        return sampleDirectory;
+    }
+
+    public void setSampleDirectory(File sampleDirectory) {
+        this.sampleDirectory = sampleDirectory;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+}
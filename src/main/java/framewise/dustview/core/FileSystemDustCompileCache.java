@@ -0,0 +1,88 @@
+package framewise.dustview.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+
+/**
+ * Compile cache that save compiled template to local directory.
+ * Cache is kept after restart, so template is not compiled by Rhino again at first request after deploy.
+ * Entry is not kept in memory(compiled template is kept by engine and view), so edited template does not stay in heap.
+ *
+ * @author chanwook
+ */
+public class FileSystemDustCompileCache implements DustCompileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemDustCompileCache.class);
+
+    private static final String CACHE_FILE_SUFFIX = ".js";
+    private static final String ENCODING = "UTF-8";
+
+    private final File directory;
+
+    public FileSystemDustCompileCache(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String get(String cacheKey) {
+        File cacheFile = new File(directory, cacheKey + CACHE_FILE_SUFFIX);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        String compiledSource;
+        try {
+            compiledSource = Sources.read(cacheFile, ENCODING);
+        } catch (IOException e) {
+            logger.warn("Fail to read compile cache, then compile again!(file: " + cacheFile.getPath() + ")", e);
+            return null;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Load compiled template from cache!(file: " + cacheFile.getPath() + ")");
+        }
+        return compiledSource;
+    }
+
+    @Override
+    public void put(String cacheKey, String compiledSource) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.warn("Could not create compile cache directory!(path: " + directory.getPath() + ")");
+            return;
+        }
+
+        // write to temp file and rename, so other process never read incomplete file
+        File cacheFile = new File(directory, cacheKey + CACHE_FILE_SUFFIX);
+        File tempFile = new File(directory, cacheKey + CACHE_FILE_SUFFIX + "." + Thread.currentThread().getId() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING);
+            writer.write(compiledSource);
+            writer.close();
+            writer = null;
+
+            if (!tempFile.renameTo(cacheFile) && !cacheFile.isFile()) {
+                logger.warn("Could not save compile cache!(file: " + cacheFile.getPath() + ")");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not save compile cache!(file: " + cacheFile.getPath() + ")", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+}
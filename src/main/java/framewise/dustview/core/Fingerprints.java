@@ -0,0 +1,39 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content fingerprint(MD5 hex string) for script, template and JSON source.
+ *
+ * @author chanwook
+ */
+public final class Fingerprints {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Fingerprints() {
+    }
+
+    public static String of(String content) {
+        return of(content.getBytes(UTF_8));
+    }
+
+    public static String of(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+            char[] hex = new char[digest.length * 2];
+            for (int index = 0; index < digest.length; index++) {
+                hex[index * 2] = HEX[(digest[index] >> 4) & 0xF];
+                hex[index * 2 + 1] = HEX[digest[index] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new DustViewException(e);
+        }
+    }
+}
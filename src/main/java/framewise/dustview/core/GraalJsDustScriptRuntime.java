@@ -0,0 +1,192 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link DustScriptRuntime} implementation by GraalJS(GraalVM polyglot API).
+ * Each runtime has own polyglot context, and all runtime share one polyglot engine,
+ * so parsed dust script and JIT compiled code is shared by every runtime(ex. engine in pool).
+ * <p/>
+ * GraalJS(org.graalvm.js:js) must be in classpath. On GraalVM, script is compiled by Graal JIT compiler.
+ * Polyglot context is not allowed concurrent access, so each call is synchronized.
+ *
+ * @author chanwook
+ */
+public class GraalJsDustScriptRuntime implements DustScriptRuntime {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraalJsDustScriptRuntime.class);
+
+    private static final String LANGUAGE_ID = "js";
+
+    private static final String RENDER_SCRIPT =
+            "function dustRender(templateKey, _writer, _error, json) {" +
+                    "return dust.render(templateKey,JSON.parse(json)," +
+                    "function(err, out){" +
+                    "if(out){ _writer.write(out); }" +
+                    "if(err){ _error.write('' + err); }" +
+                    "}" +
+                    ");" +
+                    "}";
+
+    private static volatile Engine sharedEngine;
+
+    // same Source object is required for sharing code between context
+    private static final ConcurrentMap<String, Source> sourceCache = new ConcurrentHashMap<String, Source>();
+
+    private Context context;
+
+    private Value compileFunction;
+    private Value loadFunction;
+    private Value renderFunction;
+    private Value streamFunction;
+    private Value jsonParseFunction;
+
+    @Override
+    public synchronized void initialize(DustTemplateEngine configuration) {
+        close();
+
+        context = Context.newBuilder(LANGUAGE_ID)
+                .engine(getSharedEngine())
+                .allowHostAccess(HostAccess.ALL)
+                .build();
+        try {
+            evaluateFile(configuration, configuration.getDustJsFilePath());
+            if (configuration.getDustJsHelperFilePath().length() > 0) {
+                evaluateFile(configuration, configuration.getDustJsHelperFilePath());
+            }
+
+            evaluate(configuration.getCompileSourceName(), configuration.getCompileScript());
+            evaluate(configuration.getCompileSourceName(), configuration.getLoadScript());
+            evaluate(configuration.getCompileSourceName(), RENDER_SCRIPT);
+            evaluate(configuration.getCompileSourceName(), configuration.getStreamScript());
+            evaluate(configuration.getCompileSourceName(), configuration.getCacheHelperScript());
+            if (configuration.getFragmentCache() != null) {
+                context.getBindings(LANGUAGE_ID).putMember("dustFragmentCache", configuration.getFragmentCache());
+            }
+
+            if (configuration.getDustExtensionFilePath() != null) {
+                evaluateFile(configuration, configuration.getDustExtensionFilePath());
+            }
+
+            Value bindings = context.getBindings(LANGUAGE_ID);
+            compileFunction = bindings.getMember("dustCompile");
+            loadFunction = bindings.getMember("dustLoad");
+            renderFunction = bindings.getMember("dustRender");
+            streamFunction = bindings.getMember("dustStream");
+            jsonParseFunction = context.eval(LANGUAGE_ID, "JSON.parse");
+        } catch (PolyglotException e) {
+            throw new DustViewException("Throwing exception when initialize step for GraalJS runtime!", e);
+        }
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Initialize GraalJS dust runtime! (dust file path: " + configuration.getDustJsFilePath() + ")");
+        }
+    }
+
+    private void evaluateFile(DustTemplateEngine configuration, String filePath) {
+        InputStream input = configuration.getDustJsStream(filePath);
+        try {
+            evaluate(filePath, Sources.read(input, configuration.getEncoding()));
+        } catch (IOException e) {
+            throw new DustViewException("Fail to read dust script(" + filePath + ")", e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                logger.warn("Fail to close dust script(" + filePath + ")", e);
+            }
+        }
+    }
+
+    private void evaluate(String sourceName, String script) {
+        String cacheKey = sourceName + "\n" + script;
+        Source source = sourceCache.get(cacheKey);
+        if (source == null) {
+            source = Source.newBuilder(LANGUAGE_ID, script, sourceName).buildLiteral();
+            Source previous = sourceCache.putIfAbsent(cacheKey, source);
+            if (previous != null) {
+                source = previous;
+            }
+        }
+        context.eval(source);
+    }
+
+    @Override
+    public synchronized String compile(String templateKey, String source) {
+        try {
+            return compileFunction.execute(templateKey, source).asString();
+        } catch (PolyglotException e) {
+            throw new DustViewException("thrown error when compile Dust JS Source", e);
+        }
+    }
+
+    @Override
+    public synchronized void load(String templateKey, String compiledSource) {
+        try {
+            loadFunction.execute(compiledSource);
+        } catch (PolyglotException e) {
+            throw new DustViewException("thrown error when load Dust JS Source", e);
+        }
+    }
+
+    @Override
+    public synchronized void render(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
+        try {
+            renderFunction.execute(templateKey, responseWriter, errorWriter, json);
+        } catch (PolyglotException e) {
+            throw new DustViewException("thrown error when Rendering Dust JS Source", e);
+        }
+    }
+
+    @Override
+    public synchronized void renderStream(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
+        try {
+            streamFunction.execute(templateKey, responseWriter, errorWriter, jsonParseFunction.execute(json));
+        } catch (PolyglotException e) {
+            throw new DustViewException("thrown error when Rendering Dust JS Source", e);
+        }
+    }
+
+    @Override
+    public DustScriptRuntime newInstance() {
+        return new GraalJsDustScriptRuntime();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    /**
+     * @return false if not initialized, or closed
+     */
+    public synchronized boolean isInitialized() {
+        return context != null;
+    }
+
+    private static Engine getSharedEngine() {
+        if (sharedEngine == null) {
+            synchronized (GraalJsDustScriptRuntime.class) {
+                if (sharedEngine == null) {
+                    sharedEngine = Engine.create();
+                }
+            }
+        }
+        return sharedEngine;
+    }
+}
@@ -0,0 +1,260 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lazy {@link Scriptable} adapter of Java model(Map, List, array, bean) for dust rendering.
+ * Model is not converted to JSON. Each property is converted when template access to it.
+ * <p/>
+ * Converting rule is similar to default JSON serialization(Jackson):
+ * Number is converted to JavaScript number, Date is converted to time millis, Enum and Character is converted to String,
+ * and bean is accessed by getter method.
+ *
+ * @author chanwook
+ */
+public abstract class JavaModelScriptable extends ScriptableObject {
+
+    private static final ConcurrentMap<Class<?>, Map<String, Method>> beanPropertyCache =
+            new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+    protected JavaModelScriptable(Scriptable scope) {
+        super(scope, ScriptableObject.getObjectPrototype(scope));
+    }
+
+    /**
+     * Convert Java object to JavaScript value
+     *
+     * @param value
+     * @param scope
+     * @return
+     */
+    public static Object wrap(Object value, Scriptable scope) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Scriptable) {
+            return value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Character || value instanceof Enum) {
+            return value.toString();
+        }
+        if (value instanceof Date) {
+            return (double) ((Date) value).getTime();
+        }
+        if (value instanceof Map) {
+            return new MapObject((Map<?, ?>) value, scope);
+        }
+        if (value instanceof List) {
+            return new ListArray((List<?>) value, scope);
+        }
+        if (value instanceof Collection) {
+            return new ListArray(new ArrayList<Object>((Collection<?>) value), scope);
+        }
+        if (value.getClass().isArray()) {
+            return new ListArray(new ArrayAsList(value), scope);
+        }
+        return new BeanObject(value, scope);
+    }
+
+    @Override
+    public String getClassName() {
+        return "Object";
+    }
+
+    @Override
+    public Object get(String name, Scriptable start) {
+        // converted property is kept in own slot
+        Object value = super.get(name, start);
+        if (value != NOT_FOUND) {
+            return value;
+        }
+
+        if (!hasModelProperty(name)) {
+            return NOT_FOUND;
+        }
+
+        value = wrap(getModelProperty(name), getParentScope());
+        super.put(name, this, value);
+        return value;
+    }
+
+    @Override
+    public boolean has(String name, Scriptable start) {
+        return super.has(name, start) || hasModelProperty(name);
+    }
+
+    @Override
+    public Object[] getIds() {
+        return getModelPropertyNames().toArray();
+    }
+
+    protected abstract boolean hasModelProperty(String name);
+
+    protected abstract Object getModelProperty(String name);
+
+    protected abstract Collection<String> getModelPropertyNames();
+
+    /**
+     * Readable properties(getter method) of bean class. Result is cached per class.
+     *
+     * @param beanClass
+     * @return property name and getter method
+     */
+    public static Map<String, Method> getBeanProperties(Class<?> beanClass) {
+        Map<String, Method> properties = beanPropertyCache.get(beanClass);
+        if (properties != null) {
+            return properties;
+        }
+
+        try {
+            properties = new LinkedHashMap<String, Method>();
+            BeanInfo beanInfo = Introspector.getBeanInfo(beanClass, Object.class);
+            for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+                Method readMethod = descriptor.getReadMethod();
+                if (readMethod != null) {
+                    readMethod.setAccessible(true);
+                    properties.put(descriptor.getName(), readMethod);
+                }
+            }
+            properties = Collections.unmodifiableMap(properties);
+            beanPropertyCache.putIfAbsent(beanClass, properties);
+            return properties;
+        } catch (Exception e) {
+            throw new DustViewException("Fail to introspect model class(" + beanClass.getName() + ")", e);
+        }
+    }
+
+    /**
+     * Adapter of {@link Map}. Key is converted to String.
+     */
+    static class MapObject extends JavaModelScriptable {
+
+        private final Map<?, ?> map;
+
+        MapObject(Map<?, ?> map, Scriptable scope) {
+            super(scope);
+            this.map = map;
+        }
+
+        @Override
+        protected boolean hasModelProperty(String name) {
+            return map.containsKey(name);
+        }
+
+        @Override
+        protected Object getModelProperty(String name) {
+            return map.get(name);
+        }
+
+        @Override
+        protected Collection<String> getModelPropertyNames() {
+            List<String> names = new ArrayList<String>(map.size());
+            for (Object key : map.keySet()) {
+                names.add(String.valueOf(key));
+            }
+            return names;
+        }
+    }
+
+    /**
+     * Adapter of bean. Property is read by getter method.
+     */
+    static class BeanObject extends JavaModelScriptable {
+
+        private final Object bean;
+        private final Map<String, Method> properties;
+
+        BeanObject(Object bean, Scriptable scope) {
+            super(scope);
+            this.bean = bean;
+            this.properties = getBeanProperties(bean.getClass());
+        }
+
+        @Override
+        protected boolean hasModelProperty(String name) {
+            return properties.containsKey(name);
+        }
+
+        @Override
+        protected Object getModelProperty(String name) {
+            try {
+                return properties.get(name).invoke(bean);
+            } catch (Exception e) {
+                throw new DustViewException("Fail to read model property(" + bean.getClass().getName() + "." + name + ")", e);
+            }
+        }
+
+        @Override
+        protected Collection<String> getModelPropertyNames() {
+            return properties.keySet();
+        }
+    }
+
+    /**
+     * Adapter of {@link List}. This is JavaScript Array, and element is converted when accessing by index.
+     */
+    static class ListArray extends NativeArray {
+
+        private final List<?> list;
+
+        ListArray(List<?> list, Scriptable scope) {
+            super(list.size());
+            this.list = list;
+            setParentScope(scope);
+            setPrototype(ScriptableObject.getClassPrototype(scope, "Array"));
+        }
+
+        @Override
+        public Object get(int index, Scriptable start) {
+            if (index < 0 || index >= list.size()) {
+                return super.get(index, start);
+            }
+
+            Object value = super.get(index, start);
+            if (value == NOT_FOUND) {
+                value = wrap(list.get(index), getParentScope());
+                super.put(index, this, value);
+            }
+            return value;
+        }
+
+        @Override
+        public boolean has(int index, Scriptable start) {
+            return (index >= 0 && index < list.size()) || super.has(index, start);
+        }
+    }
+
+    /**
+     * Read-only list view of Java array
+     */
+    static class ArrayAsList extends AbstractList<Object> {
+
+        private final Object array;
+
+        ArrayAsList(Object array) {
+            this.array = array;
+        }
+
+        @Override
+        public Object get(int index) {
+            return Array.get(array, index);
+        }
+
+        @Override
+        public int size() {
+            return Array.getLength(array);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe dust engine for concurrent rendering.
+ * This class keeps N independently initialized {@link DustTemplateEngine} (each engine has own Rhino scope),
+ * and checkout one engine from pool per compile/render call.
+ * Loaded template is applied to every engine in pool, so any engine can render any template.
+ * <p/>
+ * If shareCoreScope is true, dust script is evaluated once into {@link DustSharedScope},
+ * and engines in pool only have lightweight child scope.
+ *
+ * @author chanwook
+ */
+public class PooledDustTemplateEngine extends DustTemplateEngine {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final long DEFAULT_CHECKOUT_TIMEOUT_MILLIS = 30000;
+
+    private final int poolSize;
+    private long checkoutTimeoutMillis = DEFAULT_CHECKOUT_TIMEOUT_MILLIS;
+    private boolean shareCoreScope = false;
+
+    private volatile List<DustTemplateEngine> engines = Collections.emptyList();
+    private final BlockingQueue<DustTemplateEngine> idleEngines;
+
+    private final CompiledTemplateRegistry loadedTemplateRegistry = new CompiledTemplateRegistry();
+    private final TemplateDependencyGraph loadedDependencyGraph = new TemplateDependencyGraph();
+
+    /**
+     * Create engine pool(pool size is count of available processors) with initialization
+     */
+    public PooledDustTemplateEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create engine pool with initialization
+     *
+     * @param poolSize
+     */
+    public PooledDustTemplateEngine(int poolSize) {
+        this(poolSize, true);
+    }
+
+    /**
+     * Create engine pool with initialization if needs
+     *
+     * @param poolSize
+     * @param isInitialize
+     */
+    public PooledDustTemplateEngine(int poolSize, boolean isInitialize) {
+        super(false);
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be greater than 0! (poolSize: " + poolSize + ")");
+        }
+        this.poolSize = poolSize;
+        this.idleEngines = new ArrayBlockingQueue<DustTemplateEngine>(poolSize);
+
+        if (isInitialize) {
+            initializeContext();
+        }
+    }
+
+    /**
+     * Initialize every engine in pool.
+     * If pool is already initialized, re-initialize each engine with current configuration. (same as single engine)
+     */
+    @Override
+    public synchronized void initializeContext() {
+        if (shareCoreScope && getScriptRuntime() == null) {
+            // script configuration may be changed, so create new shared scope
+            setSharedScope(new DustSharedScope(this));
+        }
+
+        if (engines.isEmpty()) {
+            List<DustTemplateEngine> created = new ArrayList<DustTemplateEngine>(poolSize);
+            for (int index = 0; index < poolSize; index++) {
+                DustTemplateEngine engine = createEngine();
+                created.add(engine);
+                idleEngines.add(engine);
+            }
+            engines = Collections.unmodifiableList(created);
+
+            if (logger.isInfoEnabled()) {
+                logger.info("Initialize dust engine pool! (pool size: " + poolSize + ")");
+            }
+        } else {
+            for (DustTemplateEngine engine : engines) {
+                synchronized (engine) {
+                    copyConfigurationTo(engine);
+                    engine.initializeContext();
+
+                    // new child scope does not have loaded template
+                    for (String templateKey : loadedTemplateRegistry.getTemplateKeys()) {
+                        engine.load(templateKey, loadedTemplateRegistry.get(templateKey).getCompiledSource());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Create one engine of pool. Engine is configured by this pool's configuration.
+     *
+     * @return
+     */
+    protected DustTemplateEngine createEngine() {
+        DustTemplateEngine engine = new DustTemplateEngine(false);
+        copyConfigurationTo(engine);
+        engine.initializeContext();
+        return engine;
+    }
+
+    @Override
+    public void loadScriptFile(String filePath) {
+        for (DustTemplateEngine engine : getEngines()) {
+            synchronized (engine) {
+                engine.loadScriptFile(filePath);
+            }
+        }
+    }
+
+    @Override
+    public String compile(String templateKey, String source) {
+        DustTemplateEngine engine = checkout();
+        try {
+            synchronized (engine) {
+                return engine.compile(templateKey, source);
+            }
+        } finally {
+            release(engine);
+        }
+    }
+
+    /**
+     * Load compiled source to every engine in pool.
+     * Checking, loading and registering are serialized, so registry always has source loaded to engines last.
+     *
+     * @param templateKey
+     * @param compiledSource load target HTML Markup
+     * @return
+     */
+    @Override
+    public boolean load(String templateKey, String compiledSource) {
+        if (isLoad(templateKey, compiledSource)) {
+            return false;
+        }
+
+        synchronized (this) {
+            // loaded by other thread while waiting
+            if (isLoad(templateKey, compiledSource)) {
+                return false;
+            }
+
+            for (DustTemplateEngine engine : getEngines()) {
+                synchronized (engine) {
+                    engine.load(templateKey, compiledSource);
+                }
+            }
+            registerLoadedTemplate(templateKey, compiledSource);
+            return true;
+        }
+    }
+
+    @Override
+    protected boolean isLoad(String templateKey, String compiledSource) {
+        return loadedTemplateRegistry.isRegistered(templateKey, compiledSource);
+    }
+
+    @Override
+    public long getTemplateVersion(String templateKey) {
+        return loadedTemplateRegistry.getVersion(templateKey);
+    }
+
+    @Override
+    public Set<String> getLoadedTemplateKeys() {
+        return loadedTemplateRegistry.getTemplateKeys();
+    }
+
+    @Override
+    protected CompiledTemplateRegistry getCompiledTemplateRegistry() {
+        return loadedTemplateRegistry;
+    }
+
+    @Override
+    protected TemplateDependencyGraph getDependencyGraph() {
+        return loadedDependencyGraph;
+    }
+
+    @Override
+    protected void doRender(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
+        // tree renderer does not use engine, so engine is not checked out
+        if (renderTreeJson(responseWriter, templateKey, json)) {
+            return;
+        }
+
+        DustTemplateEngine engine = checkout();
+        try {
+            synchronized (engine) {
+                engine.render(responseWriter, errorWriter, templateKey, json);
+            }
+        } finally {
+            release(engine);
+        }
+    }
+
+    @Override
+    public void renderModel(Writer responseWriter, StringWriter errorWriter, String templateKey, Object model) {
+        if (renderTree(responseWriter, templateKey, model)) {
+            return;
+        }
+
+        DustTemplateEngine engine = checkout();
+        try {
+            synchronized (engine) {
+                engine.renderModel(responseWriter, errorWriter, templateKey, model);
+            }
+        } finally {
+            release(engine);
+        }
+    }
+
+    @Override
+    public void renderStream(Writer responseWriter, StringWriter errorWriter, String templateKey, String json) {
+        DustTemplateEngine engine = checkout();
+        try {
+            synchronized (engine) {
+                engine.renderStream(responseWriter, errorWriter, templateKey, json);
+            }
+        } finally {
+            release(engine);
+        }
+    }
+
+    @Override
+    public void renderModelStream(Writer responseWriter, StringWriter errorWriter, String templateKey, Object model) {
+        DustTemplateEngine engine = checkout();
+        try {
+            synchronized (engine) {
+                engine.renderModelStream(responseWriter, errorWriter, templateKey, model);
+            }
+        } finally {
+            release(engine);
+        }
+    }
+
+    /**
+     * Close every engine in pool. Engine in use is closed after rendering.
+     */
+    @Override
+    public void close() {
+        for (DustTemplateEngine engine : engines) {
+            synchronized (engine) {
+                engine.close();
+            }
+        }
+        super.close();
+    }
+
+    @Override
+    public void releaseThreadContext() {
+        for (DustTemplateEngine engine : engines) {
+            engine.releaseThreadContext();
+        }
+    }
+
+    /**
+     * Borrow idle engine from pool. Caller must return engine by {@link #release(DustTemplateEngine)}.
+     *
+     * @return
+     */
+    protected DustTemplateEngine checkout() {
+        if (engines.isEmpty()) {
+            throw new DustViewException("Dust engine pool is not initialized! Must call initializeContext() before running dust");
+        }
+
+        try {
+            DustTemplateEngine engine = idleEngines.poll(checkoutTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (engine == null) {
+                throw new DustViewException("Timeout to checkout dust engine from pool! (pool size: " + poolSize +
+                        ", timeout: " + checkoutTimeoutMillis + "ms)");
+            }
+            return engine;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DustViewException("Interrupted while checkout dust engine from pool!", e);
+        }
+    }
+
+    protected void release(DustTemplateEngine engine) {
+        idleEngines.offer(engine);
+    }
+
+    protected List<DustTemplateEngine> getEngines() {
+        if (engines.isEmpty()) {
+            throw new DustViewException("Dust engine pool is not initialized! Must call initializeContext() before running dust");
+        }
+        return engines;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getIdleCount() {
+        return idleEngines.size();
+    }
+
+    public boolean isShareCoreScope() {
+        return shareCoreScope;
+    }
+
+    /**
+     * Using one shared dust scope for every engine in pool. Must call {@link #initializeContext()} after setting.
+     *
+     * @param shareCoreScope
+     */
+    public void setShareCoreScope(boolean shareCoreScope) {
+        this.shareCoreScope = shareCoreScope;
+    }
+
+    public long getCheckoutTimeoutMillis() {
+        return checkoutTimeoutMillis;
+    }
+
+    public void setCheckoutTimeoutMillis(long checkoutTimeoutMillis) {
+        this.checkoutTimeoutMillis = checkoutTimeoutMillis;
+    }
+}
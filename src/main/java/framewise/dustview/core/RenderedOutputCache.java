@@ -0,0 +1,241 @@
+package framewise.dustview.core;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of rendered markup. Entry is keyed by template key, version of template(including its partials)
+ * and fingerprint of JSON data, so changed template or data never hits old markup.
+ * <p/>
+ * Entry is evicted by approximate LRU order(clock) when number of entries or total size of markup exceeds limit,
+ * and is expired after TTL. This class is thread-safe, and reading does not take lock(only adding and evicting).
+ * <p/>
+ * This is used by fragment cache helper({@literal @}cache) too. In that case, entry is keyed by template name
+ * and key of helper, and entries of template are removed when template is loaded again.
+ *
+ * @author chanwook
+ */
+public class RenderedOutputCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+    public static final long DEFAULT_TTL_MILLIS = 60 * 1000;
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long ttlMillis = DEFAULT_TTL_MILLIS;
+
+    // reading is not locked, and eviction order is kept by clock(second chance) of entries
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ArrayDeque<Entry> clock = new ArrayDeque<Entry>();
+    private long totalBytes = 0;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public RenderedOutputCache() {
+    }
+
+    public RenderedOutputCache(int maxEntries, long maxBytes, long ttlMillis) {
+        setMaxEntries(maxEntries);
+        setMaxBytes(maxBytes);
+        setTtlMillis(ttlMillis);
+    }
+
+    /**
+     * @param cacheKey key of rendering result(template key, version and fingerprint of JSON)
+     * @return cached markup, or null if not cached
+     */
+    public String get(String cacheKey) {
+        Entry entry = entries.get(cacheKey);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            synchronized (this) {
+                if (entries.get(cacheKey) == entry) {
+                    removeEntry(cacheKey);
+                }
+            }
+            entry = null;
+        }
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hitCount.incrementAndGet();
+        return entry.markup;
+    }
+
+    /**
+     * Add rendered markup. Markup bigger than memory limit is not cached.
+     *
+     * @param cacheKey
+     * @param markup
+     */
+    public void put(String cacheKey, String markup) {
+        put(cacheKey, markup, ttlMillis);
+    }
+
+    /**
+     * Add rendered markup with own TTL
+     *
+     * @param cacheKey
+     * @param markup
+     * @param ttlMillis
+     */
+    public void put(String cacheKey, String markup, long ttlMillis) {
+        long bytes = sizeOf(markup);
+        if (bytes > maxBytes) {
+            return;
+        }
+
+        Entry entry = new Entry(cacheKey, markup, bytes, System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            removeEntry(cacheKey);
+            entries.put(cacheKey, entry);
+            clock.add(entry);
+            totalBytes += bytes;
+            evict(entry);
+            if (clock.size() > entries.size() * 2 + 16) {
+                purgeRemoved();
+            }
+        }
+    }
+
+    /**
+     * @param prefix
+     * @return count of removed entry
+     */
+    public synchronized int removeByPrefix(String prefix) {
+        int count = 0;
+        for (String cacheKey : entries.keySet()) {
+            if (cacheKey.startsWith(prefix)) {
+                removeEntry(cacheKey);
+                count++;
+            }
+        }
+        purgeRemoved();
+        return count;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        clock.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Entry read since last sweep is given second chance, so entry not read recently is evicted first.
+     * Added entry is evicted only if it is the last one.
+     *
+     * @param added entry added by caller, or null
+     */
+    private void evict(Entry added) {
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && !clock.isEmpty()) {
+            Entry entry = clock.poll();
+            if (entry.removed) {
+                continue;
+            }
+            if (entry.referenced || (entry == added && !clock.isEmpty())) {
+                entry.referenced = false;
+                clock.add(entry);
+                continue;
+            }
+            removeEntry(entry.cacheKey);
+        }
+    }
+
+    private void removeEntry(String cacheKey) {
+        Entry removed = entries.remove(cacheKey);
+        if (removed != null) {
+            removed.removed = true;
+            totalBytes -= removed.bytes;
+        }
+    }
+
+    private void purgeRemoved() {
+        Iterator<Entry> iterator = clock.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().removed) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private long sizeOf(String markup) {
+        // char is 2 byte
+        return markup.length() * 2L;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        evict(null);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param maxBytes memory limit of cached markup (estimated by 2 byte per char)
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict(null);
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    private static class Entry {
+
+        private final String cacheKey;
+        private final String markup;
+        private final long bytes;
+        private final long expireTime;
+        // set by reading without lock, and cleared by eviction
+        private volatile boolean referenced;
+        // guarded by cache
+        private boolean removed;
+
+        Entry(String cacheKey, String markup, long bytes, long expireTime) {
+            this.cacheKey = cacheKey;
+            this.markup = markup;
+            this.bytes = bytes;
+            this.expireTime = expireTime;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expireTime;
+        }
+    }
+}
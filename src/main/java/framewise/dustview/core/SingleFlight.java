@@ -0,0 +1,66 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesce concurrent execution with same key. First caller executes task, and other callers with same key
+ * wait for it and share its result(or exception). Caller with other key is not blocked.
+ * <p/>
+ * Result is not kept after execution, so next call executes task again.
+ *
+ * @author chanwook
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentMap<String, FutureTask<V>> inFlight = new ConcurrentHashMap<String, FutureTask<V>>();
+
+    /**
+     * @param key
+     * @param task
+     * @return result of task executed by this caller or by concurrent caller with same key
+     */
+    public V execute(String key, Callable<V> task) {
+        FutureTask<V> future = new FutureTask<V>(task);
+        FutureTask<V> running = inFlight.putIfAbsent(key, future);
+        if (running == null) {
+            running = future;
+            try {
+                future.run();
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+        return getResult(key, running);
+    }
+
+    private V getResult(String key, FutureTask<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DustViewException("Interrupted while waiting for execution(key: " + key + ")", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DustViewException((Exception) cause);
+        }
+    }
+
+    /**
+     * @return number of executing key
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,51 @@
+package framewise.dustview.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Read script, template and sample source to String.
+ * Core package does not depend on Spring, so this is used instead of FileCopyUtils/StreamUtils.
+ *
+ * @author chanwook
+ */
+public final class Sources {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private Sources() {
+    }
+
+    /**
+     * Read all of reader. Reader is not closed.
+     */
+    public static String read(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Read all of stream. Stream is not closed.
+     */
+    public static String read(InputStream input, String encoding) throws IOException {
+        return read(new InputStreamReader(input, encoding));
+    }
+
+    public static String read(File file, String encoding) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return read(input, encoding);
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package framewise.dustview.core;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partial dependency graph of loaded template. Partial reference is extracted from compiled source,
+ * so precompiled template and template compiled by other runtime is supported too.
+ * <p/>
+ * Only partial with static name(ex. {&gt;header/}) is tracked. Partial name decided at rendering time
+ * (ex. {&gt;"header_{type}"/}) is not known before rendering.
+ * <p/>
+ * Reverse dependency(template that references partial) is tracked too. When partial is changed,
+ * every template that depends on it is marked with version of changed partial.
+ *
+ * @author chanwook
+ */
+public class TemplateDependencyGraph {
+
+    // dust compiles {>name/} to .partial("name",ctx,...) (name is escaped by JSON.stringify)
+    private static final Pattern PARTIAL_PATTERN = Pattern.compile("\\.partial\\(\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private final ConcurrentMap<String, Set<String>> partials = new ConcurrentHashMap<String, Set<String>>();
+    // partial -> template referencing partial directly
+    private final ConcurrentMap<String, Set<String>> dependents = new ConcurrentHashMap<String, Set<String>>();
+    // template -> latest version of changed partial
+    private final ConcurrentMap<String, Long> dependencyVersions = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Extract name of partial template referenced by compiled template.
+     *
+     * @param compiledSource
+     * @return
+     */
+    public static Set<String> extractPartials(String compiledSource) {
+        Set<String> names = new LinkedHashSet<String>();
+        Matcher matcher = PARTIAL_PATTERN.matcher(compiledSource);
+        while (matcher.find()) {
+            names.add(unescape(matcher.group(1)));
+        }
+        return names;
+    }
+
+    private static String unescape(String escaped) {
+        if (escaped.indexOf('\\') < 0) {
+            return escaped;
+        }
+
+        StringBuilder builder = new StringBuilder(escaped.length());
+        for (int index = 0; index < escaped.length(); index++) {
+            char c = escaped.charAt(index);
+            if (c != '\\' || index + 1 >= escaped.length()) {
+                builder.append(c);
+                continue;
+            }
+
+            char next = escaped.charAt(++index);
+            switch (next) {
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'n': builder.append('\n'); break;
+                case 'r': builder.append('\r'); break;
+                case 't': builder.append('\t'); break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(escaped.substring(index + 1, index + 5), 16));
+                    index += 4;
+                    break;
+                default: builder.append(next);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Register partial reference of loaded template. Previous reference of template is replaced.
+     *
+     * @param templateKey
+     * @param compiledSource
+     */
+    public synchronized void register(String templateKey, String compiledSource) {
+        Set<String> previous = partials.put(templateKey, Collections.unmodifiableSet(extractPartials(compiledSource)));
+        removeDependent(templateKey, previous);
+        for (String partial : partials.get(templateKey)) {
+            Set<String> keys = dependents.get(partial);
+            if (keys == null) {
+                keys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                dependents.put(partial, keys);
+            }
+            keys.add(templateKey);
+        }
+    }
+
+    public synchronized void remove(String templateKey) {
+        removeDependent(templateKey, partials.remove(templateKey));
+        dependencyVersions.remove(templateKey);
+    }
+
+    private void removeDependent(String templateKey, Set<String> previousPartials) {
+        if (previousPartials == null) {
+            return;
+        }
+        for (String partial : previousPartials) {
+            Set<String> keys = dependents.get(partial);
+            if (keys != null) {
+                keys.remove(templateKey);
+                if (keys.isEmpty()) {
+                    dependents.remove(partial);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        partials.clear();
+        dependents.clear();
+        dependencyVersions.clear();
+    }
+
+    /**
+     * @param templateKey
+     * @return partial referenced by template directly
+     */
+    public Set<String> getPartials(String templateKey) {
+        Set<String> names = partials.get(templateKey);
+        return names == null ? Collections.<String>emptySet() : names;
+    }
+
+    /**
+     * @param templateKey
+     * @return every partial referenced by template directly or through other partial
+     */
+    public Set<String> getTransitivePartials(String templateKey) {
+        Set<String> visited = new LinkedHashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>(getPartials(templateKey));
+        while (!queue.isEmpty()) {
+            String partial = queue.poll();
+            if (!partial.equals(templateKey) && visited.add(partial)) {
+                queue.addAll(getPartials(partial));
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @param templateKey
+     * @return template referencing partial directly
+     */
+    public Set<String> getDependents(String templateKey) {
+        Set<String> keys = dependents.get(templateKey);
+        return keys == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * @param templateKey
+     * @return every template referencing partial directly or through other partial
+     */
+    public Set<String> getTransitiveDependents(String templateKey) {
+        Set<String> visited = new LinkedHashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>(getDependents(templateKey));
+        while (!queue.isEmpty()) {
+            String dependent = queue.poll();
+            if (!dependent.equals(templateKey) && visited.add(dependent)) {
+                queue.addAll(getDependents(dependent));
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Mark every template depending on changed partial. Template itself and other template is not touched.
+     *
+     * @param templateKey key of changed partial
+     * @param version     new version of partial
+     * @return marked template
+     */
+    public synchronized Set<String> markDependents(String templateKey, long version) {
+        Set<String> marked = getTransitiveDependents(templateKey);
+        for (String dependent : marked) {
+            Long previous = dependencyVersions.get(dependent);
+            if (previous == null || previous < version) {
+                dependencyVersions.put(dependent, version);
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * @param templateKey
+     * @return latest version of changed partial that template depends on, or -1 if partial is not changed
+     */
+    public long getDependencyVersion(String templateKey) {
+        Long version = dependencyVersions.get(templateKey);
+        return version == null ? CompiledTemplateRegistry.NOT_REGISTERED_VERSION : version;
+    }
+}
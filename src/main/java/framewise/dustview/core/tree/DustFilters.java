@@ -0,0 +1,226 @@
+package framewise.dustview.core.tree;
+
+import framewise.dustview.core.JavaModelScriptable;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Java implementation of dust.js built-in filter. (h, j, u, uc, js)
+ * Filter is applied same as dust.filter(): filter chain is applied in order, and auto filter(h) is applied last
+ * unless 's' filter is used.
+ *
+ * @author chanwook
+ */
+final class DustFilters {
+
+    private static final Set<String> SUPPORTED = new HashSet<String>(Arrays.asList("s", "h", "j", "u", "uc", "js"));
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final String URI_COMPONENT_UNESCAPED = "-_.!~*'()";
+    private static final String URI_RESERVED = ";/?:@&=+$,#";
+
+    private DustFilters() {
+    }
+
+    static boolean isSupported(String filter) {
+        return SUPPORTED.contains(filter);
+    }
+
+    static Object filter(Object value, String auto, String[] filters) {
+        for (String name : filters) {
+            if ("s".equals(name)) {
+                auto = null;
+            } else {
+                value = apply(name, value);
+            }
+        }
+        if (auto != null) {
+            value = apply(auto, value);
+        }
+        return value;
+    }
+
+    private static Object apply(String name, Object value) {
+        if ("h".equals(name)) {
+            return value instanceof String ? escapeHtml((String) value) : value;
+        }
+        if ("j".equals(name)) {
+            return value instanceof String ? escapeJs((String) value) : value;
+        }
+        if ("u".equals(name)) {
+            return encodeUri(JsValues.toJsString(value), URI_COMPONENT_UNESCAPED + URI_RESERVED);
+        }
+        if ("uc".equals(name)) {
+            return encodeUri(JsValues.toJsString(value), URI_COMPONENT_UNESCAPED);
+        }
+        if ("js".equals(name)) {
+            StringBuilder builder = new StringBuilder();
+            if (!stringify(value, builder)) {
+                // JSON.stringify(undefined) is undefined
+                return JsValues.UNDEFINED;
+            }
+            return builder.toString();
+        }
+        throw new UnsupportedTemplateException("Filter is not supported: " + name);
+    }
+
+    static String escapeHtml(String value) {
+        StringBuilder builder = null;
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            String replace;
+            switch (c) {
+                case '&': replace = "&amp;"; break;
+                case '<': replace = "&lt;"; break;
+                case '>': replace = "&gt;"; break;
+                case '"': replace = "&quot;"; break;
+                case '\'': replace = "&#39;"; break;
+                default: replace = null;
+            }
+            if (replace != null) {
+                if (builder == null) {
+                    builder = new StringBuilder(value.length() + 16).append(value, 0, index);
+                }
+                builder.append(replace);
+            } else if (builder != null) {
+                builder.append(c);
+            }
+        }
+        return builder == null ? value : builder.toString();
+    }
+
+    static String escapeJs(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            switch (c) {
+                case '\\': builder.append("\\\\"); break;
+                case '/': builder.append("\\/"); break;
+                case '"': builder.append("\\\""); break;
+                case '\'': builder.append("\\'"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\u2028': builder.append("\\u2028"); break;
+                case '\u2029': builder.append("\\u2029"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\f': builder.append("\\f"); break;
+                case '\t': builder.append("\\t"); break;
+                default: builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * encodeURI and encodeURIComponent of JavaScript
+     */
+    static String encodeUri(String value, String unescaped) {
+        StringBuilder builder = new StringBuilder(value.length() + 16);
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || unescaped.indexOf(c) >= 0) {
+                builder.append(c);
+                continue;
+            }
+
+            int length = 1;
+            if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+                length = 2;
+            } else if (Character.isSurrogate(c)) {
+                // URIError in JavaScript
+                throw new UnsupportedTemplateException("Malformed URI sequence");
+            }
+            for (byte b : value.substring(index, index + length).getBytes(UTF_8)) {
+                builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            index += length - 1;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * JSON.stringify of JavaScript
+     *
+     * @return false if value is not serializable(undefined, function)
+     */
+    static boolean stringify(Object value, StringBuilder builder) {
+        value = JsValues.normalize(value);
+        if (value == JsValues.UNDEFINED || value instanceof TreeNodes.BodyValue) {
+            return false;
+        }
+        if (value == null || value instanceof Boolean) {
+            builder.append(value);
+        } else if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            builder.append(Double.isNaN(number) || Double.isInfinite(number) ? "null" : JsValues.toJsString(value));
+        } else if (value instanceof String) {
+            quote((String) value, builder);
+        } else if (value instanceof List) {
+            builder.append('[');
+            List<?> list = (List<?>) value;
+            for (int index = 0; index < list.size(); index++) {
+                if (index > 0) {
+                    builder.append(',');
+                }
+                if (!stringify(list.get(index), builder)) {
+                    builder.append("null");
+                }
+            }
+            builder.append(']');
+        } else if (value instanceof Map) {
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                first = stringifyProperty(String.valueOf(entry.getKey()), entry.getValue(), first, builder);
+            }
+            builder.append('}');
+        } else {
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Method> property : JavaModelScriptable.getBeanProperties(value.getClass()).entrySet()) {
+                first = stringifyProperty(property.getKey(), JsValues.getProperty(value, property.getKey()), first, builder);
+            }
+            builder.append('}');
+        }
+        return true;
+    }
+
+    private static boolean stringifyProperty(String name, Object value, boolean first, StringBuilder builder) {
+        int mark = builder.length();
+        if (!first) {
+            builder.append(',');
+        }
+        quote(name, builder);
+        builder.append(':');
+        if (!stringify(value, builder)) {
+            builder.setLength(mark);
+            return first;
+        }
+        return false;
+    }
+
+    private static void quote(String value, StringBuilder builder) {
+        builder.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            char c = value.charAt(index);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\b': builder.append("\\b"); break;
+                case '\f': builder.append("\\f"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+}
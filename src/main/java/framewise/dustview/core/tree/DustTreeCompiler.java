@@ -0,0 +1,264 @@
+package framewise.dustview.core.tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compile dust parse tree(result of dust.filterNode(dust.parse(source))) to render tree.
+ * This follows dust.js compiler(compiler.nodes), so rendering result of tree is same as compiled JavaScript.
+ * If template uses node that is not supported(helper, custom filter), {@link UnsupportedTemplateException} is thrown.
+ *
+ * @author chanwook
+ */
+final class DustTreeCompiler {
+
+    private static final String DEFAULT_AUTO_FILTER = "h";
+
+    private static final Map<String, String> SPECIAL_CHARS = new HashMap<String, String>();
+
+    static {
+        SPECIAL_CHARS.put("s", " ");
+        SPECIAL_CHARS.put("n", "\n");
+        SPECIAL_CHARS.put("r", "\r");
+        SPECIAL_CHARS.put("lb", "{");
+        SPECIAL_CHARS.put("rb", "}");
+    }
+
+    private final TreeTemplate template;
+    private final Map<String, TreeNodes.Body> blocks = new LinkedHashMap<String, TreeNodes.Body>();
+
+    private DustTreeCompiler(String templateName) {
+        this.template = new TreeTemplate(templateName);
+    }
+
+    /**
+     * @param templateName name of template
+     * @param ast          dust parse tree (nested list)
+     * @return
+     */
+    static TreeTemplate compile(String templateName, List<?> ast) {
+        DustTreeCompiler compiler = new DustTreeCompiler(templateName);
+        compiler.template.setBody(compiler.compileBody(ast, DEFAULT_AUTO_FILTER));
+        compiler.template.setBlocks(compiler.blocks);
+        return compiler.template;
+    }
+
+    private TreeNodes.Body compileBody(List<?> node, String auto) {
+        return new TreeNodes.Body(template, compileParts(node, auto));
+    }
+
+    private List<TreeNodes.Node> compileParts(List<?> body, String auto) {
+        List<TreeNodes.Node> parts = new ArrayList<TreeNodes.Node>(body.size());
+        for (int index = 1; index < body.size(); index++) {
+            TreeNodes.Node part = compileNode(list(body.get(index)), auto);
+            if (part != null) {
+                parts.add(part);
+            }
+        }
+        return parts;
+    }
+
+    private TreeNodes.Node compileNode(List<?> node, String auto) {
+        String type = string(node.get(0));
+        if ("buffer".equals(type) || "raw".equals(type)) {
+            return new TreeNodes.Buffer(string(node.get(1)));
+        }
+        if ("format".equals(type)) {
+            return new TreeNodes.Buffer(string(node.get(1)) + string(node.get(2)));
+        }
+        if ("special".equals(type)) {
+            return new TreeNodes.Buffer(SPECIAL_CHARS.get(string(node.get(1))));
+        }
+        if ("comment".equals(type)) {
+            return null;
+        }
+        if ("reference".equals(type)) {
+            return new TreeNodes.Reference(compileExpression(list(node.get(1)), auto), auto, compileFilters(list(node.get(2))));
+        }
+        if ("#".equals(type)) {
+            return compileSection(TreeNodes.SectionType.SECTION, node, auto);
+        }
+        if ("?".equals(type)) {
+            return compileSection(TreeNodes.SectionType.EXISTS, node, auto);
+        }
+        if ("^".equals(type)) {
+            return compileSection(TreeNodes.SectionType.NOT_EXISTS, node, auto);
+        }
+        if ("<".equals(type)) {
+            compileInlinePartial(node, auto);
+            return null;
+        }
+        if ("+".equals(type)) {
+            Map<String, List<?>> bodies = bodies(node);
+            List<?> block = bodies.get("block");
+            return new TreeNodes.Block(keyName(list(node.get(1))), compileContext(list(node.get(2)), auto),
+                    block == null ? null : compileBody(block, auto));
+        }
+        if ("%".equals(type)) {
+            return compilePragma(node);
+        }
+        if ("partial".equals(type)) {
+            List<?> name = list(node.get(1));
+            TreeNodes.Body nameBody = null;
+            String literalName = null;
+            if ("literal".equals(string(name.get(0)))) {
+                literalName = string(name.get(1));
+            } else {
+                nameBody = compileBody(name, auto);
+            }
+            return new TreeNodes.Partial(literalName, nameBody, compileContext(list(node.get(2)), auto),
+                    compileParams(list(node.get(3)), auto));
+        }
+        throw new UnsupportedTemplateException("Dust node is not supported: " + type);
+    }
+
+    private TreeNodes.Section compileSection(TreeNodes.SectionType sectionType, List<?> node, String auto) {
+        Map<String, List<?>> bodies = bodies(node);
+        List<?> block = bodies.get("block");
+        List<?> elseBlock = bodies.get("else");
+        return new TreeNodes.Section(sectionType,
+                compileExpression(list(node.get(1)), auto),
+                compileContext(list(node.get(2)), auto),
+                compileParams(list(node.get(3)), auto),
+                block == null ? null : compileBody(block, auto),
+                elseBlock == null ? null : compileBody(elseBlock, auto));
+    }
+
+    /**
+     * Inline partial(&lt;) is registered to blocks of template. (first block body only)
+     */
+    private void compileInlinePartial(List<?> node, String auto) {
+        List<?> bodies = list(node.get(4));
+        for (int index = 1; index < bodies.size(); index++) {
+            List<?> param = list(bodies.get(index));
+            if ("block".equals(string(list(param.get(1)).get(1)))) {
+                String name = keyName(list(node.get(1)));
+                blocks.put(name, compileBody(list(param.get(2)), auto));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pragma. dust.js supports 'esc' pragma only, that changes auto filter of body.
+     */
+    private TreeNodes.Node compilePragma(List<?> node) {
+        if (!"esc".equals(string(list(node.get(1)).get(1)))) {
+            return null;
+        }
+
+        List<?> context = list(node.get(2));
+        String auto = DEFAULT_AUTO_FILTER;
+        if (context.size() > 1) {
+            auto = keyName(list(context.get(1)));
+            if ("s".equals(auto)) {
+                auto = null;
+            } else if (!DustFilters.isSupported(auto)) {
+                throw new UnsupportedTemplateException("Filter is not supported: " + auto);
+            }
+        }
+
+        List<?> block = bodies(node).get("block");
+        if (block == null) {
+            throw new UnsupportedTemplateException("Pragma without body is not supported");
+        }
+        return new TreeNodes.Parts(compileParts(block, auto));
+    }
+
+    private TreeNodes.Expression compileExpression(List<?> node, String auto) {
+        String type = string(node.get(0));
+        if ("key".equals(type)) {
+            return new TreeNodes.Path(false, new String[]{string(node.get(1))}, null);
+        }
+        if ("path".equals(type)) {
+            List<?> keys = list(node.get(2));
+            String[] names = new String[keys.size()];
+            TreeNodes.Expression[] dynamicKeys = null;
+            for (int index = 0; index < keys.size(); index++) {
+                Object key = keys.get(index);
+                if (key instanceof List) {
+                    if (dynamicKeys == null) {
+                        dynamicKeys = new TreeNodes.Expression[keys.size()];
+                    }
+                    dynamicKeys[index] = compileExpression((List<?>) key, auto);
+                } else {
+                    names[index] = string(key);
+                }
+            }
+            return new TreeNodes.Path(Boolean.TRUE.equals(node.get(1)), names, dynamicKeys);
+        }
+        if ("literal".equals(type)) {
+            Object value = node.get(1);
+            return new TreeNodes.Literal(value instanceof CharSequence ? value.toString() : value);
+        }
+        if ("body".equals(type)) {
+            return new TreeNodes.BodyExpression(compileBody(node, auto));
+        }
+        throw new UnsupportedTemplateException("Dust expression is not supported: " + type);
+    }
+
+    private TreeNodes.Expression compileContext(List<?> node, String auto) {
+        if (node.size() > 1) {
+            return compileExpression(list(node.get(1)), auto);
+        }
+        return null;
+    }
+
+    private TreeNodes.Params compileParams(List<?> node, String auto) {
+        if (node.size() <= 1) {
+            return null;
+        }
+        String[] names = new String[node.size() - 1];
+        TreeNodes.Expression[] values = new TreeNodes.Expression[node.size() - 1];
+        for (int index = 1; index < node.size(); index++) {
+            List<?> param = list(node.get(index));
+            names[index - 1] = string(list(param.get(1)).get(1));
+            values[index - 1] = compileExpression(list(param.get(2)), auto);
+        }
+        return new TreeNodes.Params(names, values);
+    }
+
+    private String[] compileFilters(List<?> node) {
+        String[] filters = new String[node.size() - 1];
+        for (int index = 1; index < node.size(); index++) {
+            filters[index - 1] = string(node.get(index));
+            if (!DustFilters.isSupported(filters[index - 1])) {
+                throw new UnsupportedTemplateException("Filter is not supported: " + filters[index - 1]);
+            }
+        }
+        return filters;
+    }
+
+    private Map<String, List<?>> bodies(List<?> node) {
+        Map<String, List<?>> bodies = new HashMap<String, List<?>>();
+        if (node.size() > 4) {
+            List<?> params = list(node.get(4));
+            for (int index = 1; index < params.size(); index++) {
+                List<?> param = list(params.get(index));
+                bodies.put(string(list(param.get(1)).get(1)), list(param.get(2)));
+            }
+        }
+        return bodies;
+    }
+
+    private String keyName(List<?> node) {
+        if (!"key".equals(string(node.get(0)))) {
+            throw new UnsupportedTemplateException("Block name must be key: " + node);
+        }
+        return string(node.get(1));
+    }
+
+    private List<?> list(Object node) {
+        if (!(node instanceof List)) {
+            throw new UnsupportedTemplateException("Unexpected dust parse tree: " + node);
+        }
+        return (List<?>) node;
+    }
+
+    private String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
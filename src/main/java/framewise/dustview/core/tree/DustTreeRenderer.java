@@ -0,0 +1,171 @@
+package framewise.dustview.core.tree;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import framewise.dustview.DustViewException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pure-Java dust renderer. Template is parsed by dust.js once, and parse tree is compiled to Java render tree
+ * that runs section, reference, exists/not exists, partial, block and built-in filter natively against Java model.
+ * Rendering does not call JavaScript at all, and rendered markup is same as dust.js.
+ * <p/>
+ * Template that uses helper(@) or custom filter can't be rendered by this class.
+ * In that case(and when partial template is not renderable), {@link UnsupportedTemplateException} is thrown
+ * and engine renders template by dust.js.
+ * <p/>
+ * This class is thread-safe, and can be shared by engines in pool.
+ *
+ * @author chanwook
+ */
+public class DustTreeRenderer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // compiled tree of template, kept until template is compiled with other source
+    private final ConcurrentMap<String, Prepared> preparedTemplates = new ConcurrentHashMap<String, Prepared>();
+    // tree of template that is loaded to engine
+    private final ConcurrentMap<String, TreeTemplate> loadedTemplates = new ConcurrentHashMap<String, TreeTemplate>();
+
+    /**
+     * Check tree of compiled source is already prepared, so parsing is not needed.
+     *
+     * @param templateKey
+     * @param compiledSource
+     * @return
+     */
+    public boolean isPrepared(String templateKey, String compiledSource) {
+        Prepared prepared = preparedTemplates.get(templateKey);
+        return prepared != null && prepared.isSameSource(compiledSource);
+    }
+
+    /**
+     * Compile dust parse tree to render tree. If template is not supported, template is rendered by dust.js.
+     *
+     * @param templateKey    name of template
+     * @param compiledSource compiled source by dust.js (template is activated by loading this source)
+     * @param ast            result of dust.filterNode(dust.parse(source))
+     */
+    public void prepare(String templateKey, String compiledSource, List<?> ast) {
+        TreeTemplate template = null;
+        try {
+            template = DustTreeCompiler.compile(templateKey, ast);
+        } catch (UnsupportedTemplateException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Template is rendered by dust.js (templateKey: " + templateKey + ", reason: " + e.getMessage() + ")");
+            }
+        }
+        preparedTemplates.put(templateKey, new Prepared(compiledSource, template));
+    }
+
+    /**
+     * Activate prepared tree when compiled source is loaded to engine.
+     * If source is not prepared(ex. precompiled template), template is rendered by dust.js.
+     *
+     * @param templateKey
+     * @param compiledSource
+     */
+    public void activate(String templateKey, String compiledSource) {
+        Prepared prepared = preparedTemplates.get(templateKey);
+        if (prepared != null && prepared.template != null && prepared.isSameSource(compiledSource)) {
+            loadedTemplates.put(templateKey, prepared.template);
+        } else {
+            loadedTemplates.remove(templateKey);
+        }
+    }
+
+    public void deactivate(String templateKey) {
+        loadedTemplates.remove(templateKey);
+    }
+
+    /**
+     * Deactivate every template. (engine is initialized again)
+     */
+    public void clear() {
+        loadedTemplates.clear();
+    }
+
+    public boolean isRenderable(String templateKey) {
+        return loadedTemplates.containsKey(templateKey);
+    }
+
+    TreeTemplate getTemplate(String templateKey) {
+        return loadedTemplates.get(templateKey);
+    }
+
+    /**
+     * Rendering with Java model(Map, List, bean).
+     * Markup is written after rendering completes, so nothing is written when fallback is needed.
+     *
+     * @param writer
+     * @param templateKey
+     * @param model
+     * @throws UnsupportedTemplateException if template must be rendered by dust.js
+     */
+    public void render(Writer writer, String templateKey, Object model) {
+        String rendered = render(templateKey, model);
+        try {
+            writer.write(rendered);
+        } catch (IOException e) {
+            throw new DustViewException("Fail to write rendered markup(templateKey: " + templateKey + ")", e);
+        }
+    }
+
+    /**
+     * Rendering with JSON data
+     *
+     * @param writer
+     * @param templateKey
+     * @param json
+     * @throws UnsupportedTemplateException if template must be rendered by dust.js
+     */
+    public void renderJson(Writer writer, String templateKey, String json) {
+        if (!isRenderable(templateKey)) {
+            throw new UnsupportedTemplateException("Template is not renderable: " + templateKey);
+        }
+
+        Object model;
+        try {
+            model = objectMapper.readValue(json, Object.class);
+        } catch (IOException e) {
+            // error is reported by dust.js
+            throw new UnsupportedTemplateException("Fail to parse JSON: " + e.getMessage());
+        }
+        render(writer, templateKey, model);
+    }
+
+    public String render(String templateKey, Object model) {
+        TreeTemplate template = loadedTemplates.get(templateKey);
+        if (template == null) {
+            throw new UnsupportedTemplateException("Template is not renderable: " + templateKey);
+        }
+
+        StringBuilder out = new StringBuilder(1024);
+        template.getBody().render(out, RenderContext.wrap(this, model));
+        return out.toString();
+    }
+
+    private static class Prepared {
+
+        private final String compiledSource;
+        private final TreeTemplate template;
+
+        Prepared(String compiledSource, TreeTemplate template) {
+            this.compiledSource = compiledSource;
+            this.template = template;
+        }
+
+        boolean isSameSource(String source) {
+            return compiledSource == source ||
+                    (compiledSource.hashCode() == source.hashCode() && compiledSource.equals(source));
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package framewise.dustview.core.tree;
+
+import framewise.dustview.DustViewException;
+import framewise.dustview.core.JavaModelScriptable;
+import org.mozilla.javascript.ScriptRuntime;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * JavaScript semantics(property access, truthiness, toString) of Java model value.
+ * Model value is converted same as {@link JavaModelScriptable}, so rendering result is same as dust.js.
+ *
+ * @author chanwook
+ */
+final class JsValues {
+
+    /**
+     * JavaScript undefined (null is JavaScript null)
+     */
+    static final Object UNDEFINED = new Object() {
+        @Override
+        public String toString() {
+            return "undefined";
+        }
+    };
+
+    // inherited property of JavaScript object. dust.js finds it through prototype chain, so can't be rendered by Java
+    private static final Set<String> OBJECT_BUILTINS = names("constructor", "toString", "toLocaleString", "valueOf",
+            "hasOwnProperty", "isPrototypeOf", "propertyIsEnumerable", "__proto__", "__parent__", "__count__",
+            "__defineGetter__", "__defineSetter__", "__lookupGetter__", "__lookupSetter__", "toSource", "watch", "unwatch");
+    private static final Set<String> ARRAY_BUILTINS = names("concat", "join", "pop", "push", "reverse", "shift", "slice",
+            "sort", "splice", "unshift", "indexOf", "lastIndexOf", "every", "filter", "forEach", "map", "some",
+            "reduce", "reduceRight");
+    private static final Set<String> NUMBER_BUILTINS = names("toFixed", "toExponential", "toPrecision");
+
+    private JsValues() {
+    }
+
+    private static Set<String> names(String... names) {
+        return Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(names)));
+    }
+
+    /**
+     * Convert Java model value to value used by renderer. (same rule as {@link JavaModelScriptable#wrap})
+     */
+    static Object normalize(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Number) {
+            return value;
+        }
+        if (value instanceof CharSequence || value instanceof Character || value instanceof Enum) {
+            return value.toString();
+        }
+        if (value instanceof Date) {
+            return (double) ((Date) value).getTime();
+        }
+        if (value instanceof Collection && !(value instanceof List)) {
+            return new ArrayList<Object>((Collection<?>) value);
+        }
+        if (value.getClass().isArray()) {
+            return new ArrayView(value);
+        }
+        return value;
+    }
+
+    /**
+     * JavaScript property access(value[name]).
+     *
+     * @return property value, or {@link #UNDEFINED} if not exist
+     */
+    static Object getProperty(Object target, String name) {
+        if (target instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) target;
+            if (map.containsKey(name)) {
+                return normalize(map.get(name));
+            }
+            return notFound(name, OBJECT_BUILTINS);
+        }
+        if (target instanceof List) {
+            List<?> list = (List<?>) target;
+            if ("length".equals(name)) {
+                return list.size();
+            }
+            int index = toIndex(name);
+            if (index >= 0) {
+                return index < list.size() ? normalize(list.get(index)) : UNDEFINED;
+            }
+            if (ARRAY_BUILTINS.contains(name)) {
+                throw new UnsupportedTemplateException("Array method is not supported: " + name);
+            }
+            return notFound(name, OBJECT_BUILTINS);
+        }
+        if (target instanceof String) {
+            if ("length".equals(name)) {
+                return ((String) target).length();
+            }
+            // index access and String.prototype method
+            throw new UnsupportedTemplateException("Property of string is not supported: " + name);
+        }
+        if (target instanceof Number) {
+            if (NUMBER_BUILTINS.contains(name)) {
+                throw new UnsupportedTemplateException("Number method is not supported: " + name);
+            }
+            return notFound(name, OBJECT_BUILTINS);
+        }
+        if (target instanceof Boolean || target instanceof TreeNodes.BodyValue) {
+            return notFound(name, OBJECT_BUILTINS);
+        }
+
+        Method readMethod = JavaModelScriptable.getBeanProperties(target.getClass()).get(name);
+        if (readMethod == null) {
+            return notFound(name, OBJECT_BUILTINS);
+        }
+        try {
+            return normalize(readMethod.invoke(target));
+        } catch (Exception e) {
+            throw new DustViewException("Fail to read model property(" + target.getClass().getName() + "." + name + ")", e);
+        }
+    }
+
+    /**
+     * Property that is not found in global object(dust context global is empty object)
+     */
+    static Object getGlobalProperty(String name) {
+        return notFound(name, OBJECT_BUILTINS);
+    }
+
+    private static Object notFound(String name, Set<String> builtins) {
+        if (builtins.contains(name)) {
+            throw new UnsupportedTemplateException("Inherited JavaScript property is not supported: " + name);
+        }
+        return UNDEFINED;
+    }
+
+    private static int toIndex(String name) {
+        int length = name.length();
+        if (length == 0 || length > 9 || (name.charAt(0) == '0' && length > 1)) {
+            return -1;
+        }
+        for (int index = 0; index < length; index++) {
+            char c = name.charAt(index);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(name);
+    }
+
+    static boolean isTruthy(Object value) {
+        if (value == null || value == UNDEFINED) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            return number != 0 && !Double.isNaN(number);
+        }
+        if (value instanceof String) {
+            return ((String) value).length() > 0;
+        }
+        return true;
+    }
+
+    /**
+     * Same as dust.isEmpty(). empty array is empty, and 0 is not empty.
+     */
+    static boolean isEmpty(Object value) {
+        if (value instanceof List && ((List<?>) value).isEmpty()) {
+            return true;
+        }
+        if (isZero(value)) {
+            return false;
+        }
+        return !isTruthy(value);
+    }
+
+    static boolean isZero(Object value) {
+        return value instanceof Number && ((Number) value).doubleValue() == 0;
+    }
+
+    /**
+     * Same as JavaScript (head && typeof head === 'object')
+     */
+    static boolean isObject(Object value) {
+        return isTruthy(value) && !(value instanceof String || value instanceof Number || value instanceof Boolean ||
+                value instanceof TreeNodes.BodyValue);
+    }
+
+    /**
+     * JavaScript String(value)
+     */
+    static String toJsString(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Number) {
+            return ScriptRuntime.numberToString(((Number) value).doubleValue(), 10);
+        }
+        if (value instanceof Boolean || value == UNDEFINED) {
+            return value.toString();
+        }
+        if (value instanceof List) {
+            // Array.prototype.join: null and undefined is empty string
+            StringBuilder builder = new StringBuilder();
+            List<?> list = (List<?>) value;
+            for (int index = 0; index < list.size(); index++) {
+                if (index > 0) {
+                    builder.append(',');
+                }
+                Object element = normalize(list.get(index));
+                if (element != null) {
+                    builder.append(toJsString(element));
+                }
+            }
+            return builder.toString();
+        }
+        if (value instanceof TreeNodes.BodyValue) {
+            throw new UnsupportedTemplateException("String of body function is not supported");
+        }
+        return "[object Object]";
+    }
+
+    /**
+     * Read-only list view of Java array
+     */
+    private static class ArrayView extends AbstractList<Object> {
+
+        private final Object array;
+
+        ArrayView(Object array) {
+            this.array = array;
+        }
+
+        @Override
+        public Object get(int index) {
+            return Array.get(array, index);
+        }
+
+        @Override
+        public int size() {
+            return Array.getLength(array);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package framewise.dustview.core.tree;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Rendering context of {@link DustTreeRenderer}. Java version of dust.js Context(stack, blocks).
+ * Context is immutable, push/rebase/shiftBlocks create new context.
+ *
+ * @author chanwook
+ */
+final class RenderContext {
+
+    private final State state;
+    private final Frame stack;
+    private final Blocks blocks;
+
+    private RenderContext(State state, Frame stack, Blocks blocks) {
+        this.state = state;
+        this.stack = stack;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Same as Context.wrap(model)
+     */
+    static RenderContext wrap(DustTreeRenderer renderer, Object model) {
+        return new RenderContext(new State(renderer), new Frame(JsValues.normalize(model), null), null);
+    }
+
+    RenderContext push(Object head) {
+        return new RenderContext(state, new Frame(head, stack), blocks);
+    }
+
+    RenderContext rebase(Object head) {
+        return new RenderContext(state, new Frame(head, null), blocks);
+    }
+
+    /**
+     * Context of partial template. Same as Chunk.partial() of dust.js:
+     * stack tail of caller, params and head of caller.
+     */
+    RenderContext partial(Map<String, Object> params) {
+        Frame base = stack.tail != null ? stack.tail : new Frame(JsValues.UNDEFINED, null);
+        if (params != null) {
+            base = new Frame(params, base);
+        }
+        return new RenderContext(state, new Frame(stack.head, base), blocks);
+    }
+
+    RenderContext shiftBlocks(Map<String, TreeNodes.Body> locals) {
+        return new RenderContext(state, stack, new Blocks(locals, blocks));
+    }
+
+    TreeNodes.Body getBlock(String name) {
+        for (Blocks current = blocks; current != null; current = current.previous) {
+            TreeNodes.Body body = current.locals.get(name);
+            if (body != null) {
+                return body;
+            }
+        }
+        return null;
+    }
+
+    Object current() {
+        return stack.head;
+    }
+
+    DustTreeRenderer getRenderer() {
+        return state.renderer;
+    }
+
+    /**
+     * Same as Context._get(cur, down) of dust.js
+     *
+     * @param current search current context only
+     * @param keys    path of value
+     * @return value, or {@link JsValues#UNDEFINED}
+     */
+    Object get(boolean current, String[] keys) {
+        int length = keys.length;
+        if (current && length == 0) {
+            return stack.head;
+        }
+
+        Object value = JsValues.UNDEFINED;
+        if (!current) {
+            // search up the stack for the first value
+            for (Frame frame = stack; frame != null; frame = frame.tail) {
+                if (frame.isObject) {
+                    value = getProperty(frame.head, keys[0]);
+                    if (value != JsValues.UNDEFINED) {
+                        break;
+                    }
+                }
+            }
+            if (value == JsValues.UNDEFINED) {
+                value = JsValues.getGlobalProperty(keys[0]);
+            }
+        } else {
+            if (stack.head == null || stack.head == JsValues.UNDEFINED) {
+                // TypeError in dust.js
+                throw new UnsupportedTemplateException("Can't read property of " + stack.head);
+            }
+            value = getProperty(stack.head, keys[0]);
+        }
+
+        for (int index = 1; index < length && JsValues.isTruthy(value); index++) {
+            value = getProperty(value, keys[index]);
+        }
+        return value;
+    }
+
+    Object getProperty(Object target, String name) {
+        if (state.loopProperties != null) {
+            Map<String, Object> properties = state.loopProperties.get(target);
+            if (properties != null && properties.containsKey(name)) {
+                return properties.get(name);
+            }
+        }
+        return JsValues.getProperty(target, name);
+    }
+
+    /**
+     * dust.js sets $idx and $len to head object of context while iterating array section.
+     * Java model is not modified, so these are kept per rendering.
+     */
+    void setLoopProperty(String name, Object value) {
+        Object head = stack.head;
+        if (!JsValues.isObject(head)) {
+            return;
+        }
+        if (state.loopProperties == null) {
+            state.loopProperties = new IdentityHashMap<Object, Map<String, Object>>();
+        }
+        Map<String, Object> properties = state.loopProperties.get(head);
+        if (properties == null) {
+            properties = new HashMap<String, Object>(4);
+            state.loopProperties.put(head, properties);
+        }
+        properties.put(name, value);
+    }
+
+    /**
+     * State shared in one rendering
+     */
+    private static final class State {
+
+        private final DustTreeRenderer renderer;
+        private Map<Object, Map<String, Object>> loopProperties;
+
+        State(DustTreeRenderer renderer) {
+            this.renderer = renderer;
+        }
+    }
+
+    private static final class Frame {
+
+        private final Object head;
+        private final Frame tail;
+        private final boolean isObject;
+
+        Frame(Object head, Frame tail) {
+            this.head = head;
+            this.tail = tail;
+            this.isObject = JsValues.isObject(head);
+        }
+    }
+
+    private static final class Blocks {
+
+        private final Map<String, TreeNodes.Body> locals;
+        private final Blocks previous;
+
+        Blocks(Map<String, TreeNodes.Body> locals, Blocks previous) {
+            this.locals = locals;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package framewise.dustview.core.tree;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Render tree node of {@link DustTreeRenderer}. Each node is same as chunk method of dust.js compiled template.
+ * (write, reference, section, exists, notexists, partial, block)
+ *
+ * @author chanwook
+ */
+final class TreeNodes {
+
+    private TreeNodes() {
+    }
+
+    interface Node {
+        void render(StringBuilder out, RenderContext context);
+    }
+
+    /**
+     * Value expression. (literal, key, path)
+     */
+    interface Expression {
+        Object evaluate(RenderContext context);
+    }
+
+    /**
+     * Body of template or section. Same as body_N function of compiled template.
+     */
+    static final class Body implements Node {
+
+        private final TreeTemplate template;
+        private final Node[] parts;
+
+        Body(TreeTemplate template, List<Node> parts) {
+            this.template = template;
+            this.parts = parts.toArray(new Node[parts.size()]);
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            Map<String, Body> blocks = template.getBlocks();
+            if (!blocks.isEmpty()) {
+                context = context.shiftBlocks(blocks);
+            }
+            for (Node part : parts) {
+                part.render(out, context);
+            }
+        }
+    }
+
+    /**
+     * Parts rendered in enclosing body. (body of pragma)
+     */
+    static final class Parts implements Node {
+
+        private final Node[] parts;
+
+        Parts(List<Node> parts) {
+            this.parts = parts.toArray(new Node[parts.size()]);
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            for (Node part : parts) {
+                part.render(out, context);
+            }
+        }
+    }
+
+    /**
+     * Body used as value(param of section, partial). This is function in dust.js.
+     */
+    static final class BodyValue {
+
+        private final Body body;
+
+        BodyValue(Body body) {
+            this.body = body;
+        }
+
+        void render(StringBuilder out, RenderContext context) {
+            body.render(out, context);
+        }
+    }
+
+    static final class Buffer implements Node {
+
+        private final String text;
+
+        Buffer(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            out.append(text);
+        }
+    }
+
+    static final class Reference implements Node {
+
+        private final Expression expression;
+        private final String auto;
+        private final String[] filters;
+
+        Reference(Expression expression, String auto, String[] filters) {
+            this.expression = expression;
+            this.auto = auto;
+            this.filters = filters;
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            Object value = expression.evaluate(context);
+            if (value instanceof BodyValue) {
+                ((BodyValue) value).render(out, context);
+                return;
+            }
+            if (!JsValues.isEmpty(value)) {
+                value = DustFilters.filter(value, auto, filters);
+                if (value != null && value != JsValues.UNDEFINED) {
+                    out.append(JsValues.toJsString(value));
+                }
+            }
+        }
+    }
+
+    enum SectionType {
+        SECTION, EXISTS, NOT_EXISTS
+    }
+
+    /**
+     * Section(#), exists(?) and not exists(^)
+     */
+    static final class Section implements Node {
+
+        private final SectionType type;
+        private final Expression key;
+        private final Expression rebase;
+        private final Params params;
+        private final Body block;
+        private final Body elseBlock;
+
+        Section(SectionType type, Expression key, Expression rebase, Params params, Body block, Body elseBlock) {
+            this.type = type;
+            this.key = key;
+            this.rebase = rebase;
+            this.params = params;
+            this.block = block;
+            this.elseBlock = elseBlock;
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            Object value = key.evaluate(context);
+            RenderContext sectionContext = rebase == null ? context : context.rebase(rebase.evaluate(context));
+
+            if (type == SectionType.EXISTS || type == SectionType.NOT_EXISTS) {
+                boolean render = JsValues.isEmpty(value) == (type == SectionType.NOT_EXISTS);
+                renderBody(render ? block : elseBlock, out, sectionContext);
+                return;
+            }
+
+            Map<String, Object> paramValues = params == null ? null : params.evaluate(context);
+            if (value instanceof BodyValue) {
+                ((BodyValue) value).render(out, sectionContext);
+                return;
+            }
+            if (paramValues != null) {
+                sectionContext = sectionContext.push(paramValues);
+            }
+
+            if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                if (block == null) {
+                    return;
+                }
+                if (list.isEmpty()) {
+                    renderBody(elseBlock, out, sectionContext);
+                    return;
+                }
+                int length = list.size();
+                sectionContext.setLoopProperty("$len", length);
+                for (int index = 0; index < length; index++) {
+                    sectionContext.setLoopProperty("$idx", index);
+                    block.render(out, sectionContext.push(JsValues.normalize(list.get(index))));
+                }
+                sectionContext.setLoopProperty("$idx", JsValues.UNDEFINED);
+                sectionContext.setLoopProperty("$len", JsValues.UNDEFINED);
+            } else if (Boolean.TRUE.equals(value)) {
+                // true does not change context
+                renderBody(block, out, sectionContext);
+            } else if (JsValues.isTruthy(value) || JsValues.isZero(value)) {
+                renderBody(block, out, sectionContext.push(value));
+            } else {
+                renderBody(elseBlock, out, sectionContext);
+            }
+        }
+
+        private void renderBody(Body body, StringBuilder out, RenderContext context) {
+            if (body != null) {
+                body.render(out, context);
+            }
+        }
+    }
+
+    static final class Partial implements Node {
+
+        private final String name;
+        private final Body nameBody;
+        private final Expression rebase;
+        private final Params params;
+
+        Partial(String name, Body nameBody, Expression rebase, Params params) {
+            this.name = name;
+            this.nameBody = nameBody;
+            this.rebase = rebase;
+            this.params = params;
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            RenderContext partialContext = rebase == null ? context : context.rebase(rebase.evaluate(context));
+            partialContext = partialContext.partial(params == null ? null : params.evaluate(context));
+
+            String templateName = name;
+            if (nameBody != null) {
+                // dynamic partial name is rendered with partial context
+                StringBuilder nameOut = new StringBuilder();
+                nameBody.render(nameOut, partialContext);
+                templateName = nameOut.toString();
+            }
+
+            TreeTemplate template = context.getRenderer().getTemplate(templateName);
+            if (template == null) {
+                throw new UnsupportedTemplateException("Partial template is not renderable: " + templateName);
+            }
+            template.getBody().render(out, partialContext);
+        }
+    }
+
+    /**
+     * Block(+). Body is inline partial(&lt;) of context, or default body.
+     */
+    static final class Block implements Node {
+
+        private final String name;
+        private final Expression rebase;
+        private final Body defaultBody;
+
+        Block(String name, Expression rebase, Body defaultBody) {
+            this.name = name;
+            this.rebase = rebase;
+            this.defaultBody = defaultBody;
+        }
+
+        @Override
+        public void render(StringBuilder out, RenderContext context) {
+            Body body = context.getBlock(name);
+            RenderContext blockContext = rebase == null ? context : context.rebase(rebase.evaluate(context));
+            if (body == null) {
+                body = defaultBody;
+            }
+            if (body != null) {
+                body.render(out, blockContext);
+            }
+        }
+    }
+
+    static final class Literal implements Expression {
+
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(RenderContext context) {
+            return value;
+        }
+    }
+
+    static final class BodyExpression implements Expression {
+
+        private final BodyValue value;
+
+        BodyExpression(Body body) {
+            this.value = new BodyValue(body);
+        }
+
+        @Override
+        public Object evaluate(RenderContext context) {
+            return value;
+        }
+    }
+
+    /**
+     * Key and path. Key is path of one name.
+     */
+    static final class Path implements Expression {
+
+        private final boolean current;
+        private final String[] keys;
+        // expression of dynamic key(ex. a[b]), or null
+        private final Expression[] dynamicKeys;
+
+        Path(boolean current, String[] keys, Expression[] dynamicKeys) {
+            this.current = current;
+            this.keys = keys;
+            this.dynamicKeys = dynamicKeys;
+        }
+
+        @Override
+        public Object evaluate(RenderContext context) {
+            String[] resolved = keys;
+            if (dynamicKeys != null) {
+                resolved = keys.clone();
+                for (int index = 0; index < dynamicKeys.length; index++) {
+                    if (dynamicKeys[index] != null) {
+                        resolved[index] = JsValues.toJsString(dynamicKeys[index].evaluate(context));
+                    }
+                }
+            }
+            return context.get(current, resolved);
+        }
+    }
+
+    /**
+     * Inline params of section and partial
+     */
+    static final class Params {
+
+        private final String[] names;
+        private final Expression[] values;
+
+        Params(String[] names, Expression[] values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        Map<String, Object> evaluate(RenderContext context) {
+            Map<String, Object> evaluated = new LinkedHashMap<String, Object>(names.length * 2);
+            for (int index = 0; index < names.length; index++) {
+                evaluated.put(names[index], values[index].evaluate(context));
+            }
+            return evaluated;
+        }
+    }
+}
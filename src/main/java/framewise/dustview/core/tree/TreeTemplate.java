@@ -0,0 +1,40 @@
+package framewise.dustview.core.tree;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Template compiled to render tree. Blocks are inline partials(&lt;) defined in template.
+ *
+ * @author chanwook
+ */
+final class TreeTemplate {
+
+    private final String name;
+    private TreeNodes.Body body;
+    private Map<String, TreeNodes.Body> blocks = Collections.emptyMap();
+
+    TreeTemplate(String name) {
+        this.name = name;
+    }
+
+    void setBody(TreeNodes.Body body) {
+        this.body = body;
+    }
+
+    void setBlocks(Map<String, TreeNodes.Body> blocks) {
+        this.blocks = Collections.unmodifiableMap(blocks);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    TreeNodes.Body getBody() {
+        return body;
+    }
+
+    Map<String, TreeNodes.Body> getBlocks() {
+        return blocks;
+    }
+}
@@ -0,0 +1,16 @@
+package framewise.dustview.core.tree;
+
+import framewise.dustview.DustViewException;
+
+/**
+ * Thrown when template(or model) uses dust feature that is not supported by {@link DustTreeRenderer}.
+ * (ex. helper, custom filter, missing partial) Engine renders that template by dust.js instead.
+ *
+ * @author chanwook
+ */
+public class UnsupportedTemplateException extends DustViewException {
+
+    public UnsupportedTemplateException(String message) {
+        super(message);
+    }
+}
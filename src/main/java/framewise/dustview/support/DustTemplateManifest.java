@@ -0,0 +1,62 @@
+package framewise.dustview.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Manifest of precompiled dust template.
+ * Manifest has compiled file path(relative to manifest) per template key.
+ * This file is created by build-time precompile(dustview-maven-plugin), and is loaded by view at startup.
+ *
+ * @author chanwook
+ */
+public class DustTemplateManifest {
+
+    public static final String DEFAULT_MANIFEST_FILE_NAME = "dust-manifest.properties";
+
+    private static final String PATH_PREFIX = "path.";
+
+    private final Map<String, String> paths = new TreeMap<String, String>();
+
+    public void add(String templateKey, String path) {
+        paths.put(templateKey, path);
+    }
+
+    public Set<String> getTemplateKeys() {
+        return Collections.unmodifiableSet(paths.keySet());
+    }
+
+    public String getPath(String templateKey) {
+        return paths.get(templateKey);
+    }
+
+    public boolean contains(String templateKey) {
+        return paths.containsKey(templateKey);
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    public void load(InputStream input) throws IOException {
+        Properties properties = new Properties();
+        properties.load(input);
+
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(PATH_PREFIX)) {
+                String templateKey = name.substring(PATH_PREFIX.length());
+                add(templateKey, properties.getProperty(name));
+            }
+        }
+    }
+
+    public void store(OutputStream output) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, String> path : paths.entrySet()) {
+            properties.setProperty(PATH_PREFIX + path.getKey(), path.getValue());
+        }
+        properties.store(output, "Precompiled dust template manifest");
+    }
+}
@@ -19,10 +19,38 @@ public class DustViewConstants {
     public static final String VIEW_SOURCE = "_VIEW_SOURCE";
     public static final String CACHE_PROVIDER = "_CACHE_PROVIDER";
     public static final String VIEW_CACHEABLE = "_VIEW_CACHE";
+    public static final String VIEW_CACHE_MAX_BYTES = "_VIEW_CACHE_MAX_BYTES";
     public static final String DUST_COMPILED = "_DUST_COMPILED";
     public static final String DUST_ENGINE_OBJECT = "_DUST_ENGINE_OBJECT";
+    public static final String DUST_ENGINE_POOL_SIZE = "_DUST_ENGINE_POOL_SIZE";
+    public static final String DUST_SHARED_SCOPE = "_DUST_SHARED_SCOPE";
+    public static final String DUST_PERSISTENT_CONTEXT = "_DUST_PERSISTENT_CONTEXT";
+    public static final String DUST_SCRIPT_CACHE_DIRECTORY = "_DUST_SCRIPT_CACHE_DIRECTORY";
+    public static final String DIRECT_MODEL = "_DIRECT_MODEL";
+    public static final String DIRECT_OUTPUT = "_DIRECT_OUTPUT";
+    public static final String FLUSH_POINTS = "_FLUSH_POINTS";
+    public static final String DUST_COMPILE_CACHE_DIRECTORY = "_DUST_COMPILE_CACHE_DIRECTORY";
+    public static final String DUST_SCRIPT_RUNTIME = "_DUST_SCRIPT_RUNTIME";
+    public static final String DUST_TREE_RENDERER = "_DUST_TREE_RENDERER";
+    public static final String DUST_TIERED_COMPILE_THRESHOLD = "_DUST_TIERED_COMPILE_THRESHOLD";
+    public static final String DUST_TIERED_OPTIMIZATION_LEVEL = "_DUST_TIERED_OPTIMIZATION_LEVEL";
+    public static final String RENDER_CACHE = "_RENDER_CACHE";
+    public static final String RENDER_CACHE_SIZE = "_RENDER_CACHE_SIZE";
+    public static final String RENDER_CACHE_TTL = "_RENDER_CACHE_TTL";
+    public static final String RENDER_CACHE_MAX_BYTES = "_RENDER_CACHE_MAX_BYTES";
+    public static final String RENDER_SINGLE_FLIGHT = "_RENDER_SINGLE_FLIGHT";
+    public static final String FRAGMENT_CACHE = "_FRAGMENT_CACHE";
+    public static final String METRICS = "_METRICS";
+    public static final String JMX_ENABLED = "_JMX_ENABLED";
+    public static final String REFRESH_MODE = "_REFRESH_MODE";
+    public static final String REFRESH_INTERVAL = "_REFRESH_INTERVAL";
+    public static final String REFRESH_TOKEN = "_REFRESH_TOKEN";
     public static final String MULTI_LOAD = "_MULTI_LOAD";
     public static final String MULTI_LOAD_REQUEST = "_MULTI_LOAD_REQUEST";
     public static final String COMMON_VIEW_PATH = "_COMMON_VIEW_PATH";
+    public static final String PARTIAL_PRELOAD = "_PARTIAL_PRELOAD";
+    public static final String PRECOMPILED_MANIFEST = "_PRECOMPILED_MANIFEST";
+    public static final String WARM_UP_SAMPLE_PATH = "_WARM_UP_SAMPLE_PATH";
+    public static final String WARM_UP_ITERATIONS = "_WARM_UP_ITERATIONS";
     public static final String COMMON_FILE_EXTENSION_NAME = ".html";
 }
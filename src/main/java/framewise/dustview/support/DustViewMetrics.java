@@ -0,0 +1,64 @@
+package framewise.dustview.support;
+
+/**
+ * Metrics hook of view rendering. Each phase of request is recorded per template key.
+ * Implementation is called on every request, so it must be thread-safe and fast.
+ *
+ * @author chanwook
+ */
+public interface DustViewMetrics {
+
+    /**
+     * Phase of view rendering
+     */
+    enum Phase {
+        /**
+         * creating JSON from model
+         */
+        JSON,
+        /**
+         * resolving view path
+         */
+        PATH,
+        /**
+         * reading template source from view cache or template loader
+         */
+        FETCH,
+        /**
+         * compiling HTML to dust source
+         */
+        COMPILE,
+        /**
+         * loading compiled source to engine
+         */
+        LOAD,
+        /**
+         * rendering template with JSON or model
+         */
+        RENDER,
+        /**
+         * binding rendering result to model and response
+         */
+        BINDING
+    }
+
+    /**
+     * @param templateKey
+     * @param phase
+     * @param elapsedNanos
+     * @param size         size(character count) of phase result, or -1 if not measured
+     */
+    void recordPhase(String templateKey, Phase phase, long elapsedNanos, long size);
+
+    /**
+     * @param templateKey
+     * @param phase       phase thrown exception
+     */
+    void recordError(String templateKey, Phase phase);
+
+    /**
+     * @param templateKey
+     * @param hit         true if template source is read from view cache
+     */
+    void recordCache(String templateKey, boolean hit);
+}
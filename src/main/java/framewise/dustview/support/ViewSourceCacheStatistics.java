@@ -0,0 +1,20 @@
+package framewise.dustview.support;
+
+/**
+ * Size of {@link ViewSourceCacheProvider}. Reading size does not change access statistics of cache(hit, miss, frequency),
+ * so it can be polled by monitoring(ex. JMX).
+ *
+ * @author chanwook
+ */
+public interface ViewSourceCacheStatistics {
+
+    /**
+     * @return count of cached template source
+     */
+    int size();
+
+    /**
+     * @return size of cached template source (estimated by 2 byte per char)
+     */
+    long getTotalBytes();
+}
@@ -0,0 +1,311 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.support.ViewSourceCacheProvider;
+import framewise.dustview.support.ViewSourceCacheStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * View source cache bounded by total size of template source, with W-TinyLFU style eviction.
+ * <p/>
+ * New entry enters small window(LRU, 1% of size). Entry evicted from window is admitted to main space
+ * only if it is accessed more frequently than victim of main space, so template loaded once(ex. churn of
+ * multi-load or CDN template) does not evict hot template. Access frequency is estimated by count-min sketch
+ * that is aged periodically, and victim of main space is chosen by CLOCK(second chance to accessed entry).
+ * <p/>
+ * Lookup is lock-free(only marks access), and adding/removing entry is synchronized.
+ *
+ * @author chanwook
+ */
+public class BoundedViewSourceCacheProvider implements ViewSourceCacheProvider, ViewSourceCacheStatistics {
+
+    private final Logger logger = LoggerFactory.getLogger(BoundedViewSourceCacheProvider.class);
+
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+    public static final int DEFAULT_AVERAGE_TEMPLATE_BYTES = 8 * 1024;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int MAX_EXPECTED_ENTRIES = 1 << 18;
+
+    private final long maxBytes;
+    private final long maxWindowBytes;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    // guarded by this (insertion order, reordered by eviction only)
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<String, Entry>();
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<String, Entry>();
+    private long windowBytes = 0;
+    private long mainBytes = 0;
+
+    private final FrequencySketch sketch;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public BoundedViewSourceCacheProvider() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Expected count of entries is estimated by {@link #DEFAULT_AVERAGE_TEMPLATE_BYTES}
+     *
+     * @param maxBytes limit of cached template source (estimated by 2 byte per char)
+     */
+    public BoundedViewSourceCacheProvider(long maxBytes) {
+        this(maxBytes, (int) Math.min(MAX_EXPECTED_ENTRIES, maxBytes / DEFAULT_AVERAGE_TEMPLATE_BYTES));
+    }
+
+    /**
+     * @param maxBytes        limit of cached template source (estimated by 2 byte per char)
+     * @param expectedEntries count of template that cache can hold, then frequency sketch has counter for each
+     */
+    public BoundedViewSourceCacheProvider(long maxBytes, int expectedEntries) {
+        this.maxBytes = maxBytes;
+        this.maxWindowBytes = Math.max(1, maxBytes * WINDOW_PERCENT / 100);
+        this.sketch = new FrequencySketch(Math.min(MAX_EXPECTED_ENTRIES, expectedEntries));
+    }
+
+    /**
+     * Not cached key is counted as miss, because view does not call {@link #get(String)} for it.
+     */
+    public boolean isCached(String key) {
+        if (entries.containsKey(key)) {
+            return true;
+        }
+        sketch.increment(key);
+        missCount.incrementAndGet();
+        return false;
+    }
+
+    public String get(String key) {
+        sketch.increment(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        entry.accessed = true;
+        hitCount.incrementAndGet();
+        return entry.templateSource;
+    }
+
+    /**
+     * Template source bigger than limit is not cached.
+     */
+    public void add(String key, String templateSource) {
+        Entry entry = new Entry(key, templateSource);
+        synchronized (this) {
+            removeEntry(key);
+            if (entry.bytes > maxBytes) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Template source is bigger than cache limit, then not cached!(key: " + key + ")");
+                }
+                return;
+            }
+            entries.put(key, entry);
+            window.put(key, entry);
+            windowBytes += entry.bytes;
+            evict();
+        }
+    }
+
+    public boolean remove(String key) {
+        synchronized (this) {
+            return removeEntry(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        window.clear();
+        main.clear();
+        windowBytes = 0;
+        mainBytes = 0;
+    }
+
+    private boolean removeEntry(String key) {
+        Entry removed = entries.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        if (window.remove(key) != null) {
+            windowBytes -= removed.bytes;
+        } else if (main.remove(key) != null) {
+            mainBytes -= removed.bytes;
+        }
+        return true;
+    }
+
+    private void evict() {
+        // entry overflowed from window competes with victim of main space
+        while (windowBytes > maxWindowBytes && window.size() > 1) {
+            Iterator<Entry> iterator = window.values().iterator();
+            Entry candidate = iterator.next();
+            iterator.remove();
+            windowBytes -= candidate.bytes;
+            main.put(candidate.key, candidate);
+            mainBytes += candidate.bytes;
+            admit(candidate);
+        }
+
+        // window is bigger than limit(ex. one big template)
+        while (windowBytes + mainBytes > maxBytes && !main.isEmpty()) {
+            evictEntry(selectVictim(null));
+        }
+    }
+
+    private void admit(Entry candidate) {
+        while (windowBytes + mainBytes > maxBytes) {
+            Entry victim = selectVictim(candidate);
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evictEntry(candidate);
+                return;
+            }
+            evictEntry(victim);
+        }
+    }
+
+    /**
+     * CLOCK: entry accessed since last pass is moved to tail once.
+     *
+     * @param excluded entry not to select
+     * @return victim, or null if main space has excluded entry only
+     */
+    private Entry selectVictim(Entry excluded) {
+        Entry fallback = null;
+        for (int step = 0, size = main.size(); step < size; step++) {
+            Entry entry = main.values().iterator().next();
+            if (entry != excluded && !entry.accessed) {
+                return entry;
+            }
+            if (entry != excluded && fallback == null) {
+                fallback = entry;
+            }
+            entry.accessed = false;
+            main.remove(entry.key);
+            main.put(entry.key, entry);
+        }
+        return fallback;
+    }
+
+    private void evictEntry(Entry entry) {
+        removeEntry(entry.key);
+        evictionCount.incrementAndGet();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Evict template source from cache!(key: " + entry.key + ", bytes: " + entry.bytes + ")");
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return windowBytes + mainBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static class Entry {
+
+        private final String key;
+        private final String templateSource;
+        private final long bytes;
+        // set by lookup without lock
+        private volatile boolean accessed;
+
+        Entry(String key, String templateSource) {
+            this.key = key;
+            this.templateSource = templateSource;
+            // char is 2 byte
+            this.bytes = templateSource == null ? 0 : templateSource.length() * 2L;
+        }
+    }
+
+    /**
+     * Count-min sketch with 4 rows of counter(max 15). Every counter is halved after sample count of
+     * increment, so old popularity fades out.
+     */
+    static class FrequencySketch {
+
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0xb8a9a8c7, 0x2f1e9ab5, 0x5c6d0fa3};
+
+        private final AtomicIntegerArray counters;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicLong additions = new AtomicLong();
+
+        FrequencySketch(int width) {
+            int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+            this.counters = new AtomicIntegerArray(size * ROWS);
+            this.mask = size - 1;
+            this.sampleSize = size * 10;
+        }
+
+        void increment(String key) {
+            int hash = spread(key.hashCode());
+            for (int row = 0; row < ROWS; row++) {
+                int index = indexOf(hash, row);
+                int count = counters.get(index);
+                while (count < MAX_COUNT && !counters.compareAndSet(index, count, count + 1)) {
+                    count = counters.get(index);
+                }
+            }
+            if (additions.incrementAndGet() % sampleSize == 0) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, counters.get(indexOf(hash, row)));
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (int index = 0; index < counters.length(); index++) {
+                int count = counters.get(index);
+                while (!counters.compareAndSet(index, count, count >>> 1)) {
+                    count = counters.get(index);
+                }
+            }
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            return row * (mask + 1) + ((h ^ (h >>> 16)) & mask);
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x85ebca6b;
+            return h ^ (h >>> 13);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package framewise.dustview.support.springmvc;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of {@link SimpleDustTemplateView}.
+ * Template statistics need {@link InMemoryDustViewMetrics}, otherwise they are empty.
+ *
+ * @author chanwook
+ */
+public interface DustTemplateViewMXBean {
+
+    boolean isReady();
+
+    boolean isViewCacheable();
+
+    /**
+     * @return key of template loaded by view
+     */
+    String[] getTemplateKeys();
+
+    String getViewPath(String templateKey);
+
+    /**
+     * @return count of cached template source, or -1 if cache provider does not support statistics
+     */
+    int getViewSourceCacheCount();
+
+    /**
+     * @return size of cached template source(2 byte per char), or -1 if cache provider does not support statistics
+     */
+    long getViewSourceCacheBytes();
+
+    /**
+     * @param phase name of {@link framewise.dustview.support.DustViewMetrics.Phase}
+     * @param limit
+     * @return template key ordered by total time of phase
+     */
+    String[] getHotTemplates(String phase, int limit);
+
+    /**
+     * @param templateKey
+     * @return statistics per phase(ex. RENDER.count, RENDER.p99Micros) and view cache hit/miss
+     */
+    Map<String, Long> getTemplateStatistics(String templateKey);
+
+    /**
+     * @param templateKey
+     * @return render latency histogram(power of 2 microsecond bucket)
+     */
+    long[] getRenderLatencyHistogram(String templateKey);
+
+    /**
+     * Remove template source from view cache. Next request reads template from template loader.
+     *
+     * @param templateKey
+     * @return false if template is not cached
+     */
+    boolean evictTemplate(String templateKey);
+
+    /**
+     * @return count of removed template
+     */
+    int evictAllTemplates();
+
+    /**
+     * Read template from template loader, and load it to engine now
+     *
+     * @param templateKey
+     */
+    void reloadTemplate(String templateKey);
+
+    /**
+     * Schedule reloading template in background (at most once per refresh interval)
+     *
+     * @param templateKey
+     * @return false if skipped
+     */
+    boolean invalidateTemplate(String templateKey);
+
+    String getRefreshMode();
+
+    long getScheduledReloadCount();
+
+    long getSkippedReloadCount();
+
+    long getFailedReloadCount();
+
+    /**
+     * @return count of refresh request ignored by invalid token
+     */
+    long getRejectedRefreshCount();
+}
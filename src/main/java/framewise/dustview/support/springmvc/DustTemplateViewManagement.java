@@ -0,0 +1,149 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.support.DustViewMetrics;
+import framewise.dustview.support.ViewSourceCacheProvider;
+import framewise.dustview.support.ViewSourceCacheStatistics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * JMX MBean of {@link SimpleDustTemplateView}. Operation can be used instead of refresh parameter('_refresh').
+ *
+ * @author chanwook
+ */
+public class DustTemplateViewManagement implements DustTemplateViewMXBean {
+
+    private final SimpleDustTemplateView view;
+
+    public DustTemplateViewManagement(SimpleDustTemplateView view) {
+        this.view = view;
+    }
+
+    public boolean isReady() {
+        return view.isReady();
+    }
+
+    public boolean isViewCacheable() {
+        return view.isViewCacheable();
+    }
+
+    public String[] getTemplateKeys() {
+        Set<String> templateKeys = view.getTemplateKeys();
+        return templateKeys.toArray(new String[templateKeys.size()]);
+    }
+
+    public String getViewPath(String templateKey) {
+        return view.getTemplateViewPath(templateKey);
+    }
+
+    public int getViewSourceCacheCount() {
+        ViewSourceCacheProvider cacheProvider = view.getViewSourceCacheProvider();
+        if (!(cacheProvider instanceof ViewSourceCacheStatistics)) {
+            return -1;
+        }
+        return ((ViewSourceCacheStatistics) cacheProvider).size();
+    }
+
+    public long getViewSourceCacheBytes() {
+        ViewSourceCacheProvider cacheProvider = view.getViewSourceCacheProvider();
+        if (!(cacheProvider instanceof ViewSourceCacheStatistics)) {
+            return -1;
+        }
+        return ((ViewSourceCacheStatistics) cacheProvider).getTotalBytes();
+    }
+
+    public String[] getHotTemplates(String phase, int limit) {
+        if (!(view.getMetrics() instanceof InMemoryDustViewMetrics)) {
+            return new String[0];
+        }
+        List<String> templateKeys = ((InMemoryDustViewMetrics) view.getMetrics())
+                .getHotTemplates(DustViewMetrics.Phase.valueOf(phase.toUpperCase()), limit);
+        return templateKeys.toArray(new String[templateKeys.size()]);
+    }
+
+    public Map<String, Long> getTemplateStatistics(String templateKey) {
+        Map<String, Long> statistics = new TreeMap<String, Long>();
+        InMemoryDustViewMetrics.TemplateMetrics metrics = getTemplateMetrics(templateKey);
+        if (metrics == null) {
+            return statistics;
+        }
+
+        for (DustViewMetrics.Phase phase : DustViewMetrics.Phase.values()) {
+            InMemoryDustViewMetrics.PhaseMetrics phaseMetrics = metrics.getPhase(phase);
+            if (phaseMetrics.getCount() == 0 && phaseMetrics.getErrorCount() == 0) {
+                continue;
+            }
+            String prefix = phase.name() + ".";
+            statistics.put(prefix + "count", phaseMetrics.getCount());
+            statistics.put(prefix + "errorCount", phaseMetrics.getErrorCount());
+            statistics.put(prefix + "averageMicros", phaseMetrics.getAverageNanos() / 1000);
+            statistics.put(prefix + "maxMicros", phaseMetrics.getMaxNanos() / 1000);
+            statistics.put(prefix + "p50Micros", phaseMetrics.getLatencyPercentileMicros(50));
+            statistics.put(prefix + "p99Micros", phaseMetrics.getLatencyPercentileMicros(99));
+            statistics.put(prefix + "averageSize", phaseMetrics.getAverageSize());
+        }
+        statistics.put("cacheHitCount", metrics.getCacheHitCount());
+        statistics.put("cacheMissCount", metrics.getCacheMissCount());
+        return statistics;
+    }
+
+    public long[] getRenderLatencyHistogram(String templateKey) {
+        InMemoryDustViewMetrics.TemplateMetrics metrics = getTemplateMetrics(templateKey);
+        if (metrics == null) {
+            return new long[0];
+        }
+        return metrics.getPhase(DustViewMetrics.Phase.RENDER).getLatencyHistogram();
+    }
+
+    private InMemoryDustViewMetrics.TemplateMetrics getTemplateMetrics(String templateKey) {
+        if (!(view.getMetrics() instanceof InMemoryDustViewMetrics)) {
+            return null;
+        }
+        return ((InMemoryDustViewMetrics) view.getMetrics()).getTemplateMetrics(templateKey);
+    }
+
+    public boolean evictTemplate(String templateKey) {
+        return view.getViewSourceCacheProvider().remove(templateKey);
+    }
+
+    public int evictAllTemplates() {
+        int count = 0;
+        for (String templateKey : view.getTemplateKeys()) {
+            if (evictTemplate(templateKey)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void reloadTemplate(String templateKey) {
+        view.reloadTemplate(templateKey);
+    }
+
+    public boolean invalidateTemplate(String templateKey) {
+        return view.getTemplateInvalidator().invalidate(templateKey);
+    }
+
+    public String getRefreshMode() {
+        return view.getRefreshMode().name();
+    }
+
+    public long getScheduledReloadCount() {
+        return view.getTemplateInvalidator().getScheduledCount();
+    }
+
+    public long getSkippedReloadCount() {
+        return view.getTemplateInvalidator().getSkippedCount();
+    }
+
+    public long getFailedReloadCount() {
+        return view.getTemplateInvalidator().getFailedCount();
+    }
+
+    public long getRejectedRefreshCount() {
+        return view.getRejectedRefreshCount();
+    }
+}
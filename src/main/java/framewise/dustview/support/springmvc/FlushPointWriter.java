@@ -0,0 +1,87 @@
+package framewise.dustview.support.springmvc;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer that flush target writer when rendered markup contains flush point(ex. '&lt;/head&gt;').
+ * Using with streaming rendering, browser receive page head and start fetching CSS/JS while server renders body.
+ * Flush point written across several write call is detected too.
+ *
+ * @author chanwook
+ */
+public class FlushPointWriter extends Writer {
+
+    private final Writer target;
+    private final String[] flushPoints;
+    private final int keepLength;
+
+    // end of written markup, for detecting flush point across write call
+    private final StringBuilder tail = new StringBuilder();
+    private int flushCount = 0;
+
+    public FlushPointWriter(Writer target, String[] flushPoints) {
+        this.target = target;
+        this.flushPoints = flushPoints;
+
+        int maxLength = 0;
+        for (String flushPoint : flushPoints) {
+            maxLength = Math.max(maxLength, flushPoint.length());
+        }
+        this.keepLength = Math.max(maxLength - 1, 0);
+    }
+
+    @Override
+    public void write(String str) throws IOException {
+        target.write(str);
+        checkFlushPoint(str);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        write(str.substring(off, off + len));
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        write(new String(cbuf, off, len));
+    }
+
+    private void checkFlushPoint(String written) throws IOException {
+        if (written.length() == 0) {
+            return;
+        }
+
+        int tailLength = tail.length();
+        String window = tailLength == 0 ? written : tail + written;
+        for (String flushPoint : flushPoints) {
+            // flush point must end in written markup, because flush point in tail is already checked
+            int fromIndex = Math.max(tailLength - flushPoint.length() + 1, 0);
+            if (flushPoint.length() > 0 && window.indexOf(flushPoint, fromIndex) >= 0) {
+                flush();
+                flushCount++;
+                break;
+            }
+        }
+
+        tail.setLength(0);
+        tail.append(window, Math.max(window.length() - keepLength, 0), window.length());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        target.close();
+    }
+
+    /**
+     * @return count of flush by flush point
+     */
+    public int getFlushCount() {
+        return flushCount;
+    }
+}
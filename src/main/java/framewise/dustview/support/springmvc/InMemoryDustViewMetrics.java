@@ -0,0 +1,237 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.support.DustViewMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process registry of view metrics. Time, size, error count and latency histogram are kept
+ * per template key and phase, and view cache hit/miss per template key.
+ * Recording is lock-free, so this can be used in production.
+ *
+ * @author chanwook
+ */
+public class InMemoryDustViewMetrics implements DustViewMetrics {
+
+    private final ConcurrentMap<String, TemplateMetrics> templates = new ConcurrentHashMap<String, TemplateMetrics>();
+
+    public void recordPhase(String templateKey, Phase phase, long elapsedNanos, long size) {
+        getOrCreate(templateKey).getPhase(phase).record(elapsedNanos, size);
+    }
+
+    public void recordError(String templateKey, Phase phase) {
+        getOrCreate(templateKey).getPhase(phase).errorCount.incrementAndGet();
+    }
+
+    public void recordCache(String templateKey, boolean hit) {
+        TemplateMetrics metrics = getOrCreate(templateKey);
+        if (hit) {
+            metrics.cacheHitCount.incrementAndGet();
+        } else {
+            metrics.cacheMissCount.incrementAndGet();
+        }
+    }
+
+    private TemplateMetrics getOrCreate(String templateKey) {
+        TemplateMetrics metrics = templates.get(templateKey);
+        if (metrics == null) {
+            TemplateMetrics created = new TemplateMetrics(templateKey);
+            metrics = templates.putIfAbsent(templateKey, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    public Set<String> getTemplateKeys() {
+        return new TreeSet<String>(templates.keySet());
+    }
+
+    /**
+     * @param templateKey
+     * @return metrics of template, or null if nothing is recorded
+     */
+    public TemplateMetrics getTemplateMetrics(String templateKey) {
+        return templates.get(templateKey);
+    }
+
+    /**
+     * @param phase
+     * @param limit
+     * @return template key ordered by total time of phase (descending)
+     */
+    public List<String> getHotTemplates(final Phase phase, int limit) {
+        List<TemplateMetrics> sorted = new ArrayList<TemplateMetrics>(templates.values());
+        Collections.sort(sorted, new Comparator<TemplateMetrics>() {
+            @Override
+            public int compare(TemplateMetrics o1, TemplateMetrics o2) {
+                long total1 = o1.getPhase(phase).getTotalNanos();
+                long total2 = o2.getPhase(phase).getTotalNanos();
+                return total1 < total2 ? 1 : (total1 == total2 ? 0 : -1);
+            }
+        });
+
+        List<String> templateKeys = new ArrayList<String>();
+        for (TemplateMetrics metrics : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            templateKeys.add(metrics.getTemplateKey());
+        }
+        return templateKeys;
+    }
+
+    public void reset() {
+        templates.clear();
+    }
+
+    /**
+     * Metrics of one template
+     */
+    public static class TemplateMetrics {
+
+        private final String templateKey;
+        // every phase is created at first, then map is never modified
+        private final Map<Phase, PhaseMetrics> phases = new EnumMap<Phase, PhaseMetrics>(Phase.class);
+        private final AtomicLong cacheHitCount = new AtomicLong();
+        private final AtomicLong cacheMissCount = new AtomicLong();
+
+        TemplateMetrics(String templateKey) {
+            this.templateKey = templateKey;
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new PhaseMetrics());
+            }
+        }
+
+        public String getTemplateKey() {
+            return templateKey;
+        }
+
+        public PhaseMetrics getPhase(Phase phase) {
+            return phases.get(phase);
+        }
+
+        public long getCacheHitCount() {
+            return cacheHitCount.get();
+        }
+
+        public long getCacheMissCount() {
+            return cacheMissCount.get();
+        }
+    }
+
+    /**
+     * Metrics of one phase. Latency histogram has power of 2 bucket by microsecond.
+     * (bucket 0: 0us, bucket n: 2^(n-1) ~ 2^n - 1 us, last bucket: over)
+     */
+    public static class PhaseMetrics {
+
+        public static final int HISTOGRAM_BUCKETS = 24;
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong sizedCount = new AtomicLong();
+        private final AtomicLong totalSize = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        void record(long elapsedNanos, long size) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(elapsedNanos);
+            long max = maxNanos.get();
+            while (elapsedNanos > max && !maxNanos.compareAndSet(max, elapsedNanos)) {
+                max = maxNanos.get();
+            }
+            if (size >= 0) {
+                sizedCount.incrementAndGet();
+                totalSize.addAndGet(size);
+            }
+            histogram.incrementAndGet(bucketOf(elapsedNanos / 1000));
+        }
+
+        static int bucketOf(long micros) {
+            return Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, micros)));
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getAverageNanos() {
+            long currentCount = count.get();
+            return currentCount == 0 ? 0 : totalNanos.get() / currentCount;
+        }
+
+        public long getTotalSize() {
+            return totalSize.get();
+        }
+
+        public long getAverageSize() {
+            long currentCount = sizedCount.get();
+            return currentCount == 0 ? 0 : totalSize.get() / currentCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+
+        /**
+         * @return count per bucket
+         */
+        public long[] getLatencyHistogram() {
+            long[] counts = new long[HISTOGRAM_BUCKETS];
+            for (int index = 0; index < HISTOGRAM_BUCKETS; index++) {
+                counts[index] = histogram.get(index);
+            }
+            return counts;
+        }
+
+        /**
+         * @param percentile 0 ~ 100
+         * @return upper bound(microsecond) of bucket including percentile (approximate)
+         */
+        public long getLatencyPercentileMicros(double percentile) {
+            long[] counts = getLatencyHistogram();
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long accumulated = 0;
+            int index = 0;
+            for (; index < HISTOGRAM_BUCKETS - 1; index++) {
+                accumulated += counts[index];
+                if (accumulated >= rank) {
+                    break;
+                }
+            }
+            if (index == HISTOGRAM_BUCKETS - 1) {
+                // last bucket has no upper bound
+                return maxNanos.get() / 1000;
+            }
+            return index == 0 ? 0 : (1L << index) - 1;
+        }
+    }
+}
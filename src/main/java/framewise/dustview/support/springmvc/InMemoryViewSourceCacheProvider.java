@@ -1,22 +1,24 @@
 package framewise.dustview.support.springmvc;
 
 import framewise.dustview.support.ViewSourceCacheProvider;
+import framewise.dustview.support.ViewSourceCacheStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class will refresh when send to specific parameter.
+ * Cache is not bounded. For bounded cache, use {@link BoundedViewSourceCacheProvider}.
  *
  * @author chanwook
  */
-public class InMemoryViewSourceCacheProvider implements ViewSourceCacheProvider {
+public class InMemoryViewSourceCacheProvider implements ViewSourceCacheProvider, ViewSourceCacheStatistics {
 
     private final Logger logger = LoggerFactory.getLogger(InMemoryViewSourceCacheProvider.class);
 
-    private Map<String, String> cache = new HashMap<String, String>();
+    private Map<String, String> cache = new ConcurrentHashMap<String, String>();
 
     public boolean isCached(String key) {
         return cache.containsKey(key);
@@ -33,12 +35,16 @@ public class InMemoryViewSourceCacheProvider implements ViewSourceCacheProvider
         if (logger.isDebugEnabled()) {
             logger.debug("Add dust compiled resource to in-memory cache!(key: " + key + ", value: " + templateSource);
         }
+        if (templateSource == null) {
+            // concurrent map does not allow null
+            cache.remove(key);
+            return;
+        }
         cache.put(key, templateSource);
     }
 
     public boolean remove(String key) {
-        if (isCached(key)) {
-            cache.remove(key);
+        if (cache.remove(key) != null) {
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Delete cached resource!(key: " + key + ")");
@@ -53,4 +59,17 @@ public class InMemoryViewSourceCacheProvider implements ViewSourceCacheProvider
             return false;
         }
     }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getTotalBytes() {
+        long bytes = 0;
+        for (String templateSource : cache.values()) {
+            // char is 2 byte
+            bytes += templateSource.length() * 2L;
+        }
+        return bytes;
+    }
 }
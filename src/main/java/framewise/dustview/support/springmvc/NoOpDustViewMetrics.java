@@ -0,0 +1,20 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.support.DustViewMetrics;
+
+/**
+ * Default implementation for DustViewMetrics. Nothing is recorded.
+ *
+ * @author chanwook
+ */
+public class NoOpDustViewMetrics implements DustViewMetrics {
+
+    public void recordPhase(String templateKey, Phase phase, long elapsedNanos, long size) {
+    }
+
+    public void recordError(String templateKey, Phase phase) {
+    }
+
+    public void recordCache(String templateKey, boolean hit) {
+    }
+}
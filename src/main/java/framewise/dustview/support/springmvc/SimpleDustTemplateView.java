@@ -3,23 +3,45 @@ package framewise.dustview.support.springmvc;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import framewise.dustview.DustViewException;
+import framewise.dustview.core.CompiledTemplateRegistry;
 import framewise.dustview.core.DustTemplateEngine;
+import framewise.dustview.core.DustTemplateEngineManagement;
+import framewise.dustview.core.DustTemplateWarmer;
 import framewise.dustview.support.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.support.RequestContext;
 import org.springframework.web.servlet.view.JstlView;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static framewise.dustview.support.DustViewConstants.COMMON_FILE_EXTENSION_NAME;
 import static framewise.dustview.support.DustViewConstants.MULTI_LOAD_REQUEST;
@@ -29,13 +51,35 @@ import static framewise.dustview.support.DustViewConstants.MULTI_LOAD_REQUEST;
  *
  * @author chanwook
  */
-public class SimpleDustTemplateView extends JstlView {
+public class SimpleDustTemplateView extends JstlView implements DisposableBean {
 
     private final Logger logger = LoggerFactory.getLogger(SimpleDustTemplateView.class);
 
     public static final String DEFAULT_VIEW_ENCODING = "UTF-8";
     public static final String DEFAULT_EXPORT_VIEW_SOURCE_KEY = "_view";
     public static final String DEFAULT_EXPORT_JSON_KEY = "_json";
+    public static final String JMX_DOMAIN = "framewise.dustview";
+    public static final String REFRESH_PARAM = "_refresh";
+    public static final String REFRESH_TOKEN_PARAM = "_refreshToken";
+    public static final long DEFAULT_PARTIAL_RETRY_INTERVAL_MILLIS = 60 * 1000;
+
+    /**
+     * Handling of refresh parameter('_refresh=Y')
+     */
+    public enum RefreshMode {
+        /**
+         * template is reloaded at every refresh request (default). Use token or background mode in production
+         */
+        REQUEST,
+        /**
+         * template is reloaded by background thread at most once per interval, and request is not blocked
+         */
+        BACKGROUND,
+        /**
+         * refresh parameter is ignored
+         */
+        DISABLED
+    }
 
     private ObjectMapper jsonMapper = new ObjectMapper();
     private DustTemplateEngine dustEngine = new DustTemplateEngine(false);
@@ -54,15 +98,46 @@ public class SimpleDustTemplateView extends JstlView {
     private boolean compiled = true;
     private boolean multiLoad = false;
     private boolean commonLoad = false;
+    private boolean partialPreload = false;
+    private long partialRetryIntervalMillis = DEFAULT_PARTIAL_RETRY_INTERVAL_MILLIS;
+    // dependency version of template when every partial is loaded, then partials are not walked again
+    private Map<String, Long> preloadedVersions = new ConcurrentHashMap<String, Long>();
+    // time of failure to load partial, then partial is not loaded again in retry interval
+    private Map<String, Long> failedPartials = new ConcurrentHashMap<String, Long>();
+    private boolean directModel = false;
+    private boolean directOutput = false;
+    private String[] flushPoints = new String[0];
 
     private String commonViewPath;
 
+    private String warmUpSamplePath;
+    private int warmUpIterations = DustTemplateWarmer.DEFAULT_ITERATIONS;
+    private volatile boolean ready = false;
+
+    private String precompiledManifestPath;
+    private Set<String> precompiledTemplateKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     private ViewSourceCacheProvider viewSourceCacheProvider = new InMemoryViewSourceCacheProvider();
 
     private DustViewErrorHandler errorHandler = new DefaultDustViewErrorHandler();
 
     private DustViewInitializer initializer = new SimpleDustViewInitializer();
 
+    private DustViewMetrics metrics = new NoOpDustViewMetrics();
+
+    private boolean jmxEnabled = false;
+
+    private RefreshMode refreshMode = RefreshMode.REQUEST;
+    private String refreshToken;
+    private final AtomicLong rejectedRefreshCount = new AtomicLong();
+    private TemplateInvalidator templateInvalidator = new TemplateInvalidator(this);
+    private List<ObjectName> registeredMBeans = new ArrayList<ObjectName>();
+
+    /**
+     * View path of template loaded by view, then template can be reloaded by key
+     */
+    private Map<String, String> templateViewPaths = new ConcurrentHashMap<String, String>();
+
     /**
      * Resolve template file path by using JSP View url
      */
@@ -80,6 +155,19 @@ public class SimpleDustTemplateView extends JstlView {
         }
     }
 
+    /**
+     * Rhino context bound to request thread(persistent context mode) is released after rendering,
+     * so container thread does not keep context after request.
+     */
+    @Override
+    public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        try {
+            super.render(model, request, response);
+        } finally {
+            getDustEngine().releaseThreadContext();
+        }
+    }
+
     @Override
     protected Map<String, Object> createMergedOutputModel(final Map<String, ? extends Object> model, HttpServletRequest request, HttpServletResponse res) {
 
@@ -94,46 +182,266 @@ public class SimpleDustTemplateView extends JstlView {
             return mergedOutputModel;
         }
 
-        // create JSON Object that used to model at Dust VIEW
-        String json = createJson(templateKey, mergedOutputModel);
+        // phase is recorded to metrics (template loading records own phases)
+        DustViewMetrics.Phase phase = DustViewMetrics.Phase.PATH;
+        long start = System.nanoTime();
+        try {
+            if (directOutput) {
+                // rendering is executed by renderMergedOutputModel(), and is written to response directly
+                String viewPath = getViewPath(mergedOutputModel, request);
+                recordPhase(templateKey, phase, start, -1);
+                phase = null;
+                loadTemplateSource(request, templateKey, viewPath);
+                addResponseMoreInformation(res);
+                return mergedOutputModel;
+            }
 
-        // load template source
-        String viewPath = getViewPath(mergedOutputModel, request);
-        loadTemplateSource(request, templateKey, viewPath);
+            // create JSON Object that used to model at Dust VIEW (skip if passing model directly)
+            phase = DustViewMetrics.Phase.JSON;
+            Object contentModel = getDirectContentModel(mergedOutputModel);
+            String json = null;
+            if (contentModel == null) {
+                json = createJson(templateKey, mergedOutputModel);
+            }
+            start = recordPhase(templateKey, phase, start, json == null ? -1 : json.length());
+
+            // load template source
+            phase = DustViewMetrics.Phase.PATH;
+            String viewPath = getViewPath(mergedOutputModel, request);
+            recordPhase(templateKey, phase, start, -1);
+            phase = null;
+            loadTemplateSource(request, templateKey, viewPath);
+
+            // rendering view
+            phase = DustViewMetrics.Phase.RENDER;
+            start = System.nanoTime();
+            String renderHtml;
+            if (contentModel != null) {
+                renderHtml = renderingViewWithModel(templateKey, contentModel);
+            } else {
+                renderHtml = renderingView(templateKey, json);
+            }
+            start = recordPhase(templateKey, phase, start, renderHtml.length());
 
-        // rendering view
-        String renderHtml = renderingView(templateKey, json);
+            phase = DustViewMetrics.Phase.BINDING;
+            addResponseMoreInformation(res);
+            bindingResult(mergedOutputModel, json, renderHtml);
+            recordPhase(templateKey, phase, start, -1);
 
-        addResponseMoreInformation(res);
+            if (logger.isDebugEnabled()) {
+                logger.debug("[Dust View Rendering Result] " +
+                                "\n1) TemplateKey: " + templateKey +
+                                "\n2) Template File Path: " + viewPath +
+                                "\n3) Compiled HTML: " + viewPath +
+                                "\n4) JSON: " + json +
+                                "\n5) Final Rendering HTML: " + renderHtml
+                );
+            }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("[Dust View Rendering Result] " +
-                            "\n1) TemplateKey: " + templateKey +
-                            "\n2) Template File Path: " + viewPath +
-                            "\n3) Compiled HTML: " + viewPath +
-                            "\n4) JSON: " + json +
-                            "\n5) Final Rendering HTML: " + renderHtml
-            );
+            return mergedOutputModel;
+        } catch (RuntimeException e) {
+            if (phase != null) {
+                metrics.recordError(templateKey, phase);
+            }
+            throw e;
         }
+    }
+
+    /**
+     * Record phase to metrics
+     *
+     * @param templateKey
+     * @param phase
+     * @param start       start time of phase(nano time)
+     * @param size        size of phase result, or -1
+     * @return end time of phase, that can be start time of next phase
+     */
+    private long recordPhase(String templateKey, DustViewMetrics.Phase phase, long start, long size) {
+        long end = System.nanoTime();
+        metrics.recordPhase(templateKey, phase, end - start, size);
+        return end;
+    }
 
-        bindingResult(mergedOutputModel, json, renderHtml);
+    /**
+     * If direct output mode, stream rendering result to response without JSP forward.
+     * Otherwise forward to JSP same as {@link JstlView}.
+     */
+    @Override
+    protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String templateKey = getDustTemplateKey(model);
+        if (!directOutput || !StringUtils.hasText(templateKey)) {
+            super.renderMergedOutputModel(model, request, response);
+            return;
+        }
 
-        return mergedOutputModel;
+        Writer writer = response.getWriter();
+        if (flushPoints.length > 0) {
+            // send head of page to client while rendering body
+            writer = new FlushPointWriter(writer, flushPoints);
+        }
+        streamingView(templateKey, model, writer);
+        writer.flush();
+    }
+
+    /**
+     * Rendering with dust streaming. Markup is written to writer while rendering, so result is not buffered.
+     * If error occurred, markup written before error is already sent to client.
+     *
+     * @param templateKey
+     * @param model
+     * @param writer
+     */
+    protected void streamingView(String templateKey, Map<String, Object> model, Writer writer) {
+        long start = System.nanoTime();
+        Object contentModel = getDirectContentModel(model);
+        String json = null;
+        if (contentModel == null) {
+            try {
+                json = createJson(templateKey, model);
+            } catch (RuntimeException e) {
+                metrics.recordError(templateKey, DustViewMetrics.Phase.JSON);
+                throw e;
+            }
+        }
+        start = recordPhase(templateKey, DustViewMetrics.Phase.JSON, start, json == null ? -1 : json.length());
+
+        try {
+            StringWriter errorWriter = new StringWriter();
+            if (contentModel != null) {
+                getDustEngine().renderModelStream(writer, errorWriter, templateKey, contentModel);
+            } else {
+                getDustEngine().renderStream(writer, errorWriter, templateKey, json);
+            }
+
+            // will throw exception if occurred
+            errorHandler.handleError(templateKey, errorWriter, viewEncoding);
+            // streamed markup is not measured
+            recordPhase(templateKey, DustViewMetrics.Phase.RENDER, start, -1);
+        } catch (Exception e) {
+            metrics.recordError(templateKey, DustViewMetrics.Phase.RENDER);
+            throw new DustViewException("Fail to stream View Source(templateKey: " + templateKey + ")", e);
+        }
     }
 
     void loadTemplateSource(HttpServletRequest request, String templateKey, String viewPath) {
         boolean isRefresh = getRefreshParam(templateKey, request);
+        if (isRefresh && refreshMode == RefreshMode.BACKGROUND) {
+            // reloaded by background thread, and this request uses current template
+            // (template not loaded yet is loaded by this request as usual)
+            if (templateViewPaths.containsKey(templateKey)) {
+                templateInvalidator.invalidate(templateKey);
+            }
+            isRefresh = false;
+        }
         //TODO marge: single&multi load
         if (isMultiLoadRequest(request)) {
             loadMultiTemplateSource(viewPath, isRefresh);
+        } else if (precompiledTemplateKeys.contains(templateKey) && !isRefresh) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Using precompiled template(templateKey: " + templateKey + ")");
+            }
         } else {
             loadSingleTemplateSource(templateKey, viewPath, isRefresh);
+            if (isRefresh && logger.isInfoEnabled()) {
+                // only refreshed template is reloaded, and templates including it are marked by engine
+                logger.info("Template is refreshed (templateKey: " + templateKey +
+                        ", dependents: " + getDustEngine().getDependents(templateKey) + ")");
+            }
+        }
+
+        if (partialPreload) {
+            if (isRefresh) {
+                clearFailedPartials(templateKey);
+            }
+            preloadPartials(templateKey);
+        }
+    }
+
+    /**
+     * Partial failed to preload may be deployed with refreshed template, then only partials of refreshed template
+     * are loaded again before retry interval.
+     *
+     * @param templateKey
+     */
+    void clearFailedPartials(String templateKey) {
+        for (String partialKey : getDustEngine().getMissingPartials(templateKey)) {
+            failedPartials.remove(partialKey);
+        }
+    }
+
+    /**
+     * Load partial templates that are referenced by template(directly or through other partial) but not loaded yet.
+     * Missing partials are loaded in one batch before rendering, so rendering does not fail by missing partial.
+     * If partial can't be loaded, it is skipped and reported by dust at rendering, and is not loaded again
+     * in retry interval. Partials are not walked again until template or its partial is changed.
+     *
+     * @param templateKey
+     */
+    void preloadPartials(String templateKey) {
+        Long preloadedVersion = preloadedVersions.get(templateKey);
+        if (preloadedVersion != null && preloadedVersion == getDustEngine().getDependencyVersion(templateKey)) {
+            return;
+        }
+
+        Set<String> attempted = new HashSet<String>();
+        boolean skipped = false;
+        Set<String> missing = getDustEngine().getMissingPartials(templateKey);
+        while (!missing.isEmpty()) {
+            for (String partialKey : missing) {
+                attempted.add(partialKey);
+                if (isFailedPartial(partialKey)) {
+                    skipped = true;
+                    continue;
+                }
+                String partialViewPath = getPartialViewPath(partialKey);
+                try {
+                    loadSingleTemplateSource(partialKey, partialViewPath, false);
+                    failedPartials.remove(partialKey);
+                } catch (DustViewException e) {
+                    skipped = true;
+                    failedPartials.put(partialKey, System.currentTimeMillis());
+                    logger.warn("Fail to preload partial template, then retry after " + partialRetryIntervalMillis +
+                            "ms(templateKey: " + templateKey + ", partial: " + partialKey +
+                            ", viewPath: " + partialViewPath + ", cause: " + e.getMessage() + ")");
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Cause of failure to preload partial(partial: " + partialKey + ")", e);
+                    }
+                }
+            }
+
+            // partial of loaded partial
+            missing = getDustEngine().getMissingPartials(templateKey);
+            missing.removeAll(attempted);
+        }
+
+        if (!skipped) {
+            preloadedVersions.put(templateKey, getDustEngine().getDependencyVersion(templateKey));
+        }
+    }
+
+    private boolean isFailedPartial(String partialKey) {
+        Long failedTime = failedPartials.get(partialKey);
+        return failedTime != null && System.currentTimeMillis() - failedTime < partialRetryIntervalMillis;
+    }
+
+    /**
+     * View path of partial template. Partial is in common view path if it is set,
+     * otherwise view path is merged with prefix and suffix.
+     *
+     * @param partialKey
+     * @return
+     */
+    protected String getPartialViewPath(String partialKey) {
+        if (isCommonLoading()) {
+            String separator = commonViewPath.endsWith("/") ? "" : "/";
+            return commonViewPath + separator + partialKey + COMMON_FILE_EXTENSION_NAME;
         }
+        return mergeViewPath(partialKey);
     }
 
     public boolean isMultiLoadRequest(HttpServletRequest request) {
         Object result = request.getAttribute(MULTI_LOAD_REQUEST);
-        if (isMultiLoad() || (result != null && result instanceof Boolean && result == true)) {
+        if (isMultiLoad() || (result != null && result instanceof Boolean && (Boolean) result)) {
             return true;
         }
         return false;
@@ -171,26 +479,42 @@ public class SimpleDustTemplateView extends JstlView {
      * @return
      */
     protected boolean loadSingleTemplateSource(String templateKey, String viewPath, boolean isRefresh) {
+        long start = System.nanoTime();
         String templateSource = null;
         boolean useCache = false;
-        if (isCaching(isRefresh, templateKey)) {
-            templateSource = viewSourceCacheProvider.get(templateKey);
+        try {
+            if (isCaching(isRefresh, templateKey)) {
+                templateSource = viewSourceCacheProvider.get(templateKey);
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("Using cached view resource(templateKey: " + templateKey + ", viewPath: " + viewPath + ")");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Using cached view resource(templateKey: " + templateKey + ", viewPath: " + viewPath + ")");
+                }
+                useCache = true;
             }
-            useCache = true;
-        } else {
-            templateSource = viewTemplateLoader.loadTemplate(viewPath);
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("Load new view resource (templateKey: " + templateKey + ", viewPath: " + viewPath + ")");
-            }
+            // bounded cache can evict template between checking and reading
+            if (templateSource == null) {
+                useCache = false;
+                templateSource = viewTemplateLoader.loadTemplate(viewPath);
 
-            if (viewCacheable) {
-                viewSourceCacheProvider.add(templateKey, templateSource);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Load new view resource (templateKey: " + templateKey + ", viewPath: " + viewPath + ")");
+                }
+
+                if (viewCacheable) {
+                    viewSourceCacheProvider.add(templateKey, templateSource);
+                }
             }
+        } catch (RuntimeException e) {
+            metrics.recordError(templateKey, DustViewMetrics.Phase.FETCH);
+            throw e;
         }
+        if (viewCacheable) {
+            metrics.recordCache(templateKey, useCache);
+        }
+        recordPhase(templateKey, DustViewMetrics.Phase.FETCH, start, templateSource == null ? -1 : templateSource.length());
+        templateViewPaths.put(templateKey, viewPath);
+
         loadResourceToScriptEngine(templateKey, viewPath, templateSource);
         return useCache;
     }
@@ -228,14 +552,24 @@ public class SimpleDustTemplateView extends JstlView {
     }
 
     void loadResourceToScriptEngine(String templateKey, String viewPath, String templateSource) {
-        if (!compiled) {
-            //need compile html by dust.js
-            if (logger.isDebugEnabled()) {
-                logger.debug("Compile HTML to Dust Markup(" + templateKey + "): [Raw HTML Source] " + templateSource);
+        DustViewMetrics.Phase phase = DustViewMetrics.Phase.COMPILE;
+        long start = System.nanoTime();
+        try {
+            if (!compiled) {
+                //need compile html by dust.js
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Compile HTML to Dust Markup(" + templateKey + "): [Raw HTML Source] " + templateSource);
+                }
+                templateSource = getDustEngine().compile(templateKey, templateSource);
+                start = recordPhase(templateKey, phase, start, templateSource.length());
             }
-            templateSource = getDustEngine().compile(templateKey, templateSource);
+            phase = DustViewMetrics.Phase.LOAD;
+            getDustEngine().load(templateKey, templateSource);
+            recordPhase(templateKey, phase, start, templateSource.length());
+        } catch (RuntimeException e) {
+            metrics.recordError(templateKey, phase);
+            throw e;
         }
-        getDustEngine().load(templateKey, templateSource);
     }
 
     protected boolean isCaching(boolean isRefresh, String cacheKey) {
@@ -265,6 +599,20 @@ public class SimpleDustTemplateView extends JstlView {
         throw new IllegalArgumentException("JSON content must require! (request templteKey: " + templateKey + ")");
     }
 
+    /**
+     * Resolve content object that is passed to dust engine without JSON serialization.
+     * Return null if not direct model mode, or content object does not exist.
+     *
+     * @param model
+     * @return
+     */
+    protected Object getDirectContentModel(Map<String, Object> model) {
+        if (!directModel) {
+            return null;
+        }
+        return model.get(DustViewConstants.CONTENT_KEY);
+    }
+
     protected String createJsonFromText(String templateKey, Object jsonTextParam) {
         if (jsonTextParam instanceof String) {
             return (String) jsonTextParam;
@@ -311,9 +659,47 @@ public class SimpleDustTemplateView extends JstlView {
         }
     }
 
+    /**
+     * Create final view html with Java model. Model is not converted to JSON.
+     *
+     * @param templateKey
+     * @param contentModel
+     * @return
+     */
+    protected String renderingViewWithModel(String templateKey, Object contentModel) {
+        try {
+            StringWriter writer = new StringWriter();
+            StringWriter errorWriter = new StringWriter();
+
+            getDustEngine().renderModel(writer, errorWriter, templateKey, contentModel);
+
+            errorHandler.handleError(templateKey, errorWriter, viewEncoding);
+
+            return writer.getBuffer().toString();
+        } catch (Exception e) {
+            throw new DustViewException("Fail to create View Source(templateKey: " + templateKey + ")", e);
+        }
+    }
+
     boolean getRefreshParam(String templateKey, HttpServletRequest request) {
-        String param = request.getParameter("_refresh");
+        String param = request.getParameter(REFRESH_PARAM);
         if (param != null && "Y".equals(param.toUpperCase())) {
+            if (refreshMode == RefreshMode.DISABLED) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Ignore refresh request, because refresh parameter is disabled!(templateKey: " + templateKey + ")");
+                }
+                return false;
+            }
+            if (StringUtils.hasText(refreshToken) && !isValidRefreshToken(request.getParameter(REFRESH_TOKEN_PARAM))) {
+                // counted instead of warning, so repeated request by bot does not flood log
+                rejectedRefreshCount.incrementAndGet();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Ignore refresh request with invalid token!(templateKey: " + templateKey +
+                            ", remote address: " + request.getRemoteAddr() + ")");
+                }
+                return false;
+            }
+
             if (logger.isInfoEnabled()) {
                 logger.info("Request to refresh cached compiled resource!(templateKey: " + templateKey + ")");
             }
@@ -322,6 +708,17 @@ public class SimpleDustTemplateView extends JstlView {
         return false;
     }
 
+    /**
+     * Compare in constant time, so token is not guessed by response time
+     */
+    private boolean isValidRefreshToken(String token) {
+        if (token == null) {
+            return false;
+        }
+        Charset charset = Charset.forName(DEFAULT_VIEW_ENCODING);
+        return MessageDigest.isEqual(refreshToken.getBytes(charset), token.getBytes(charset));
+    }
+
     protected void addResponseMoreInformation(HttpServletResponse res) {
         res.addHeader("Accept-Charset", viewEncoding);
         res.setContentType(MediaType.TEXT_HTML_VALUE + ";charset=" + viewEncoding);
@@ -428,15 +825,227 @@ public class SimpleDustTemplateView extends JstlView {
     @Override
     public void afterPropertiesSet() throws Exception {
         super.afterPropertiesSet();
+        try {
+            initializeView();
+        } finally {
+            getDustEngine().releaseThreadContext();
+        }
+    }
 
+    private void initializeView() {
         initializer.initializeViewProperty(getAttributesMap(), this);
 
         // re-initializing context because change attribute!
         getDustEngine().initializeContext();
 
-        if (isCommonLoading()) {
+        if (isCommonLoading() && !partialPreload) {
+            // if preloading partial, common template is loaded when it is referenced
             loadCommonTemplateSource();
         }
+
+        if (StringUtils.hasText(precompiledManifestPath)) {
+            loadPrecompiledTemplateSource();
+        }
+
+        if (StringUtils.hasText(warmUpSamplePath)) {
+            warmUp();
+        }
+
+        if (jmxEnabled) {
+            registerMBeans();
+        }
+        ready = true;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        unregisterMBeans();
+        templateInvalidator.shutdown();
+        getDustEngine().close();
+    }
+
+    /**
+     * Register MBean of view and engine to platform MBean server.
+     * Name is 'framewise.dustview:type=DustTemplateView,name={beanName}' (and type=DustTemplateEngine)
+     */
+    void registerMBeans() {
+        String name = StringUtils.hasText(getBeanName()) ? getBeanName() :
+                getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
+        // view can be initialized again, then previous MBean(engine may be changed) is replaced
+        unregisterMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        registerMBean(server, new DustTemplateViewManagement(this), "DustTemplateView", name);
+        registerMBean(server, new DustTemplateEngineManagement(getDustEngine()), "DustTemplateEngine", name);
+    }
+
+    private void registerMBean(MBeanServer server, Object mbean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                logger.warn("MBean is already registered, then skip registering(name: " + objectName + ")");
+                return;
+            }
+            server.registerMBean(mbean, objectName);
+            registeredMBeans.add(objectName);
+
+            if (logger.isInfoEnabled()) {
+                logger.info("Register MBean(name: " + objectName + ")");
+            }
+        } catch (JMException e) {
+            throw new DustViewException("Fail to register MBean(type: " + type + ", name: " + name + ")", e);
+        }
+    }
+
+    void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registeredMBeans) {
+            try {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                logger.warn("Fail to unregister MBean(name: " + objectName + ")", e);
+            }
+        }
+        registeredMBeans.clear();
+    }
+
+    /**
+     * Read template from template loader again, and load it to engine. Template must be loaded by view before.
+     * If partial preload is enabled, failed partials of template are loaded again too.
+     *
+     * @param templateKey
+     */
+    public void reloadTemplate(String templateKey) {
+        String viewPath = templateViewPaths.get(templateKey);
+        if (viewPath == null) {
+            throw new DustViewException("Template is not loaded by view, then can't reload!(templateKey: " + templateKey + ")");
+        }
+        try {
+            loadSingleTemplateSource(templateKey, viewPath, true);
+            if (partialPreload) {
+                // partials are loaded by this thread, not by request
+                clearFailedPartials(templateKey);
+                preloadPartials(templateKey);
+            }
+        } finally {
+            // called by background or JMX thread
+            getDustEngine().releaseThreadContext();
+        }
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Template is reloaded (templateKey: " + templateKey +
+                    ", dependents: " + getDustEngine().getDependents(templateKey) + ")");
+        }
+    }
+
+    /**
+     * @return key of template loaded by view
+     */
+    public Set<String> getTemplateKeys() {
+        return new TreeSet<String>(templateViewPaths.keySet());
+    }
+
+    /**
+     * @param templateKey
+     * @return view path of template loaded by view, or null
+     */
+    public String getTemplateViewPath(String templateKey) {
+        return templateViewPaths.get(templateKey);
+    }
+
+    /**
+     * Render every loaded template with sample JSON data in warm-up sample path.
+     * Template having sample data is loaded before warming up, if not loaded yet.
+     */
+    void warmUp() {
+        DustTemplateWarmer warmer = new DustTemplateWarmer(resolveWarmUpSampleDirectory(), warmUpIterations);
+        warmer.setEncoding(viewEncoding);
+
+        for (String templateKey : warmer.getSampleTemplateKeys()) {
+            if (getDustEngine().getTemplateVersion(templateKey) != CompiledTemplateRegistry.NOT_REGISTERED_VERSION) {
+                continue;
+            }
+            try {
+                loadSingleTemplateSource(templateKey, mergeViewPath(templateKey), false);
+                if (partialPreload) {
+                    preloadPartials(templateKey);
+                }
+            } catch (DustViewException e) {
+                logger.warn("Fail to load template for warming up(templateKey: " + templateKey + ")", e);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, Long> timings = warmer.warmUp(getDustEngine());
+        if (logger.isInfoEnabled()) {
+            logger.info("Warm up is completed (template count: " + timings.size() + ", iterations: " + warmUpIterations +
+                    ", elapsed: " + (System.currentTimeMillis() - start) + "ms)");
+        }
+    }
+
+    private File resolveWarmUpSampleDirectory() {
+        File directory = new File(warmUpSamplePath);
+        if (directory.isDirectory()) {
+            return directory;
+        }
+
+        try {
+            return new ClassPathResource(warmUpSamplePath).getFile();
+        } catch (IOException e) {
+            throw new DustViewException("Could not find warm-up sample directory!(path: " + warmUpSamplePath + ")", e);
+        }
+    }
+
+    /**
+     * @return true if view is initialized and warm-up is completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Load all of precompiled template in manifest(created by dustview-maven-plugin) to engine.
+     * Precompiled template is not loaded(and compiled) at request time.
+     */
+    void loadPrecompiledTemplateSource() {
+        DustTemplateManifest manifest = new DustTemplateManifest();
+        ClassPathResource manifestResource = new ClassPathResource(precompiledManifestPath);
+        InputStream input = null;
+        try {
+            input = manifestResource.getInputStream();
+            manifest.load(input);
+
+            for (String templateKey : manifest.getTemplateKeys()) {
+                Resource compiledResource = manifestResource.createRelative(manifest.getPath(templateKey));
+                getDustEngine().load(templateKey, readResource(compiledResource));
+                precompiledTemplateKeys.add(templateKey);
+            }
+
+            if (logger.isInfoEnabled()) {
+                logger.info("Load precompiled template source(manifest path: " + precompiledManifestPath +
+                        ", template count: " + manifest.size() + ")");
+            }
+        } catch (IOException e) {
+            throw new DustViewException("Fail to load precompiled template!(manifest path: " + precompiledManifestPath + ")", e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    logger.warn("Fail to close manifest file(" + precompiledManifestPath + ")", e);
+                }
+            }
+        }
+    }
+
+    private String readResource(Resource resource) throws IOException {
+        InputStream input = resource.getInputStream();
+        try {
+            return StreamUtils.copyToString(input, Charset.forName(viewEncoding));
+        } finally {
+            input.close();
+        }
     }
 
     void loadCommonTemplateSource() {
@@ -447,6 +1056,14 @@ public class SimpleDustTemplateView extends JstlView {
     }
 
     /* -- Getter & Setter -- */
+    public String getPrecompiledManifestPath() {
+        return precompiledManifestPath;
+    }
+
+    public void setPrecompiledManifestPath(String precompiledManifestPath) {
+        this.precompiledManifestPath = precompiledManifestPath;
+    }
+
     public String getCommonViewPath() {
         return commonViewPath;
     }
@@ -555,6 +1172,55 @@ public class SimpleDustTemplateView extends JstlView {
         this.mergePath = mergePath;
     }
 
+    public RefreshMode getRefreshMode() {
+        return refreshMode;
+    }
+
+    public void setRefreshMode(RefreshMode refreshMode) {
+        this.refreshMode = refreshMode;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * @param refreshToken if set, refresh parameter is accepted only with same '_refreshToken' parameter
+     */
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    /**
+     * @return count of refresh request ignored by invalid token
+     */
+    public long getRejectedRefreshCount() {
+        return rejectedRefreshCount.get();
+    }
+
+    /**
+     * @return invalidator reloading template in background (can be used by application directly)
+     */
+    public TemplateInvalidator getTemplateInvalidator() {
+        return templateInvalidator;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public DustViewMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(DustViewMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public DustViewInitializer getInitializer() {
         return initializer;
     }
@@ -571,6 +1237,95 @@ public class SimpleDustTemplateView extends JstlView {
         this.compiled = compiled;
     }
 
+    public boolean isDirectModel() {
+        return directModel;
+    }
+
+    /**
+     * If true, content object(_CONTENT_KEY) is passed to dust engine directly without JSON serialization.
+     * JSON text is not exported to model.
+     *
+     * @param directModel
+     */
+    public void setDirectModel(boolean directModel) {
+        this.directModel = directModel;
+    }
+
+    public boolean isDirectOutput() {
+        return directOutput;
+    }
+
+    /**
+     * If true, rendering result is streamed to response writer directly.
+     * JSP is not forwarded, and rendered view is not exported to model.
+     *
+     * @param directOutput
+     */
+    public void setDirectOutput(boolean directOutput) {
+        this.directOutput = directOutput;
+    }
+
+    public String[] getFlushPoints() {
+        return flushPoints;
+    }
+
+    /**
+     * Markup that response is flushed after it is written(ex. '&lt;/head&gt;'). Only used with direct output mode.
+     * In template, '{@flush/}' helper flush response at that point.
+     *
+     * @param flushPoints
+     */
+    public void setFlushPoints(String[] flushPoints) {
+        this.flushPoints = flushPoints;
+    }
+
+    public String getWarmUpSamplePath() {
+        return warmUpSamplePath;
+    }
+
+    /**
+     * Directory of sample JSON data('{templateKey}.json') for warming up. (file system or classpath)
+     * If set, every loaded template is rendered with sample data when view is initialized.
+     *
+     * @param warmUpSamplePath
+     */
+    public void setWarmUpSamplePath(String warmUpSamplePath) {
+        this.warmUpSamplePath = warmUpSamplePath;
+    }
+
+    public int getWarmUpIterations() {
+        return warmUpIterations;
+    }
+
+    public void setWarmUpIterations(int warmUpIterations) {
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    public boolean isPartialPreload() {
+        return partialPreload;
+    }
+
+    /**
+     * If true, partial template referenced by template is loaded before rendering,
+     * and templates in common view path are not loaded at startup.
+     *
+     * @param partialPreload
+     */
+    public void setPartialPreload(boolean partialPreload) {
+        this.partialPreload = partialPreload;
+    }
+
+    public long getPartialRetryIntervalMillis() {
+        return partialRetryIntervalMillis;
+    }
+
+    /**
+     * @param partialRetryIntervalMillis interval of loading partial again after failure of preloading
+     */
+    public void setPartialRetryIntervalMillis(long partialRetryIntervalMillis) {
+        this.partialRetryIntervalMillis = partialRetryIntervalMillis;
+    }
+
     public boolean isMultiLoad() {
         return multiLoad;
     }
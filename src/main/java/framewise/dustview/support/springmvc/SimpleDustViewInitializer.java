@@ -1,10 +1,21 @@
 package framewise.dustview.support.springmvc;
 
+import framewise.dustview.core.DustScriptCache;
+import framewise.dustview.core.DustScriptRuntime;
+import framewise.dustview.core.DustSharedScope;
 import framewise.dustview.core.DustTemplateEngine;
+import framewise.dustview.core.FileSystemDustCompileCache;
+import framewise.dustview.core.GraalJsDustScriptRuntime;
+import framewise.dustview.core.PooledDustTemplateEngine;
+import framewise.dustview.core.RenderedOutputCache;
+import framewise.dustview.core.tree.DustTreeRenderer;
 import framewise.dustview.support.DustTemplateLoader;
 import framewise.dustview.support.DustViewInitializer;
+import framewise.dustview.support.DustViewMetrics;
 import framewise.dustview.support.ViewSourceCacheProvider;
+import org.springframework.util.StringUtils;
 
+import java.io.File;
 import java.util.Map;
 
 import static framewise.dustview.support.DustViewConstants.*;
@@ -22,6 +33,14 @@ public class SimpleDustViewInitializer implements DustViewInitializer {
      * @param view
      */
     public void initializeViewProperty(Map<String, Object> attributesMap, SimpleDustTemplateView view) {
+        // must be first, because engine configuration is applied to pooled engine
+        if (attributesMap.get(DUST_ENGINE_POOL_SIZE) != null && attributesMap.get(DUST_ENGINE_POOL_SIZE) instanceof String) {
+            String poolSize = (String) attributesMap.get(DUST_ENGINE_POOL_SIZE);
+            if (isPositiveNumber(poolSize)) {
+                view.setDustEngine(new PooledDustTemplateEngine(Integer.parseInt(poolSize), false));
+            }
+        }
+
         if (attributesMap.get(TEMPLATE_LOADER) != null && attributesMap.get(TEMPLATE_LOADER) instanceof DustTemplateLoader) {
             view.setViewTemplateLoader((DustTemplateLoader) attributesMap.get(TEMPLATE_LOADER));
         }
@@ -42,6 +61,13 @@ public class SimpleDustViewInitializer implements DustViewInitializer {
             view.setViewSourceCacheProvider((ViewSourceCacheProvider) attributesMap.get(CACHE_PROVIDER));
         }
 
+        if (attributesMap.get(VIEW_CACHE_MAX_BYTES) != null && attributesMap.get(VIEW_CACHE_MAX_BYTES) instanceof String) {
+            String maxBytes = (String) attributesMap.get(VIEW_CACHE_MAX_BYTES);
+            if (isPositiveNumber(maxBytes)) {
+                view.setViewSourceCacheProvider(new BoundedViewSourceCacheProvider(Long.parseLong(maxBytes)));
+            }
+        }
+
         if (attributesMap.get(VIEW_CACHEABLE) != null && attributesMap.get(VIEW_CACHEABLE) instanceof String) {
             String cacheable = (String) attributesMap.get(VIEW_CACHEABLE);
             if (isBooleanValue(cacheable)) {
@@ -80,12 +106,197 @@ public class SimpleDustViewInitializer implements DustViewInitializer {
             view.setCommonViewPath(commonViewPath);
         }
 
+        if (attributesMap.get(PARTIAL_PRELOAD) != null && attributesMap.get(PARTIAL_PRELOAD) instanceof String) {
+            String partialPreload = (String) attributesMap.get(PARTIAL_PRELOAD);
+            if (isBooleanValue(partialPreload)) {
+                view.setPartialPreload(Boolean.valueOf(partialPreload.toLowerCase()));
+            }
+        }
+
+        if (attributesMap.get(PRECOMPILED_MANIFEST) != null &&
+                attributesMap.get(PRECOMPILED_MANIFEST) instanceof String) {
+            view.setPrecompiledManifestPath((String) attributesMap.get(PRECOMPILED_MANIFEST));
+        }
+
+        if (attributesMap.get(WARM_UP_SAMPLE_PATH) != null && attributesMap.get(WARM_UP_SAMPLE_PATH) instanceof String) {
+            view.setWarmUpSamplePath((String) attributesMap.get(WARM_UP_SAMPLE_PATH));
+        }
+
+        if (attributesMap.get(WARM_UP_ITERATIONS) != null && attributesMap.get(WARM_UP_ITERATIONS) instanceof String) {
+            String iterations = (String) attributesMap.get(WARM_UP_ITERATIONS);
+            if (isPositiveNumber(iterations)) {
+                view.setWarmUpIterations(Integer.parseInt(iterations));
+            }
+        }
+
         if (attributesMap.get(DUST_ENGINE_OBJECT) != null &&
                 attributesMap.get(DUST_ENGINE_OBJECT) instanceof DustTemplateEngine) {
             DustTemplateEngine engine = (DustTemplateEngine) attributesMap.get(DUST_ENGINE_OBJECT);
             view.setDustEngine(engine);
         }
 
+        if (attributesMap.get(DUST_SCRIPT_RUNTIME) != null) {
+            Object scriptRuntime = attributesMap.get(DUST_SCRIPT_RUNTIME);
+            if (scriptRuntime instanceof DustScriptRuntime) {
+                view.getDustEngine().setScriptRuntime((DustScriptRuntime) scriptRuntime);
+            } else if ("graaljs".equalsIgnoreCase(String.valueOf(scriptRuntime))) {
+                view.getDustEngine().setScriptRuntime(new GraalJsDustScriptRuntime());
+            } else if ("rhino".equalsIgnoreCase(String.valueOf(scriptRuntime))) {
+                view.getDustEngine().setScriptRuntime(null);
+            }
+        }
+
+        if (attributesMap.get(DUST_TREE_RENDERER) != null) {
+            Object treeRenderer = attributesMap.get(DUST_TREE_RENDERER);
+            if (treeRenderer instanceof DustTreeRenderer) {
+                view.getDustEngine().setTreeRenderer((DustTreeRenderer) treeRenderer);
+            } else if (treeRenderer instanceof String && isBooleanValue((String) treeRenderer)) {
+                boolean useTreeRenderer = Boolean.valueOf(((String) treeRenderer).toLowerCase());
+                view.getDustEngine().setTreeRenderer(useTreeRenderer ? new DustTreeRenderer() : null);
+            }
+        }
+
+        if (attributesMap.get(DUST_TIERED_COMPILE_THRESHOLD) != null &&
+                attributesMap.get(DUST_TIERED_COMPILE_THRESHOLD) instanceof String) {
+            String threshold = (String) attributesMap.get(DUST_TIERED_COMPILE_THRESHOLD);
+            if (isPositiveNumber(threshold)) {
+                view.getDustEngine().setTieredCompileThreshold(Integer.parseInt(threshold));
+            }
+        }
+
+        if (attributesMap.get(DUST_TIERED_OPTIMIZATION_LEVEL) != null &&
+                attributesMap.get(DUST_TIERED_OPTIMIZATION_LEVEL) instanceof String) {
+            String level = (String) attributesMap.get(DUST_TIERED_OPTIMIZATION_LEVEL);
+            if (level.matches("[0-9]")) {
+                view.getDustEngine().setTieredOptimizationLevel(Integer.parseInt(level));
+            }
+        }
+
+        if (attributesMap.get(RENDER_CACHE) != null) {
+            Object renderCache = attributesMap.get(RENDER_CACHE);
+            if (renderCache instanceof RenderedOutputCache) {
+                view.getDustEngine().setRenderedOutputCache((RenderedOutputCache) renderCache);
+            } else if (renderCache instanceof String && isBooleanValue((String) renderCache)) {
+                boolean useRenderCache = Boolean.valueOf(((String) renderCache).toLowerCase());
+                view.getDustEngine().setRenderedOutputCache(useRenderCache ? new RenderedOutputCache() : null);
+            }
+        }
+
+        RenderedOutputCache renderedOutputCache = view.getDustEngine().getRenderedOutputCache();
+        if (renderedOutputCache != null) {
+            if (attributesMap.get(RENDER_CACHE_SIZE) instanceof String && isPositiveNumber((String) attributesMap.get(RENDER_CACHE_SIZE))) {
+                renderedOutputCache.setMaxEntries(Integer.parseInt((String) attributesMap.get(RENDER_CACHE_SIZE)));
+            }
+            if (attributesMap.get(RENDER_CACHE_TTL) instanceof String && isPositiveNumber((String) attributesMap.get(RENDER_CACHE_TTL))) {
+                // seconds
+                renderedOutputCache.setTtlMillis(Long.parseLong((String) attributesMap.get(RENDER_CACHE_TTL)) * 1000);
+            }
+            if (attributesMap.get(RENDER_CACHE_MAX_BYTES) instanceof String && isPositiveNumber((String) attributesMap.get(RENDER_CACHE_MAX_BYTES))) {
+                renderedOutputCache.setMaxBytes(Long.parseLong((String) attributesMap.get(RENDER_CACHE_MAX_BYTES)));
+            }
+        }
+
+        if (attributesMap.get(RENDER_SINGLE_FLIGHT) != null && attributesMap.get(RENDER_SINGLE_FLIGHT) instanceof String) {
+            String singleFlight = (String) attributesMap.get(RENDER_SINGLE_FLIGHT);
+            if (isBooleanValue(singleFlight)) {
+                view.getDustEngine().setSingleFlightRendering(Boolean.valueOf(singleFlight.toLowerCase()));
+            }
+        }
+
+        if (attributesMap.get(FRAGMENT_CACHE) != null) {
+            Object fragmentCache = attributesMap.get(FRAGMENT_CACHE);
+            if (fragmentCache instanceof RenderedOutputCache) {
+                view.getDustEngine().setFragmentCache((RenderedOutputCache) fragmentCache);
+            } else if (fragmentCache instanceof String && isBooleanValue((String) fragmentCache)) {
+                view.getDustEngine().setFragmentCache(
+                        Boolean.valueOf(((String) fragmentCache).toLowerCase()) ? new RenderedOutputCache() : null);
+            }
+        }
+
+        if (attributesMap.get(DUST_SHARED_SCOPE) != null) {
+            Object sharedScope = attributesMap.get(DUST_SHARED_SCOPE);
+            if (sharedScope instanceof DustSharedScope) {
+                view.getDustEngine().setSharedScope((DustSharedScope) sharedScope);
+            } else if (sharedScope instanceof String && view.getDustEngine() instanceof PooledDustTemplateEngine) {
+                if (isBooleanValue((String) sharedScope)) {
+                    ((PooledDustTemplateEngine) view.getDustEngine()).setShareCoreScope(Boolean.valueOf(((String) sharedScope).toLowerCase()));
+                }
+            }
+        }
+
+        if (attributesMap.get(DUST_PERSISTENT_CONTEXT) != null && attributesMap.get(DUST_PERSISTENT_CONTEXT) instanceof String) {
+            String persistentContext = (String) attributesMap.get(DUST_PERSISTENT_CONTEXT);
+            if (isBooleanValue(persistentContext)) {
+                view.getDustEngine().setPersistentContext(Boolean.valueOf(persistentContext.toLowerCase()));
+            }
+        }
+
+        if (attributesMap.get(DUST_SCRIPT_CACHE_DIRECTORY) != null &&
+                attributesMap.get(DUST_SCRIPT_CACHE_DIRECTORY) instanceof String) {
+            String directory = (String) attributesMap.get(DUST_SCRIPT_CACHE_DIRECTORY);
+            view.getDustEngine().setScriptCache(new DustScriptCache(new File(directory)));
+        }
+
+        if (attributesMap.get(DUST_COMPILE_CACHE_DIRECTORY) != null &&
+                attributesMap.get(DUST_COMPILE_CACHE_DIRECTORY) instanceof String) {
+            String directory = (String) attributesMap.get(DUST_COMPILE_CACHE_DIRECTORY);
+            view.getDustEngine().setCompileCache(new FileSystemDustCompileCache(new File(directory)));
+        }
+
+        if (attributesMap.get(DIRECT_MODEL) != null && attributesMap.get(DIRECT_MODEL) instanceof String) {
+            String directModel = (String) attributesMap.get(DIRECT_MODEL);
+            if (isBooleanValue(directModel)) {
+                view.setDirectModel(Boolean.valueOf(directModel.toLowerCase()));
+            }
+        }
+
+        if (attributesMap.get(DIRECT_OUTPUT) != null && attributesMap.get(DIRECT_OUTPUT) instanceof String) {
+            String directOutput = (String) attributesMap.get(DIRECT_OUTPUT);
+            if (isBooleanValue(directOutput)) {
+                view.setDirectOutput(Boolean.valueOf(directOutput.toLowerCase()));
+            }
+        }
+
+        if (attributesMap.get(FLUSH_POINTS) != null && attributesMap.get(FLUSH_POINTS) instanceof String) {
+            view.setFlushPoints(StringUtils.commaDelimitedListToStringArray((String) attributesMap.get(FLUSH_POINTS)));
+        }
+
+        if (attributesMap.get(METRICS) != null) {
+            Object metrics = attributesMap.get(METRICS);
+            if (metrics instanceof DustViewMetrics) {
+                view.setMetrics((DustViewMetrics) metrics);
+            } else if (metrics instanceof String && isBooleanValue((String) metrics)) {
+                boolean useMetrics = Boolean.valueOf(((String) metrics).toLowerCase());
+                view.setMetrics(useMetrics ? new InMemoryDustViewMetrics() : new NoOpDustViewMetrics());
+            }
+        }
+
+        if (attributesMap.get(JMX_ENABLED) != null && attributesMap.get(JMX_ENABLED) instanceof String) {
+            String jmxEnabled = (String) attributesMap.get(JMX_ENABLED);
+            if (isBooleanValue(jmxEnabled)) {
+                view.setJmxEnabled(Boolean.valueOf(jmxEnabled.toLowerCase()));
+            }
+        }
+
+        if (attributesMap.get(REFRESH_MODE) != null && attributesMap.get(REFRESH_MODE) instanceof String) {
+            String refreshMode = ((String) attributesMap.get(REFRESH_MODE)).toUpperCase();
+            if (refreshMode.matches("REQUEST|BACKGROUND|DISABLED")) {
+                view.setRefreshMode(SimpleDustTemplateView.RefreshMode.valueOf(refreshMode));
+            }
+        }
+
+        if (attributesMap.get(REFRESH_INTERVAL) != null && attributesMap.get(REFRESH_INTERVAL) instanceof String) {
+            String interval = (String) attributesMap.get(REFRESH_INTERVAL);
+            if (isPositiveNumber(interval)) {
+                // seconds
+                view.getTemplateInvalidator().setIntervalMillis(Long.parseLong(interval) * 1000);
+            }
+        }
+
+        if (attributesMap.get(REFRESH_TOKEN) != null && attributesMap.get(REFRESH_TOKEN) instanceof String) {
+            view.setRefreshToken((String) attributesMap.get(REFRESH_TOKEN));
+        }
+
         if (attributesMap.get(MULTI_LOAD) != null && attributesMap.get(MULTI_LOAD) instanceof String) {
             String multiLoad = (String) attributesMap.get(MULTI_LOAD);
             if (isBooleanValue(multiLoad)) {
@@ -97,4 +308,8 @@ public class SimpleDustViewInitializer implements DustViewInitializer {
     private boolean isBooleanValue(String value) {
         return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
     }
+
+    private boolean isPositiveNumber(String value) {
+        return value.matches("[1-9][0-9]{0,8}");
+    }
 }
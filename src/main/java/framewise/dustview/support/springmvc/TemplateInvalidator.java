@@ -0,0 +1,184 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.DustViewException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reload template of view in background thread, instead of reloading at request.
+ * Template is reloaded at most once per key in interval, and invalidation requested while reload is pending
+ * or in interval is skipped. So repeated refresh request is coalesced into one reload.
+ *
+ * @author chanwook
+ */
+public class TemplateInvalidator {
+
+    private final Logger logger = LoggerFactory.getLogger(TemplateInvalidator.class);
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 10 * 1000;
+
+    private final SimpleDustTemplateView view;
+    private long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+
+    // thread is created at first invalidation
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new InvalidatorThreadFactory());
+
+    private final ConcurrentMap<String, Long> lastScheduledTimes = new ConcurrentHashMap<String, Long>();
+    private final Set<String> pendingKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public TemplateInvalidator(SimpleDustTemplateView view) {
+        this.view = view;
+    }
+
+    /**
+     * Schedule reload of template. Request thread is not blocked.
+     *
+     * @param templateKey
+     * @return true if reload is scheduled, false if skipped(pending, or reloaded in interval)
+     */
+    public boolean invalidate(final String templateKey) {
+        long now = System.currentTimeMillis();
+        Long lastScheduled = lastScheduledTimes.get(templateKey);
+        if ((lastScheduled != null && now - lastScheduled < intervalMillis) || pendingKeys.contains(templateKey)) {
+            return skip(templateKey);
+        }
+        // only one caller wins in same interval
+        boolean acquired = lastScheduled == null ?
+                lastScheduledTimes.putIfAbsent(templateKey, now) == null :
+                lastScheduledTimes.replace(templateKey, lastScheduled, now);
+        if (!acquired || !pendingKeys.add(templateKey)) {
+            return skip(templateKey);
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    reload(templateKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingKeys.remove(templateKey);
+            throw new DustViewException("Template invalidator is shut down!(templateKey: " + templateKey + ")", e);
+        }
+        scheduledCount.incrementAndGet();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Schedule reloading template (templateKey: " + templateKey + ")");
+        }
+        return true;
+    }
+
+    /**
+     * Invalidate every template loaded by view
+     *
+     * @return count of scheduled template
+     */
+    public int invalidateAll() {
+        int count = 0;
+        for (String templateKey : view.getTemplateKeys()) {
+            if (invalidate(templateKey)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean skip(String templateKey) {
+        skippedCount.incrementAndGet();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Skip reloading template, because reload is pending or done in interval (templateKey: " + templateKey + ")");
+        }
+        return false;
+    }
+
+    private void reload(String templateKey) {
+        try {
+            view.reloadTemplate(templateKey);
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            logger.warn("Fail to reload template in background (templateKey: " + templateKey + ")", e);
+        } finally {
+            pendingKeys.remove(templateKey);
+        }
+    }
+
+    /**
+     * Stop background thread. Scheduled reload is not executed.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Wait until scheduled reloads are done (for test and shutdown)
+     *
+     * @param timeoutMillis
+     * @return false if timeout
+     */
+    public boolean awaitPending(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!pendingKeys.isEmpty()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+
+    public int getPendingCount() {
+        return pendingKeys.size();
+    }
+
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @param intervalMillis minimum interval of reloading same template
+     */
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    private static class InvalidatorThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "dustview-invalidator-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
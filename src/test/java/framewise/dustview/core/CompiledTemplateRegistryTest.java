@@ -0,0 +1,59 @@
+package framewise.dustview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for CompiledTemplateRegistry class
+ *
+ * @author chanwook
+ */
+public class CompiledTemplateRegistryTest {
+
+    @Test
+    public void registerAndVersion() {
+        CompiledTemplateRegistry registry = new CompiledTemplateRegistry();
+        assertFalse(registry.isRegistered("t1", "source1"));
+        assertEquals(CompiledTemplateRegistry.NOT_REGISTERED_VERSION, registry.getVersion("t1"));
+
+        long version = registry.register("t1", "source1");
+        assertTrue(registry.isRegistered("t1", "source1"));
+        assertTrue(registry.isRegistered("t1", new String("source1")));
+        assertEquals(Fingerprints.of("source1"), registry.getFingerprint("t1"));
+        assertEquals(version, registry.getVersion("t1"));
+
+        // same source, then version is kept
+        assertEquals(version, registry.register("t1", new String("source1")));
+
+        // other key with same source is not registered
+        assertFalse(registry.isRegistered("t2", "source1"));
+
+        // changed source
+        long changed = registry.register("t1", "source2");
+        assertTrue(changed > version);
+        assertFalse(registry.isRegistered("t1", "source1"));
+        assertEquals("source2", registry.get("t1").getCompiledSource());
+
+        assertTrue(registry.remove("t1"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void engineTemplateVersion() {
+        DustTemplateEngine e = new DustTemplateEngine();
+        assertEquals(-1, e.getTemplateVersion("version"));
+
+        e.load("version", e.compile("version", "v1"));
+        long version = e.getTemplateVersion("version");
+        assertTrue(version > 0);
+        assertTrue(e.getLoadedTemplateKeys().contains("version"));
+
+        e.load("version", e.compile("version", "v2"));
+        assertTrue(e.getTemplateVersion("version") > version);
+
+        // dust script is evaluated again, then template must be loaded again
+        e.initializeContext();
+        assertEquals(-1, e.getTemplateVersion("version"));
+    }
+}
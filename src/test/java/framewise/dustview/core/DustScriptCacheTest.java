@@ -0,0 +1,70 @@
+package framewise.dustview.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for DustScriptCache class
+ *
+ * @author chanwook
+ */
+public class DustScriptCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reuseCompiledScript() {
+        DustScriptCache cache = new DustScriptCache();
+
+        DustTemplateEngine e1 = createEngine(cache, -1);
+        assertEquals(1, cache.size());
+
+        DustTemplateEngine e2 = createEngine(cache, -1);
+        assertEquals(1, cache.size());
+
+        assertEquals("Hello chanwook!", render(e1));
+        assertEquals("Hello chanwook!", render(e2));
+
+        // different optimization level is compiled again
+        createEngine(cache, 9);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void saveClassCache() throws Exception {
+        File directory = folder.newFolder("script-cache");
+
+        DustTemplateEngine e1 = createEngine(new DustScriptCache(directory), 9);
+        assertEquals("Hello chanwook!", render(e1));
+        assertEquals(1, directory.listFiles().length);
+        assertTrue(directory.listFiles()[0].getName().endsWith(".classes"));
+
+        // new cache(ex. after restart) load generated class in directory
+        DustTemplateEngine e2 = createEngine(new DustScriptCache(directory), 9);
+        assertEquals("Hello chanwook!", render(e2));
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    private DustTemplateEngine createEngine(DustScriptCache cache, int optimizationLevel) {
+        DustTemplateEngine engine = new DustTemplateEngine(false);
+        engine.setScriptCache(cache);
+        engine.setOptimizationLevel(optimizationLevel);
+        engine.initializeContext();
+        return engine;
+    }
+
+    private String render(DustTemplateEngine engine) {
+        engine.load("hello", engine.compile("hello", "Hello {name}!"));
+        StringWriter writer = new StringWriter();
+        engine.render(writer, new StringWriter(), "hello", "{\"name\":\"chanwook\"}");
+        return writer.toString();
+    }
+}
@@ -2,17 +2,27 @@ package framewise.dustview.core;
 
 import org.junit.Test;
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.EvaluatorException;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.Scriptable;
 
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Test for DustTemplateEngine class
@@ -193,4 +203,300 @@ public class DustTemplateEngineTest {
 
         assertEquals("<h1>masterDust</h1><h1>partial1</h1><h1>partial2</h1>", response.toString());
     }
+
+    @Test
+    public void sharedScope() {
+        DustSharedScope sharedScope = new DustSharedScope();
+
+        DustTemplateEngine e1 = new DustTemplateEngine(false);
+        e1.setSharedScope(sharedScope);
+        e1.initializeContext();
+
+        DustTemplateEngine e2 = new DustTemplateEngine(false);
+        e2.setSharedScope(sharedScope);
+        e2.initializeContext();
+
+        // each engine has own template registry
+        assertTrue(e1.load("shared", e1.compile("shared", "engine1 {name}")));
+        StringWriter writer = new StringWriter();
+        e1.render(writer, new StringWriter(), "shared", "{\"name\":\"chanwook\"}");
+        assertEquals("engine1 chanwook", writer.toString());
+
+        StringWriter errorWriter = new StringWriter();
+        e2.render(new StringWriter(), errorWriter, "shared", "{}");
+        assertEquals("Error: Template Not Found: shared", errorWriter.toString());
+
+        // re-initialize keep loaded template
+        e1.initializeContext();
+        writer = new StringWriter();
+        e1.render(writer, new StringWriter(), "shared", "{\"name\":\"chanwook\"}");
+        assertEquals("engine1 chanwook", writer.toString());
+    }
+
+    @Test
+    public void sharedScopeIsSealed() {
+        DustSharedScope sharedScope = new DustSharedScope();
+
+        final Context context = Context.enter();
+        try {
+            context.evaluateString(sharedScope.getScope(), "var leak = 1;", "test", 0, null);
+            fail("Need throw exception!!");
+        } catch (EvaluatorException e) {
+            //success!!
+        } finally {
+            Context.exit();
+        }
+    }
+
+    @Test
+    public void persistentContext() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setPersistentContext(true);
+        e.setOptimizationLevel(9);
+        e.initializeContext();
+
+        try {
+            e.load("persistent", e.compile("persistent", "Hello {name}!"));
+
+            StringWriter writer = new StringWriter();
+            e.render(writer, new StringWriter(), "persistent", "{\"name\":\"chanwook\"}");
+            assertEquals("Hello chanwook!", writer.toString());
+
+            // context is kept in current thread
+            Context context = Context.getCurrentContext();
+            assertThat(context, notNullValue());
+            assertEquals(9, context.getOptimizationLevel());
+
+            writer = new StringWriter();
+            e.render(writer, new StringWriter(), "persistent", "{\"name\":\"dust\"}");
+            assertEquals("Hello dust!", writer.toString());
+            assertTrue(context == Context.getCurrentContext());
+        } finally {
+            e.releaseThreadContext();
+        }
+        assertThat(Context.getCurrentContext(), nullValue());
+    }
+
+    @Test
+    public void persistentContextDoesNotChangeContextEnteredByOther() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setPersistentContext(true);
+        e.setOptimizationLevel(9);
+        e.initializeContext();
+
+        Context context = Context.enter();
+        try {
+            context.setOptimizationLevel(-1);
+            e.load("persistent", e.compile("persistent", "Hello {name}!"));
+            StringWriter writer = new StringWriter();
+            e.render(writer, new StringWriter(), "persistent", "{\"name\":\"chanwook\"}");
+            assertEquals("Hello chanwook!", writer.toString());
+
+            e.releaseThreadContext();
+            assertTrue(context == Context.getCurrentContext());
+            assertEquals(-1, context.getOptimizationLevel());
+        } finally {
+            Context.exit();
+        }
+    }
+
+    @Test
+    public void renderModel() {
+        DustTemplateEngine e = new DustTemplateEngine();
+        String source = "{title}{#items}<li>{$idx}.{name}:{price}</li>{/items}{?empty}yes{:else}no{/empty}{tags.length}{#tags}[{.}]{/tags}";
+        e.load("model", e.compile("model", source));
+
+        Map<String, Object> model = new HashMap<String, Object>();
+        model.put("title", "<b>list</b>");
+        model.put("items", Arrays.asList(new Item("book", 1000), new Item("pen", 300)));
+        model.put("empty", Collections.emptyList());
+        model.put("tags", new String[]{"a", "b"});
+
+        StringWriter writer = new StringWriter();
+        StringWriter errorWriter = new StringWriter();
+        e.renderModel(writer, errorWriter, "model", model);
+
+        // same result with JSON rendering
+        StringWriter jsonWriter = new StringWriter();
+        e.render(jsonWriter, new StringWriter(), "model",
+                "{\"title\":\"<b>list</b>\",\"items\":[{\"name\":\"book\",\"price\":1000},{\"name\":\"pen\",\"price\":300}],\"empty\":[],\"tags\":[\"a\",\"b\"]}");
+
+        assertEquals("", errorWriter.toString());
+        assertEquals("&lt;b&gt;list&lt;/b&gt;<li>0.book:1000</li><li>1.pen:300</li>no2[a][b]", writer.toString());
+        assertEquals(jsonWriter.toString(), writer.toString());
+    }
+
+    @Test
+    public void renderStream() {
+        DustTemplateEngine e = new DustTemplateEngine();
+        e.load("stream", e.compile("stream", "Hello {name}!{#list}[{.}]{/list}"));
+
+        final List<String> written = new ArrayList<String>();
+        Writer writer = new StringWriter() {
+            @Override
+            public void write(String str) {
+                written.add(str);
+                super.write(str);
+            }
+        };
+        StringWriter errorWriter = new StringWriter();
+        e.renderStream(writer, errorWriter, "stream", "{\"name\":\"chanwook\",\"list\":[1,2]}");
+
+        assertEquals("", errorWriter.toString());
+        assertEquals("Hello chanwook![1][2]", writer.toString());
+        // written per chunk, not buffered
+        assertEquals(Arrays.asList("Hello ", "chanwook", "!", "[", "1", "]", "[", "2", "]"), written);
+
+        // with java model
+        writer = new StringWriter();
+        Map<String, Object> model = new HashMap<String, Object>();
+        model.put("name", "dust");
+        e.renderModelStream(writer, errorWriter, "stream", model);
+        assertEquals("Hello dust!", writer.toString());
+
+        // template not found
+        e.renderStream(new StringWriter(), errorWriter, "not-found", "{}");
+        assertEquals("Error: Template Not Found: not-found", errorWriter.toString());
+    }
+
+    @Test
+    public void flushHelper() throws Exception {
+        DustTemplateEngine e = new DustTemplateEngine();
+        e.load("flush", e.compile("flush", "<head></head>{@flush/}<body>{name}</body>"));
+
+        final StringWriter flushed = new StringWriter();
+        final StringWriter writer = new StringWriter() {
+            @Override
+            public void flush() {
+                flushed.write(toString());
+            }
+        };
+        e.renderStream(writer, new StringWriter(), "flush", "{\"name\":\"chanwook\"}");
+
+        assertEquals("<head></head>", flushed.toString());
+        assertEquals("<head></head><body>chanwook</body>", writer.toString());
+
+        // not streaming, then helper write nothing
+        StringWriter rendered = new StringWriter();
+        e.render(rendered, new StringWriter(), "flush", "{\"name\":\"chanwook\"}");
+        assertEquals("<head></head><body>chanwook</body>", rendered.toString());
+    }
+
+    @Test
+    public void fragmentCacheHelper() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setFragmentCache(new RenderedOutputCache());
+        e.initializeContext();
+        e.load("fragment", e.compile("fragment", "{@cache key=\"nav{id}\" ttl=\"60\"}<nav>{name}</nav>{/cache}|{name}"));
+
+        assertEquals("<nav>a</nav>|a", render(e, "fragment", "{\"id\":1,\"name\":\"a\"}"));
+        // block is not rendered when cached
+        assertEquals("<nav>a</nav>|b", render(e, "fragment", "{\"id\":1,\"name\":\"b\"}"));
+        // other key
+        assertEquals("<nav>c</nav>|c", render(e, "fragment", "{\"id\":2,\"name\":\"c\"}"));
+        assertEquals(2, e.getFragmentCache().size());
+
+        e.getFragmentCache().clear();
+        assertEquals("<nav>b</nav>|b", render(e, "fragment", "{\"id\":1,\"name\":\"b\"}"));
+
+        // same key in other template is not shared
+        e.load("other", e.compile("other", "{@cache key=\"nav{id}\"}<div>{name}</div>{/cache}"));
+        assertEquals("<div>d</div>", render(e, "other", "{\"id\":1,\"name\":\"d\"}"));
+
+        // fragment of changed template is removed
+        e.load("fragment", e.compile("fragment", "{@cache key=\"nav{id}\"}<ul>{name}</ul>{/cache}"));
+        assertEquals("<ul>e</ul>", render(e, "fragment", "{\"id\":1,\"name\":\"e\"}"));
+        assertEquals("<div>d</div>", render(e, "other", "{\"id\":1,\"name\":\"f\"}"));
+
+        // without cache(default), block is rendered always
+        DustTemplateEngine noCache = new DustTemplateEngine();
+        assertThat(noCache.getFragmentCache(), nullValue());
+        noCache.load("fragment", noCache.compile("fragment", "{@cache key=\"nav\"}<nav>{name}</nav>{/cache}"));
+        assertEquals("<nav>a</nav>", render(noCache, "fragment", "{\"name\":\"a\"}"));
+        assertEquals("<nav>b</nav>", render(noCache, "fragment", "{\"name\":\"b\"}"));
+    }
+
+    @Test
+    public void tieredCompileHotTemplate() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setTieredCompileThreshold(2);
+        e.initializeContext();
+        e.load("hot", e.compile("hot", "{#list}<li>{.}</li>{/list}"));
+        e.load("cold", e.compile("cold", "{name}"));
+
+        String json = "{\"list\":[1,2]}";
+        assertEquals("<li>1</li><li>2</li>", render(e, "hot", json));
+        assertEquals(-1, e.getTemplateOptimizationLevel("hot"));
+        assertEquals("<li>1</li><li>2</li>", render(e, "hot", json));
+        assertEquals(9, e.getTemplateOptimizationLevel("hot"));
+        assertEquals("<li>1</li><li>2</li>", render(e, "hot", json));
+        assertEquals(-1, e.getTemplateOptimizationLevel("cold"));
+
+        // loaded again, then interpreted again
+        e.load("hot", e.compile("hot", "{#list}<p>{.}</p>{/list}"));
+        assertEquals(-1, e.getTemplateOptimizationLevel("hot"));
+        assertEquals("<p>1</p><p>2</p>", render(e, "hot", json));
+    }
+
+    @Test
+    public void tieredCompileWithOptimizedEngine() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setOptimizationLevel(9);
+        e.setTieredCompileThreshold(2);
+        e.initializeContext();
+        e.load("hot", e.compile("hot", "{#list}<li>{.}</li>{/list}"));
+
+        // loaded by eval(), then interpreted whatever engine level is
+        String json = "{\"list\":[1,2]}";
+        assertEquals("<li>1</li><li>2</li>", render(e, "hot", json));
+        assertEquals(DustTemplateEngine.INTERPRETED_LEVEL, e.getTemplateOptimizationLevel("hot"));
+        assertEquals("<li>1</li><li>2</li>", render(e, "hot", json));
+        assertEquals(9, e.getTemplateOptimizationLevel("hot"));
+    }
+
+    @Test
+    public void tieredCompileFallbackToInterpreted() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setOptimizationLevel(9);
+        e.setTieredCompileThreshold(1);
+        e.initializeContext();
+
+        // compiled function exceeds 64K bytecode limit of JVM method
+        StringBuilder compiled = new StringBuilder("(function(){dust.register(\"large\",body_0);function body_0(chk,ctx){var count=0;");
+        for (int index = 0; index < 20000; index++) {
+            compiled.append("count+=ctx.get(\"a\")?1:0;");
+        }
+        compiled.append("return chk.write(\"large:\"+count);}return body_0;})();");
+        e.load("large", compiled.toString());
+
+        assertEquals("large:20000", render(e, "large", "{\"a\":true}"));
+        assertEquals(-1, e.getTemplateOptimizationLevel("large"));
+        assertEquals("large:0", render(e, "large", "{}"));
+    }
+
+    private String render(DustTemplateEngine e, String templateKey, String json) {
+        StringWriter writer = new StringWriter();
+        StringWriter errorWriter = new StringWriter();
+        e.render(writer, errorWriter, templateKey, json);
+        assertEquals("", errorWriter.toString());
+        return writer.toString();
+    }
+
+    public static class Item {
+        private final String name;
+        private final int price;
+
+        public Item(String name, int price) {
+            this.name = name;
+            this.price = price;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPrice() {
+            return price;
+        }
+    }
 }
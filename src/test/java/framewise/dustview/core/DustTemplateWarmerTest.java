@@ -0,0 +1,45 @@
+package framewise.dustview.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for DustTemplateWarmer class
+ *
+ * @author chanwook
+ */
+public class DustTemplateWarmerTest {
+
+    @Test
+    public void warmUpLoadedTemplate() throws Exception {
+        File sampleDirectory = new File(getClass().getResource("/json").toURI());
+        DustTemplateWarmer warmer = new DustTemplateWarmer(sampleDirectory, 3);
+        assertTrue(warmer.getSampleTemplateKeys().containsAll(Arrays.asList("basic1", "section")));
+
+        DustTemplateEngine e = new DustTemplateEngine();
+        e.setRenderedOutputCache(new RenderedOutputCache());
+        e.load("basic1", e.compile("basic1", "{name}"));
+        e.load("noSample", e.compile("noSample", "<p/>"));
+        e.load("error", e.compile("error", "{>notExist/}"));
+
+        Map<String, Long> timings = warmer.warmUp(e);
+        assertEquals(new HashSet<String>(Arrays.asList("basic1", "noSample", "error")), timings.keySet());
+        // rendered output cache is not used
+        assertEquals(0, e.getRenderedOutputCache().size());
+    }
+
+    @Test
+    public void warmUpPooledEngine() {
+        PooledDustTemplateEngine pool = new PooledDustTemplateEngine(2);
+        pool.load("pooled", pool.compile("pooled", "{name}"));
+
+        Map<String, Long> timings = new DustTemplateWarmer().warmUp(pool);
+        assertEquals(1, timings.size());
+    }
+}
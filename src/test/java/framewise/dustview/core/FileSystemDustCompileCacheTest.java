@@ -0,0 +1,71 @@
+package framewise.dustview.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for FileSystemDustCompileCache class
+ *
+ * @author chanwook
+ */
+public class FileSystemDustCompileCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void compileWithCache() throws Exception {
+        File directory = folder.newFolder("compile-cache");
+
+        DustTemplateEngine e1 = new DustTemplateEngine(false);
+        e1.setCompileCache(new FileSystemDustCompileCache(directory));
+        e1.initializeContext();
+
+        String compiled = e1.compile("cached", "Hello {name}!");
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+
+        // same source after restart, then using cache file
+        DustTemplateEngine e2 = new DustTemplateEngine(false);
+        e2.setCompileCache(new FileSystemDustCompileCache(directory));
+        e2.initializeContext();
+        assertEquals(compiled, e2.compile("cached", "Hello {name}!"));
+        e2.load("cached", compiled);
+        StringWriter writer = new StringWriter();
+        e2.render(writer, new StringWriter(), "cached", "{\"name\":\"chanwook\"}");
+        assertEquals("Hello chanwook!", writer.toString());
+
+        // Rhino is not used when cache hit
+        write(files[0], "cached!");
+        DustTemplateEngine e3 = new DustTemplateEngine(false);
+        e3.setCompileCache(new FileSystemDustCompileCache(directory));
+        e3.initializeContext();
+        assertEquals("cached!", e3.compile("cached", "Hello {name}!"));
+
+        // different template key or source is compiled again
+        assertFalse("cached!".equals(e3.compile("other", "Hello {name}!")));
+        assertFalse("cached!".equals(e3.compile("cached", "Hi {name}!")));
+        assertEquals(3, directory.listFiles().length);
+
+        // entry is not kept in memory, then file is read again
+        write(files[0], "changed!");
+        assertEquals("changed!", e3.compile("cached", "Hello {name}!"));
+    }
+
+    private void write(File file, String content) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+    }
+}
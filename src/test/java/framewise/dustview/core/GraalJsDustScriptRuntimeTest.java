@@ -0,0 +1,92 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for GraalJsDustScriptRuntime class
+ *
+ * @author chanwook
+ */
+public class GraalJsDustScriptRuntimeTest {
+
+    @Test
+    public void compile2load2render() {
+        DustTemplateEngine rhino = new DustTemplateEngine();
+
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setScriptRuntime(new GraalJsDustScriptRuntime());
+        e.initializeContext();
+
+        String source = "Hello {name}!{#list}[{.}]{/list}";
+        String compiled = e.compile("graal", source);
+        // same compiler with Rhino runtime
+        assertEquals(rhino.compile("graal", source), compiled);
+
+        assertTrue(e.load("graal", compiled));
+        assertFalse(e.load("graal", compiled));
+
+        StringWriter writer = new StringWriter();
+        StringWriter errorWriter = new StringWriter();
+        e.render(writer, errorWriter, "graal", "{\"name\":\"chanwook\",\"list\":[1,2]}");
+        assertEquals("Hello chanwook![1][2]", writer.toString());
+
+        writer = new StringWriter();
+        e.renderStream(writer, errorWriter, "graal", "{\"name\":\"dust\"}");
+        assertEquals("Hello dust!", writer.toString());
+        assertEquals("", errorWriter.toString());
+
+        e.render(new StringWriter(), errorWriter, "not-found", "{}");
+        assertEquals("Error: Template Not Found: not-found", errorWriter.toString());
+    }
+
+    @Test
+    public void fragmentCacheHelper() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setScriptRuntime(new GraalJsDustScriptRuntime());
+        e.setFragmentCache(new RenderedOutputCache());
+        e.initializeContext();
+        e.load("fragment", e.compile("fragment", "{@cache key=\"nav\"}<nav>{name}</nav>{/cache}"));
+
+        StringWriter writer = new StringWriter();
+        e.render(writer, new StringWriter(), "fragment", "{\"name\":\"a\"}");
+        e.render(writer, new StringWriter(), "fragment", "{\"name\":\"b\"}");
+        assertEquals("<nav>a</nav><nav>a</nav>", writer.toString());
+    }
+
+    @Test
+    public void pooledEngine() {
+        PooledDustTemplateEngine pool = new PooledDustTemplateEngine(2, false);
+        pool.setScriptRuntime(new GraalJsDustScriptRuntime());
+        pool.initializeContext();
+
+        pool.load("pooled", pool.compile("pooled", "Hi {name}"));
+        for (DustTemplateEngine engine : pool.getEngines()) {
+            assertTrue(engine.getScriptRuntime() instanceof GraalJsDustScriptRuntime);
+            StringWriter writer = new StringWriter();
+            engine.render(writer, new StringWriter(), "pooled", "{\"name\":\"graal\"}");
+            assertEquals("Hi graal", writer.toString());
+        }
+        assertNotSame(pool.getEngines().get(0).getScriptRuntime(), pool.getEngines().get(1).getScriptRuntime());
+
+        // runtime of every engine is closed
+        pool.close();
+        for (DustTemplateEngine engine : pool.getEngines()) {
+            assertFalse(((GraalJsDustScriptRuntime) engine.getScriptRuntime()).isInitialized());
+        }
+    }
+
+    @Test(expected = DustViewException.class)
+    public void javaModelIsNotSupported() {
+        DustTemplateEngine e = new DustTemplateEngine(false);
+        e.setScriptRuntime(new GraalJsDustScriptRuntime());
+        e.initializeContext();
+
+        e.renderModel(new StringWriter(), new StringWriter(), "any", new HashMap<String, Object>());
+    }
+}
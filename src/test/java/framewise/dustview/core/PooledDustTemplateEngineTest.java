@@ -0,0 +1,137 @@
+package framewise.dustview.core;
+
+import framewise.dustview.DustViewException;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for PooledDustTemplateEngine class
+ *
+ * @author chanwook
+ */
+public class PooledDustTemplateEngineTest {
+
+    @Test
+    public void loadToAllEngine() {
+        PooledDustTemplateEngine e = new PooledDustTemplateEngine(3);
+        String compiled = e.compile("hello", "Hello {name}!");
+
+        assertTrue(e.load("hello", compiled));
+        assertFalse(e.load("hello", compiled));
+
+        // every engine in pool can render template
+        for (DustTemplateEngine engine : e.getEngines()) {
+            StringWriter writer = new StringWriter();
+            engine.render(writer, new StringWriter(), "hello", "{\"name\":\"chanwook\"}");
+            assertEquals("Hello chanwook!", writer.toString());
+        }
+        assertEquals(3, e.getIdleCount());
+    }
+
+    @Test
+    public void concurrentRendering() throws Exception {
+        final PooledDustTemplateEngine e = new PooledDustTemplateEngine(4);
+        e.load("section", e.compile("section", "{#names}<li>{name}</li>{/names}"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int index = 0; index < 200; index++) {
+                final int number = index;
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        StringWriter writer = new StringWriter();
+                        e.render(writer, new StringWriter(), "section",
+                                "{\"names\":[{\"name\":\"a" + number + "\"},{\"name\":\"b" + number + "\"}]}");
+                        return writer.toString();
+                    }
+                }));
+            }
+
+            for (int index = 0; index < results.size(); index++) {
+                assertEquals("<li>a" + index + "</li><li>b" + index + "</li>", results.get(index).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4, e.getIdleCount());
+    }
+
+    @Test
+    public void concurrentLoadOfSameTemplate() throws Exception {
+        final PooledDustTemplateEngine e = new PooledDustTemplateEngine(4);
+        final String[] compiled = {e.compile("hello", "Hello A"), e.compile("hello", "Hello B")};
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int index = 0; index < 200; index++) {
+                final int number = index;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return e.load("hello", compiled[number % 2]);
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // registry of pool has same source as every engine
+        String registered = e.getCompiledTemplateRegistry().get("hello").getCompiledSource();
+        for (DustTemplateEngine engine : e.getEngines()) {
+            assertEquals(registered, engine.getCompiledTemplateRegistry().get("hello").getCompiledSource());
+        }
+    }
+
+    @Test
+    public void shareCoreScope() {
+        PooledDustTemplateEngine e = new PooledDustTemplateEngine(3, false);
+        e.setShareCoreScope(true);
+        e.initializeContext();
+
+        e.load("hello", e.compile("hello", "Hello {name}!"));
+        for (DustTemplateEngine engine : e.getEngines()) {
+            assertTrue(engine.getGlobalScope().getPrototype() == e.getSharedScope().getScope());
+
+            StringWriter writer = new StringWriter();
+            engine.render(writer, new StringWriter(), "hello", "{\"name\":\"chanwook\"}");
+            assertEquals("Hello chanwook!", writer.toString());
+        }
+
+        // re-initialize create new shared scope, and reload template
+        e.setDustExtensionFilePath("/dust/dust-extension-test.js");
+        e.initializeContext();
+        StringWriter writer = new StringWriter();
+        e.render(writer, new StringWriter(), "hello", "{\"name\":\"chanwook\"}");
+        assertEquals("Hello chanwook!", writer.toString());
+    }
+
+    @Test
+    public void notInitialized() {
+        PooledDustTemplateEngine e = new PooledDustTemplateEngine(2, false);
+        try {
+            e.render(new StringWriter(), new StringWriter(), "any", "{}");
+            fail("Need throw exception!!");
+        } catch (DustViewException de) {
+            //success!!
+        }
+    }
+}
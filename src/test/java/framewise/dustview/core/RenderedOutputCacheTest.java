@@ -0,0 +1,109 @@
+package framewise.dustview.core;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for RenderedOutputCache class
+ *
+ * @author chanwook
+ */
+public class RenderedOutputCacheTest {
+
+    @Test
+    public void evictByLruAndMemoryLimit() throws Exception {
+        RenderedOutputCache cache = new RenderedOutputCache(2, 100, 60000);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertEquals("aaaa", cache.get("a"));
+
+        // b is least recently used
+        cache.put("c", "cccc");
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals(2, cache.size());
+        assertEquals(16, cache.getTotalBytes());
+
+        // bigger than limit is not cached
+        cache.put("big", new String(new char[51]));
+        assertNull(cache.get("big"));
+
+        // over memory limit
+        cache.put("d", new String(new char[47]));
+        assertEquals(1, cache.size());
+        assertEquals(94, cache.getTotalBytes());
+
+        cache.setTtlMillis(0);
+        cache.put("e", "eeee");
+        assertNull(cache.get("e"));
+    }
+
+    @Test
+    public void readWithoutLock() throws Exception {
+        final RenderedOutputCache cache = new RenderedOutputCache(2, 100, 60000);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+
+        final AtomicReference<String> read = new AtomicReference<String>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read.set(cache.get("a"));
+                cache.get("missing");
+            }
+        });
+        // reading is not blocked while adding or evicting holds lock
+        synchronized (cache) {
+            reader.start();
+            reader.join(5000);
+            assertFalse(reader.isAlive());
+        }
+        assertEquals("aaaa", read.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // a is read by other thread, then b is evicted
+        cache.put("c", "cccc");
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void engineRenderWithCache() {
+        RenderedOutputCache cache = new RenderedOutputCache();
+        DustTemplateEngine e = new DustTemplateEngine();
+        e.setRenderedOutputCache(cache);
+        e.load("page", e.compile("page", "<p>{name}</p>{>header/}"));
+        e.load("header", e.compile("header", "<h1/>"));
+
+        assertEquals("<p>dust</p><h1/>", render(e, "page", "{\"name\":\"dust\"}"));
+        assertEquals("<p>dust</p><h1/>", render(e, "page", "{\"name\":\"dust\"}"));
+        assertEquals(1, cache.getHitCount());
+
+        // other data
+        assertEquals("<p>view</p><h1/>", render(e, "page", "{\"name\":\"view\"}"));
+        assertEquals(1, cache.getHitCount());
+
+        // changed partial
+        e.load("header", e.compile("header", "<h2/>"));
+        assertEquals("<p>dust</p><h2/>", render(e, "page", "{\"name\":\"dust\"}"));
+        assertEquals(1, cache.getHitCount());
+
+        // failed rendering is not cached
+        e.load("missing", e.compile("missing", "{>notExist/}"));
+        StringWriter errorWriter = new StringWriter();
+        e.render(new StringWriter(), errorWriter, "missing", "{}");
+        assertFalse(errorWriter.toString().isEmpty());
+        assertEquals(3, cache.size());
+    }
+
+    private String render(DustTemplateEngine e, String templateKey, String json) {
+        StringWriter writer = new StringWriter();
+        e.render(writer, new StringWriter(), templateKey, json);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package framewise.dustview.core;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for SingleFlight class
+ *
+ * @author chanwook
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void shareResultOfConcurrentExecution() throws Exception {
+        final SingleFlight<String> singleFlight = new SingleFlight<String>();
+        final AtomicInteger executed = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return singleFlight.execute("same", new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            executed.incrementAndGet();
+                            started.countDown();
+                            release.await();
+                            return "rendered";
+                        }
+                    });
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            final List<Thread> followerThreads = new CopyOnWriteArrayList<Thread>();
+            List<Future<String>> followers = new ArrayList<Future<String>>();
+            for (int index = 0; index < 3; index++) {
+                followers.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        followerThreads.add(Thread.currentThread());
+                        return singleFlight.execute("same", new Callable<String>() {
+                            @Override
+                            public String call() {
+                                executed.incrementAndGet();
+                                return "other";
+                            }
+                        });
+                    }
+                }));
+            }
+
+            // other key is not blocked
+            assertEquals("other-key", singleFlight.execute("other", new Callable<String>() {
+                @Override
+                public String call() {
+                    return "other-key";
+                }
+            }));
+
+            // every follower is waiting for in-flight execution
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!isWaiting(followerThreads, 3)) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+
+            release.countDown();
+            assertEquals("rendered", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("rendered", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executed.get());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean isWaiting(List<Thread> threads, int count) {
+        if (threads.size() < count) {
+            return false;
+        }
+        for (Thread thread : threads) {
+            if (thread.getState() != Thread.State.WAITING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void exceptionIsThrownToCaller() {
+        SingleFlight<String> singleFlight = new SingleFlight<String>();
+        try {
+            singleFlight.execute("error", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("fail");
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("fail", e.getMessage());
+        }
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void engineRenderWithSingleFlight() {
+        DustTemplateEngine e = new DustTemplateEngine();
+        e.setSingleFlightRendering(true);
+        e.load("page", e.compile("page", "<p>{name}</p>"));
+        e.load("missing", e.compile("missing", "{>notExist/}"));
+
+        StringWriter writer = new StringWriter();
+        e.render(writer, new StringWriter(), "page", "{\"name\":\"dust\"}");
+        assertEquals("<p>dust</p>", writer.toString());
+
+        StringWriter errorWriter = new StringWriter();
+        e.render(new StringWriter(), errorWriter, "missing", "{}");
+        assertEquals("Error: Template Not Found: notExist", errorWriter.toString());
+    }
+}
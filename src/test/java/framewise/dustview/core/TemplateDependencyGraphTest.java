@@ -0,0 +1,101 @@
+package framewise.dustview.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for TemplateDependencyGraph class
+ *
+ * @author chanwook
+ */
+public class TemplateDependencyGraphTest {
+
+    DustTemplateEngine e = new DustTemplateEngine();
+
+    @Test
+    public void extractPartialFromCompiledSource() {
+        String compiled = e.compile("page", "{>header/}{#list}{>\"item\" p=1/}{/list}{>\"dyn{name}\"/}{>\"quote\\\"d\"/}{>header/}");
+
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("header", "item", "quote\"d")),
+                TemplateDependencyGraph.extractPartials(compiled));
+        assertTrue(TemplateDependencyGraph.extractPartials(e.compile("plain", "{name}")).isEmpty());
+    }
+
+    @Test
+    public void transitivePartials() {
+        TemplateDependencyGraph graph = new TemplateDependencyGraph();
+        graph.register("page", e.compile("page", "{>layout/}{>page/}"));
+        graph.register("layout", e.compile("layout", "{>header/}{>footer/}"));
+        graph.register("header", e.compile("header", "{>layout/}"));
+
+        assertEquals(new HashSet<String>(Arrays.asList("layout", "page")), graph.getPartials("page"));
+        assertEquals(new HashSet<String>(Arrays.asList("layout", "header", "footer")), graph.getTransitivePartials("page"));
+        assertTrue(graph.getPartials("footer").isEmpty());
+
+        graph.remove("layout");
+        assertEquals(Collections.singleton("layout"), graph.getTransitivePartials("page"));
+    }
+
+    @Test
+    public void markDependentsOfChangedPartial() {
+        TemplateDependencyGraph graph = new TemplateDependencyGraph();
+        graph.register("page", e.compile("page", "{>layout/}"));
+        graph.register("layout", e.compile("layout", "{>header/}"));
+        graph.register("other", e.compile("other", "{>footer/}"));
+        graph.register("header", e.compile("header", "<h1/>"));
+
+        assertEquals(Collections.singleton("layout"), graph.getDependents("header"));
+        assertEquals(new HashSet<String>(Arrays.asList("layout", "page")), graph.markDependents("header", 10));
+        assertEquals(10, graph.getDependencyVersion("page"));
+        assertEquals(10, graph.getDependencyVersion("layout"));
+        assertEquals(-1, graph.getDependencyVersion("header"));
+        assertEquals(-1, graph.getDependencyVersion("other"));
+
+        // older version is ignored
+        graph.markDependents("header", 5);
+        assertEquals(10, graph.getDependencyVersion("page"));
+
+        // layout does not reference header anymore
+        graph.register("layout", e.compile("layout", "<div/>"));
+        assertTrue(graph.getDependents("header").isEmpty());
+        assertEquals(Collections.singleton("page"), graph.getTransitiveDependents("layout"));
+    }
+
+    @Test
+    public void engineMissingPartials() {
+        e.load("page", e.compile("page", "{>layout/}"));
+        e.load("layout", e.compile("layout", "{>header/}{>footer/}"));
+        e.load("header", e.compile("header", "<h1/>"));
+
+        assertEquals(Collections.singleton("layout"), e.getPartials("page"));
+        assertEquals(Collections.singleton("footer"), e.getMissingPartials("page"));
+    }
+
+    @Test
+    public void engineDependencyVersion() {
+        e.load("page", e.compile("page", "{>header/}"));
+        e.load("other", e.compile("other", "<p/>"));
+        e.load("header", e.compile("header", "<h1/>"));
+        long pageVersion = e.getDependencyVersion("page");
+        long otherVersion = e.getDependencyVersion("other");
+        long headerVersion = e.getTemplateVersion("header");
+
+        // same source
+        e.load("header", e.compile("header", "<h1/>"));
+        assertEquals(pageVersion, e.getDependencyVersion("page"));
+
+        // changed partial marks dependent only
+        e.load("header", e.compile("header", "<h2/>"));
+        assertTrue(e.getTemplateVersion("header") > headerVersion);
+        assertEquals(e.getTemplateVersion("header"), e.getDependencyVersion("page"));
+        assertEquals(otherVersion, e.getDependencyVersion("other"));
+        assertEquals(Collections.singleton("page"), e.getDependents("header"));
+        assertEquals(-1, e.getDependencyVersion("notLoaded"));
+    }
+}
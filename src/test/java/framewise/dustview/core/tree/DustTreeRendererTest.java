@@ -0,0 +1,194 @@
+package framewise.dustview.core.tree;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import framewise.dustview.core.DustTemplateEngine;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for DustTreeRenderer class. Rendered markup must be same as dust.js.
+ *
+ * @author chanwook
+ */
+public class DustTreeRendererTest {
+
+    DustTemplateEngine dustEngine = new DustTemplateEngine();
+    DustTemplateEngine treeEngine = new DustTemplateEngine(false);
+    DustTreeRenderer renderer = new DustTreeRenderer();
+    ObjectMapper mapper = new ObjectMapper();
+
+    public DustTreeRendererTest() {
+        treeEngine.setTreeRenderer(renderer);
+        treeEngine.initializeContext();
+    }
+
+    @Test
+    public void sameAsDustWithTestTemplate() throws Exception {
+        load("common1", resource("/template/common/common1.html"));
+        load("common2", resource("/template/common/common2.html"));
+        load("partial1", resource("/template/multiple/partial1.html"));
+        load("partial2", resource("/template/multiple/partial2.html"));
+
+        for (String templateKey : Arrays.asList("basic1", "context", "context2", "section", "escape")) {
+            load(templateKey, resource("/template/" + templateKey + ".html"));
+            assertSameAsDust(templateKey, resource("/json/" + templateKey + ".json"));
+        }
+
+        load("commontest", resource("/template/commontest.html"));
+        assertSameAsDust("commontest", "{}");
+        load("master", resource("/template/multiple/master.html"));
+        assertSameAsDust("master", "{}");
+    }
+
+    @Test
+    public void sameAsDustWithSection() throws Exception {
+        load("section1", "{#list}[{$idx}/{$len}:{.}{name}]{:else}empty{/list}" +
+                "{?flag}yes{:else}no{/flag}{^flag}not{/flag}{#zero}zero={.}{/zero}{#flag}t:{title}{/flag}" +
+                "{#obj a=1 b=\"x{title}\" c=title}{a}{b}{c}{name}{/obj}{#list}{#.}{$idx}{/.}{/list}");
+        String[] models = {
+                "{\"list\":[1,\"two\",{\"name\":\"three\"}],\"flag\":true,\"zero\":0,\"title\":\"T\",\"obj\":{\"name\":\"o\"}}",
+                "{\"list\":[],\"flag\":false,\"zero\":\"\",\"title\":\"<b>\",\"obj\":null}",
+                "{\"list\":[[1,2],[3]],\"flag\":\"\",\"title\":0,\"obj\":[{\"name\":1},{\"a\":\"own\"}]}",
+                "{}"
+        };
+        for (String model : models) {
+            assertSameAsDust("section1", model);
+        }
+    }
+
+    @Test
+    public void sameAsDustWithPathAndFilter() throws Exception {
+        load("path1", "{a.b.c}|{a[key]}|{a.list[0].name}|{.a.b.c}|{#a}{.b.c}{b.c}{/a}|{a.list.length}|{a.b}|{n}|" +
+                "{text|s}|{text|j|s}|{text|u}|{text|uc}|{a|js|s}|{n|js}|{list}|{%esc:s}{text}{/esc}{`{raw}`}{~n}{~lb}{~rb}");
+        String[] models = {
+                "{\"a\":{\"b\":{\"c\":\"deep\"},\"x\":\"dynamic\",\"list\":[{\"name\":\"first\"}]},\"key\":\"x\"," +
+                        "\"n\":1.5,\"text\":\"<a href='/q?x=1&y=\\\"\\u2028'>값\\n</a>\",\"list\":[1,null,\"a\",[2,3]]}",
+                "{\"a\":{\"b\":0},\"n\":100000000000000000000000,\"text\":\"\"}",
+                "{\"a\":false,\"n\":-0.000001,\"text\":\"plain\"}"
+        };
+        for (String model : models) {
+            assertSameAsDust("path1", model);
+        }
+    }
+
+    @Test
+    public void sameAsDustWithPartialAndBlock() throws Exception {
+        load("layout", "<title>{+title}Default{/title}</title>{+body/}|{name}|{p}");
+        load("page", "{<title}Page {name}{/title}{<body}{#items}<i>{.}</i>{/items}{/body}{>layout p=\"param\"/}");
+        load("item", "[{name}:{p}:{$idx}]");
+        load("list", "{#items}{>item p=name/}{/items}{>item:other/}{>\"it{suffix}\"/}");
+        String model = "{\"name\":\"N\",\"items\":[\"a\",{\"name\":\"b\"}],\"other\":{\"name\":\"O\"},\"suffix\":\"em\"}";
+
+        assertSameAsDust("page", model);
+        assertSameAsDust("layout", model);
+        assertSameAsDust("list", model);
+    }
+
+    @Test
+    public void renderJavaModel() throws Exception {
+        load("model", "{title}{#items}<li>{name}={count}</li>{/items}{date}{type}");
+        Map<String, Object> model = new HashMap<String, Object>();
+        model.put("title", "Items");
+        model.put("items", Arrays.asList(new Item("a", 1), new Item("b", 20)));
+        model.put("type", Thread.State.NEW);
+
+        StringWriter writer = new StringWriter();
+        treeEngine.renderModel(writer, new StringWriter(), "model", model);
+        assertEquals("Items<li>a=1</li><li>b=20</li>NEW", writer.toString());
+        assertEquals(writer.toString(), renderer.render("model", model));
+    }
+
+    @Test
+    public void fallbackToDustWhenNotSupported() throws Exception {
+        load("helper", "{@eq key=1 value=1}same{/eq}");
+        assertFalse(renderer.isRenderable("helper"));
+        assertSameAsDust("helper", "{}");
+
+        load("missingPartial", "a{>notExist/}");
+        assertTrue(renderer.isRenderable("missingPartial"));
+        try {
+            renderer.render("missingPartial", new LinkedHashMap<String, Object>());
+            fail();
+        } catch (UnsupportedTemplateException e) {
+        }
+        StringWriter writer = new StringWriter();
+        StringWriter errorWriter = new StringWriter();
+        treeEngine.render(writer, errorWriter, "missingPartial", "{}");
+        assertEquals("Error: Template Not Found: notExist", errorWriter.toString());
+    }
+
+    @Test
+    public void precompiledTemplateIsRenderedByDust() {
+        String compiled = dustEngine.compile("precompiled", "{name}");
+        treeEngine.load("precompiled", compiled);
+        assertFalse(renderer.isRenderable("precompiled"));
+
+        StringWriter writer = new StringWriter();
+        treeEngine.render(writer, new StringWriter(), "precompiled", "{\"name\":\"dust\"}");
+        assertEquals("dust", writer.toString());
+    }
+
+    private void load(String templateKey, String source) {
+        dustEngine.load(templateKey, dustEngine.compile(templateKey, source));
+        treeEngine.load(templateKey, treeEngine.compile(templateKey, source));
+    }
+
+    private void assertSameAsDust(String templateKey, String json) throws IOException {
+        StringWriter expected = new StringWriter();
+        StringWriter expectedError = new StringWriter();
+        dustEngine.render(expected, expectedError, templateKey, json);
+        assertEquals("", expectedError.toString());
+
+        StringWriter actual = new StringWriter();
+        treeEngine.render(actual, new StringWriter(), templateKey, json);
+        assertEquals(expected.toString(), actual.toString());
+
+        if (renderer.isRenderable(templateKey)) {
+            assertEquals(expected.toString(), renderer.render(templateKey, mapper.readValue(json, Object.class)));
+        }
+    }
+
+    private String resource(String path) {
+        InputStream input = getClass().getResourceAsStream(path);
+        try {
+            return new Scanner(input, "UTF-8").useDelimiter("\\A").next();
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public static class Item {
+        private final String name;
+        private final int count;
+
+        public Item(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
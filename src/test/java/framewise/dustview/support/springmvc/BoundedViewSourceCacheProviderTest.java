@@ -0,0 +1,143 @@
+package framewise.dustview.support.springmvc;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for BoundedViewSourceCacheProvider class
+ *
+ * @author chanwook
+ */
+public class BoundedViewSourceCacheProviderTest {
+
+    @Test
+    public void boundedBySize() {
+        // 200 bytes per source
+        BoundedViewSourceCacheProvider c = new BoundedViewSourceCacheProvider(1000);
+        for (int index = 0; index < 10; index++) {
+            c.add("t" + index, source(100));
+        }
+
+        assertTrue(c.getTotalBytes() <= 1000);
+        assertEquals(5, c.size());
+        assertEquals(5, c.getEvictionCount());
+
+        // bigger than limit
+        c.add("big", source(600));
+        assertFalse(c.isCached("big"));
+
+        assertTrue(c.remove("t9"));
+        assertFalse(c.remove("t9"));
+        assertNull(c.get("t9"));
+    }
+
+    @Test
+    public void frequentTemplateIsNotEvictedByChurn() {
+        BoundedViewSourceCacheProvider c = new BoundedViewSourceCacheProvider(2000);
+        c.add("hot", source(100));
+        for (int index = 0; index < 10; index++) {
+            assertTrue(c.isCached("hot"));
+            c.get("hot");
+        }
+
+        // templates used once
+        for (int index = 0; index < 50; index++) {
+            String key = "once" + index;
+            assertFalse(c.isCached(key));
+            c.add(key, source(100));
+        }
+
+        assertTrue(c.isCached("hot"));
+        assertTrue(c.getTotalBytes() <= 2000);
+        assertEquals(10, c.getHitCount());
+        assertEquals(50, c.getMissCount());
+        assertEquals(41, c.getEvictionCount());
+    }
+
+    @Test
+    public void frequentTemplatesAreNotEvictedByChurnOfManyKeys() {
+        // 20 bytes per source, main space holds 2,178 sources
+        BoundedViewSourceCacheProvider c = new BoundedViewSourceCacheProvider(2200 * 20, 4096);
+        for (int index = 0; index < 2000; index++) {
+            String key = "hot" + index;
+            assertFalse(c.isCached(key));
+            c.add(key, source(10));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int index = 0; index < 2000; index++) {
+                c.get("hot" + index);
+            }
+        }
+
+        // templates used once
+        for (int index = 0; index < 5000; index++) {
+            String key = "once" + index;
+            assertFalse(c.isCached(key));
+            c.add(key, source(10));
+        }
+
+        int cachedHot = 0;
+        for (int index = 0; index < 2000; index++) {
+            if (c.isCached("hot" + index)) {
+                cachedHot++;
+            }
+        }
+        assertTrue("cached hot templates: " + cachedHot, cachedHot >= 1990);
+        assertTrue(c.getTotalBytes() <= 2200 * 20);
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        final BoundedViewSourceCacheProvider c = new BoundedViewSourceCacheProvider(4000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int thread = 0; thread < 8; thread++) {
+                final Random random = new Random(thread);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int index = 0; index < 2000; index++) {
+                            String key = "t" + random.nextInt(100);
+                            String expected = source(key.length() * 10);
+                            if (c.isCached(key)) {
+                                String cached = c.get(key);
+                                if (cached != null && !cached.equals(expected)) {
+                                    return false;
+                                }
+                            } else {
+                                c.add(key, expected);
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(c.getTotalBytes() <= 4000);
+    }
+
+    private static String source(int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        return new String(chars);
+    }
+}
@@ -0,0 +1,40 @@
+package framewise.dustview.support.springmvc;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for FlushPointWriter class
+ *
+ * @author chanwook
+ */
+public class FlushPointWriterTest {
+
+    @Test
+    public void flushAfterFlushPoint() throws Exception {
+        Writer target = spy(new StringWriter());
+        FlushPointWriter writer = new FlushPointWriter(target, new String[]{"</head>", "<!--flush-->"});
+
+        writer.write("<html><head><title>t</title>");
+        verify(target, never()).flush();
+
+        writer.write("</head>");
+        verify(target, times(1)).flush();
+
+        // flush point across write call
+        writer.write("<body><!--fl");
+        writer.write("ush-->");
+        verify(target, times(2)).flush();
+
+        writer.write("</body></html>");
+        verify(target, times(2)).flush();
+
+        assertEquals(2, writer.getFlushCount());
+        assertEquals("<html><head><title>t</title></head><body><!--flush--></body></html>", target.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.support.DustViewMetrics.Phase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test for InMemoryDustViewMetrics class
+ *
+ * @author chanwook
+ */
+public class InMemoryDustViewMetricsTest {
+
+    InMemoryDustViewMetrics m = new InMemoryDustViewMetrics();
+
+    @Test
+    public void latencyHistogram() {
+        // 0us, 1us, 3us, 100us
+        m.recordPhase("a", Phase.RENDER, 500, 10);
+        m.recordPhase("a", Phase.RENDER, 1000, 20);
+        m.recordPhase("a", Phase.RENDER, 3000, -1);
+        m.recordPhase("a", Phase.RENDER, 100000, -1);
+
+        InMemoryDustViewMetrics.PhaseMetrics render = m.getTemplateMetrics("a").getPhase(Phase.RENDER);
+        assertEquals(4, render.getCount());
+        assertEquals(104500, render.getTotalNanos());
+        assertEquals(100000, render.getMaxNanos());
+        assertEquals(15, render.getAverageSize());
+
+        long[] histogram = render.getLatencyHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[2]);
+        assertEquals(1, histogram[7]);
+
+        assertEquals(0, render.getLatencyPercentileMicros(25));
+        assertEquals(3, render.getLatencyPercentileMicros(75));
+        assertEquals(127, render.getLatencyPercentileMicros(100));
+    }
+
+    @Test
+    public void hotTemplates() {
+        m.recordPhase("fast", Phase.RENDER, 1000, -1);
+        m.recordPhase("slow", Phase.RENDER, 9000, -1);
+        m.recordPhase("middle", Phase.RENDER, 5000, -1);
+        m.recordCache("other", true);
+
+        assertEquals(Arrays.asList("slow", "middle"), m.getHotTemplates(Phase.RENDER, 2));
+        assertEquals(1, m.getTemplateMetrics("other").getCacheHitCount());
+
+        m.reset();
+        assertNull(m.getTemplateMetrics("slow"));
+    }
+}
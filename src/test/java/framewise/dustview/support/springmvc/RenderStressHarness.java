@@ -0,0 +1,400 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.core.DustTemplateEngine;
+import framewise.dustview.core.Sources;
+import framewise.dustview.support.DustTemplateLoader;
+import framewise.dustview.support.DustViewConstants;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.ModelMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-threaded stress harness of {@link DustTemplateEngine} and {@link SimpleDustTemplateView}.
+ * Every thread renders test templates(basic1, section, context, escape) in random order, mixed with reloading
+ * template(engine) and refresh request(view), and every output is verified against golden rendering
+ * made by single thread before stress.
+ * <p/>
+ * Throughput, latency percentiles, mismatch and error count are reported per thread count.
+ * Run with larger setting: mvn test -Dtest=RenderStressTest -Dstress.threads=1,2,4,8,16 -Dstress.operations=20000
+ *
+ * @author chanwook
+ */
+public class RenderStressHarness {
+
+    public static final String[] TEMPLATE_KEYS = {"basic1", "section", "context", "escape"};
+
+    private int operationsPerThread = 500;
+    // per mille of operation that reloads template instead of rendering
+    private int reloadRate = 20;
+    private long seed = 42;
+
+    /**
+     * Target of stress. Implementation must be thread-safe.
+     */
+    public interface Target {
+
+        String getName();
+
+        String render(String templateKey) throws Exception;
+
+        /**
+         * Reload template while other threads are rendering
+         */
+        void reload(String templateKey) throws Exception;
+    }
+
+    public RenderStressHarness() {
+    }
+
+    public RenderStressHarness(int operationsPerThread) {
+        this.operationsPerThread = operationsPerThread;
+    }
+
+    /**
+     * @param target
+     * @param threadCounts
+     * @return result per thread count
+     */
+    public List<Result> run(Target target, int... threadCounts) throws Exception {
+        Map<String, String> golden = new HashMap<String, String>();
+        for (String templateKey : TEMPLATE_KEYS) {
+            golden.put(templateKey, target.render(templateKey));
+        }
+
+        List<Result> results = new ArrayList<Result>();
+        for (int threads : threadCounts) {
+            results.add(run(target, golden, threads));
+        }
+        return results;
+    }
+
+    private Result run(final Target target, final Map<String, String> golden, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        try {
+            List<Future<Worker>> futures = new ArrayList<Future<Worker>>();
+            for (int index = 0; index < threads; index++) {
+                final Worker worker = new Worker(target, golden, new Random(seed + index));
+                futures.add(executor.submit(new Callable<Worker>() {
+                    @Override
+                    public Worker call() throws Exception {
+                        startLatch.await();
+                        worker.run();
+                        return worker;
+                    }
+                }));
+            }
+
+            long start = System.nanoTime();
+            startLatch.countDown();
+            List<Worker> workers = new ArrayList<Worker>();
+            for (Future<Worker> future : futures) {
+                workers.add(future.get());
+            }
+            return new Result(target.getName(), threads, System.nanoTime() - start, workers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private class Worker {
+
+        private final Target target;
+        private final Map<String, String> golden;
+        private final Random random;
+
+        private final long[] latencies = new long[operationsPerThread];
+        private int renderCount;
+        private int reloadCount;
+        private int mismatchCount;
+        private int errorCount;
+        private String firstFailure;
+
+        Worker(Target target, Map<String, String> golden, Random random) {
+            this.target = target;
+            this.golden = golden;
+            this.random = random;
+        }
+
+        void run() {
+            for (int index = 0; index < operationsPerThread; index++) {
+                String templateKey = TEMPLATE_KEYS[random.nextInt(TEMPLATE_KEYS.length)];
+                boolean reload = random.nextInt(1000) < reloadRate;
+
+                long start = System.nanoTime();
+                try {
+                    if (reload) {
+                        target.reload(templateKey);
+                        reloadCount++;
+                    } else {
+                        String output = target.render(templateKey);
+                        renderCount++;
+                        if (!golden.get(templateKey).equals(output)) {
+                            mismatchCount++;
+                            fail("mismatch of " + templateKey + ": " + output);
+                        }
+                    }
+                } catch (Exception e) {
+                    errorCount++;
+                    fail(templateKey + ": " + e);
+                }
+                latencies[index] = System.nanoTime() - start;
+            }
+        }
+
+        private void fail(String message) {
+            if (firstFailure == null) {
+                firstFailure = message;
+            }
+        }
+    }
+
+    /**
+     * Result of one thread count
+     */
+    public static class Result {
+
+        private final String targetName;
+        private final int threads;
+        private final long elapsedNanos;
+        private final long[] latencies;
+        private int renderCount;
+        private int reloadCount;
+        private int mismatchCount;
+        private int errorCount;
+        private String firstFailure;
+
+        private Result(String targetName, int threads, long elapsedNanos, List<Worker> workers) {
+            this.targetName = targetName;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+
+            int total = 0;
+            for (Worker worker : workers) {
+                total += worker.latencies.length;
+            }
+            latencies = new long[total];
+            int offset = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies, 0, latencies, offset, worker.latencies.length);
+                offset += worker.latencies.length;
+                renderCount += worker.renderCount;
+                reloadCount += worker.reloadCount;
+                mismatchCount += worker.mismatchCount;
+                errorCount += worker.errorCount;
+                if (firstFailure == null) {
+                    firstFailure = worker.firstFailure;
+                }
+            }
+            Arrays.sort(latencies);
+        }
+
+        public double getThroughput() {
+            return latencies.length / (elapsedNanos / 1000000000.0);
+        }
+
+        /**
+         * @param percentile 0 ~ 100
+         * @return latency(microsecond) by nearest rank
+         */
+        public long getLatencyMicros(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * latencies.length);
+            return latencies[Math.max(0, Math.min(latencies.length, rank) - 1)] / 1000;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getRenderCount() {
+            return renderCount;
+        }
+
+        public int getReloadCount() {
+            return reloadCount;
+        }
+
+        public int getMismatchCount() {
+            return mismatchCount;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+
+        public String getFirstFailure() {
+            return firstFailure;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-26s threads=%3d ops/s=%10.1f p50=%6dus p90=%6dus p99=%6dus max=%7dus renders=%d reloads=%d mismatches=%d errors=%d%s",
+                    targetName, threads, getThroughput(), getLatencyMicros(50), getLatencyMicros(90),
+                    getLatencyMicros(99), getLatencyMicros(100), renderCount, reloadCount, mismatchCount, errorCount,
+                    firstFailure == null ? "" : " (first failure: " + firstFailure + ")");
+        }
+    }
+
+    /**
+     * Engine is shared by every thread, and template is reloaded with changed source(version is changed too).
+     */
+    public static class EngineTarget implements Target {
+
+        private final DustTemplateEngine engine;
+        private final Map<String, String> compiledSources = new HashMap<String, String>();
+        private final Map<String, String> jsons = new HashMap<String, String>();
+
+        public EngineTarget(DustTemplateEngine engine) {
+            this.engine = engine;
+            for (String templateKey : TEMPLATE_KEYS) {
+                String compiled = engine.compile(templateKey, readResource("/template/" + templateKey + ".html"));
+                compiledSources.put(templateKey, compiled);
+                jsons.put(templateKey, readResource("/json/" + templateKey + ".json"));
+                engine.load(templateKey, compiled);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return engine.getClass().getSimpleName();
+        }
+
+        @Override
+        public String render(String templateKey) {
+            StringWriter writer = new StringWriter();
+            StringWriter errorWriter = new StringWriter();
+            engine.render(writer, errorWriter, templateKey, jsons.get(templateKey));
+            if (errorWriter.getBuffer().length() > 0) {
+                throw new IllegalStateException("rendering error: " + errorWriter);
+            }
+            return writer.toString();
+        }
+
+        @Override
+        public void reload(String templateKey) {
+            // same template with different source, then it is loaded again
+            String compiled = compiledSources.get(templateKey);
+            if (!engine.load(templateKey, compiled + "\n")) {
+                engine.load(templateKey, compiled);
+            }
+        }
+    }
+
+    /**
+     * Full path of view(JSON, template loading and rendering). Reload is request with refresh parameter.
+     * Loader returns precompiled template, so dust compile is not measured.
+     */
+    public static class ViewTarget implements Target {
+
+        private final SimpleDustTemplateView view;
+        private final Map<String, String> compiledSources = new HashMap<String, String>();
+        private final Map<String, String> jsons = new HashMap<String, String>();
+
+        public ViewTarget(SimpleDustTemplateView view) throws Exception {
+            this.view = view;
+            Map<String, Object> attributes = new HashMap<String, Object>();
+            attributes.put(DustViewConstants.TEMPLATE_LOADER, new DustTemplateLoader() {
+                @Override
+                public String loadTemplate(String templatePath) {
+                    return compiledSources.get(templatePath);
+                }
+            });
+            view.setAttributesMap(attributes);
+            view.afterPropertiesSet();
+
+            DustTemplateEngine compiler = new DustTemplateEngine();
+            for (String templateKey : TEMPLATE_KEYS) {
+                String viewPath = getViewPath(templateKey);
+                compiledSources.put(viewPath, compiler.compile(templateKey, readResource(viewPath)));
+                jsons.put(templateKey, readResource("/json/" + templateKey + ".json"));
+            }
+            compiler.close();
+        }
+
+        @Override
+        public String getName() {
+            return "view";
+        }
+
+        @Override
+        public String render(String templateKey) {
+            return request(templateKey, new MockHttpServletRequest());
+        }
+
+        @Override
+        public void reload(String templateKey) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setParameter("_refresh", "Y");
+            request(templateKey, request);
+        }
+
+        private String request(String templateKey, MockHttpServletRequest request) {
+            ModelMap model = new ModelMap();
+            model.put(DustViewConstants.TEMPLATE_KEY, templateKey);
+            model.put(DustViewConstants.VIEW_FILE_PATH, getViewPath(templateKey));
+            model.put(DustViewConstants.CONTENT_TEXT_KEY, jsons.get(templateKey));
+            Map<String, Object> result = view.createMergedOutputModel(model, request, new MockHttpServletResponse());
+            return (String) result.get(view.getExportViewSourceKey());
+        }
+
+        private static String getViewPath(String templateKey) {
+            return "/template/" + templateKey + ".html";
+        }
+    }
+
+    static String readResource(String path) {
+        InputStream input = RenderStressHarness.class.getResourceAsStream(path);
+        if (input == null) {
+            throw new IllegalArgumentException("Resource not found: " + path);
+        }
+        try {
+            return Sources.read(input, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException("Fail to read resource: " + path, e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    public int getOperationsPerThread() {
+        return operationsPerThread;
+    }
+
+    public void setOperationsPerThread(int operationsPerThread) {
+        this.operationsPerThread = operationsPerThread;
+    }
+
+    public int getReloadRate() {
+        return reloadRate;
+    }
+
+    public void setReloadRate(int reloadRate) {
+        this.reloadRate = reloadRate;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,55 @@
+package framewise.dustview.support.springmvc;
+
+import framewise.dustview.core.DustTemplateEngine;
+import framewise.dustview.core.PooledDustTemplateEngine;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Multi-threaded rendering must produce same output as single thread.
+ * Thread count and operation count are set by system property 'stress.threads' and 'stress.operations'.
+ *
+ * @author chanwook
+ */
+public class RenderStressTest {
+
+    private RenderStressHarness harness = new RenderStressHarness(Integer.getInteger("stress.operations", 300));
+    private int[] threadCounts = parseThreadCounts(System.getProperty("stress.threads", "1,4"));
+
+    @Test
+    public void stressEngine() throws Exception {
+        verify(harness.run(new RenderStressHarness.EngineTarget(new DustTemplateEngine()), threadCounts));
+    }
+
+    @Test
+    public void stressPooledEngine() throws Exception {
+        verify(harness.run(new RenderStressHarness.EngineTarget(new PooledDustTemplateEngine(4)), threadCounts));
+    }
+
+    @Test
+    public void stressView() throws Exception {
+        verify(harness.run(new RenderStressHarness.ViewTarget(new SimpleDustTemplateView()), threadCounts));
+    }
+
+    private void verify(List<RenderStressHarness.Result> results) {
+        for (RenderStressHarness.Result result : results) {
+            System.out.println(result);
+        }
+        for (RenderStressHarness.Result result : results) {
+            assertEquals(result.toString(), 0, result.getMismatchCount());
+            assertEquals(result.toString(), 0, result.getErrorCount());
+        }
+    }
+
+    private static int[] parseThreadCounts(String value) {
+        String[] tokens = value.split(",");
+        int[] counts = new int[tokens.length];
+        for (int index = 0; index < tokens.length; index++) {
+            counts[index] = Integer.parseInt(tokens[index].trim());
+        }
+        return counts;
+    }
+}
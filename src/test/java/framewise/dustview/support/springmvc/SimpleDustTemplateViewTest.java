@@ -1,16 +1,30 @@
 package framewise.dustview.support.springmvc;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import framewise.dustview.DustViewException;
 import framewise.dustview.core.DustTemplateEngine;
 import framewise.dustview.support.DustTemplateLoader;
 import framewise.dustview.support.DustViewConstants;
+import framewise.dustview.support.DustViewMetrics;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mozilla.javascript.Context;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.ui.ModelMap;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static framewise.dustview.support.DustViewConstants.*;
 import static org.hamcrest.CoreMatchers.is;
@@ -361,6 +375,122 @@ public class SimpleDustTemplateViewTest {
         assertEquals("<p>Common-Test</p><h1>Common1</h1><h1>Common2</h1>", html);
     }
 
+    @Test
+    public void preloadPartialInsteadOfCommonLoad() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.COMMON_VIEW_PATH, "/template/common");
+        attrMap.put(DustViewConstants.PARTIAL_PRELOAD, "true");
+        v.setAttributesMap(attrMap);
+        v.setViewTemplateLoader(new ClasspathSupportFileSystemDustTemplateLoader());
+        v.setCompiled(false);
+
+        v.afterPropertiesSet();
+        assertTrue(v.isPartialPreload());
+        assertTrue(v.getDustEngine().getLoadedTemplateKeys().isEmpty());
+
+        String templateKey = "commontest";
+        v.loadTemplateSource(new MockHttpServletRequest(), templateKey, "/template/commontest.html");
+        assertTrue(v.getDustEngine().getMissingPartials(templateKey).isEmpty());
+
+        String html = v.renderingView(templateKey, "{}");
+        assertEquals("<p>Common-Test</p><h1>Common1</h1><h1>Common2</h1>", html);
+    }
+
+    @Test
+    public void notPreloadFailedPartialAgainInRetryInterval() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.PARTIAL_PRELOAD, "true");
+        v.setAttributesMap(attrMap);
+        DustTemplateLoader loader = mock(DustTemplateLoader.class);
+        when(loader.loadTemplate("/main")).thenReturn("{>header/}{>footer/}");
+        when(loader.loadTemplate("header")).thenReturn("<h1>header</h1>");
+        when(loader.loadTemplate("footer")).thenThrow(new DustViewException("not found"));
+        v.setViewTemplateLoader(loader);
+        v.setCompiled(false);
+        v.afterPropertiesSet();
+
+        v.loadTemplateSource(new MockHttpServletRequest(), "main", "/main");
+        v.loadTemplateSource(new MockHttpServletRequest(), "main", "/main");
+        verify(loader, times(1)).loadTemplate("footer");
+        verify(loader, times(1)).loadTemplate("header");
+
+        // retry after interval
+        v.setPartialRetryIntervalMillis(0);
+        doReturn("<p>footer</p>").when(loader).loadTemplate("footer");
+        v.loadTemplateSource(new MockHttpServletRequest(), "main", "/main");
+        verify(loader, times(2)).loadTemplate("footer");
+        assertEquals("<h1>header</h1><p>footer</p>", v.renderingView("main", "{}"));
+
+        // every partial is loaded, then partials are not walked again
+        v.setPartialRetryIntervalMillis(60 * 1000);
+        v.loadTemplateSource(new MockHttpServletRequest(), "main", "/main");
+        verify(loader, times(2)).loadTemplate("footer");
+    }
+
+    @Test
+    public void retryOnlyPartialsOfRefreshedTemplate() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.PARTIAL_PRELOAD, "true");
+        v.setAttributesMap(attrMap);
+        DustTemplateLoader loader = mock(DustTemplateLoader.class);
+        when(loader.loadTemplate("/main")).thenReturn("{>footer/}");
+        when(loader.loadTemplate("/other")).thenReturn("{>sidebar/}");
+        when(loader.loadTemplate("footer")).thenThrow(new DustViewException("not found"));
+        when(loader.loadTemplate("sidebar")).thenThrow(new DustViewException("not found"));
+        v.setViewTemplateLoader(loader);
+        v.setCompiled(false);
+        v.afterPropertiesSet();
+
+        v.loadTemplateSource(new MockHttpServletRequest(), "main", "/main");
+        v.loadTemplateSource(new MockHttpServletRequest(), "other", "/other");
+
+        // refresh of main does not retry partial of other template
+        MockHttpServletRequest refreshRequest = new MockHttpServletRequest();
+        refreshRequest.setParameter("_refresh", "Y");
+        v.loadTemplateSource(refreshRequest, "main", "/main");
+        v.loadTemplateSource(new MockHttpServletRequest(), "other", "/other");
+        verify(loader, times(2)).loadTemplate("footer");
+        verify(loader, times(1)).loadTemplate("sidebar");
+
+        // in background mode, partial is retried by reloading thread, not by request
+        final AtomicReference<String> loadingThread = new AtomicReference<String>();
+        doAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                loadingThread.set(Thread.currentThread().getName());
+                throw new DustViewException("not found");
+            }
+        }).when(loader).loadTemplate("sidebar");
+        v.setRefreshMode(SimpleDustTemplateView.RefreshMode.BACKGROUND);
+        v.loadTemplateSource(refreshRequest, "other", "/other");
+        assertTrue(v.getTemplateInvalidator().awaitPending(5000));
+        verify(loader, times(2)).loadTemplate("sidebar");
+        assertThat(loadingThread.get(), CoreMatchers.startsWith("dustview-invalidator-"));
+        v.loadTemplateSource(new MockHttpServletRequest(), "other", "/other");
+        verify(loader, times(2)).loadTemplate("sidebar");
+        v.destroy();
+    }
+
+    @Test
+    public void warmUpWithSampleData() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.WARM_UP_SAMPLE_PATH, "/json");
+        attrMap.put(DustViewConstants.WARM_UP_ITERATIONS, "2");
+        attrMap.put(DustViewConstants.VIEW_PATH_PREFIX, "/template/");
+        attrMap.put(DustViewConstants.VIEW_PATH_SUFFIX, ".html");
+        v.setAttributesMap(attrMap);
+        v.setViewTemplateLoader(new ClasspathSupportFileSystemDustTemplateLoader());
+        v.setCompiled(false);
+        assertFalse(v.isReady());
+
+        v.afterPropertiesSet();
+
+        assertTrue(v.isReady());
+        assertEquals(2, v.getWarmUpIterations());
+        assertTrue(v.getDustEngine().getLoadedTemplateKeys().contains("basic1"));
+        assertTrue(v.getDustEngine().getLoadedTemplateKeys().contains("section"));
+    }
+
     @Test
     public void excludeJspFileWhenLoadCommonDust() throws Exception {
         HashMap<String, Object> attrMap = new HashMap<String, Object>();
@@ -378,6 +508,250 @@ public class SimpleDustTemplateViewTest {
         assertEquals("<p>Common-Test</p><h1>Common1</h1><h1>Common2</h1>", html);
     }
 
+    @Test
+    public void loadPrecompiledTemplate() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.PRECOMPILED_MANIFEST, "/precompiled/dust-manifest.properties");
+        v.setAttributesMap(attrMap);
+        v.setViewTemplateLoader(new DustTemplateLoader() {
+            @Override
+            public String loadTemplate(String templatePath) {
+                throw new IllegalStateException("Precompiled template must not load at request time!");
+            }
+        });
+
+        v.afterPropertiesSet();
+
+        v.loadTemplateSource(new MockHttpServletRequest(), "precompiled", "/any/path");
+        String html = v.renderingView("precompiled", "{\"name\":\"chanwook\"}");
+        assertEquals("Hello chanwook!", html);
+    }
+
+    @Test
+    public void recordMetricsPerPhase() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.METRICS, "true");
+        attrMap.put(DustViewConstants.DUST_COMPILED, "false");
+        attrMap.put(DustViewConstants.TEMPLATE_LOADER, new DustTemplateLoader() {
+            @Override
+            public String loadTemplate(String templatePath) {
+                return "Hello {name}!";
+            }
+        });
+        v.setAttributesMap(attrMap);
+        v.afterPropertiesSet();
+
+        ModelMap model = new ModelMap();
+        model.put(TEMPLATE_KEY, "metrics");
+        model.put(VIEW_FILE_PATH, "/any/path");
+        model.put(CONTENT_TEXT_KEY, "{\"name\":\"chanwook\"}");
+        v.createMergedOutputModel(model, new MockHttpServletRequest(), new MockHttpServletResponse());
+        v.createMergedOutputModel(model, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        // JSON is missing
+        model.remove(CONTENT_TEXT_KEY);
+        try {
+            v.createMergedOutputModel(model, new MockHttpServletRequest(), new MockHttpServletResponse());
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        InMemoryDustViewMetrics.TemplateMetrics metrics = ((InMemoryDustViewMetrics) v.getMetrics()).getTemplateMetrics("metrics");
+        assertEquals(2, metrics.getPhase(DustViewMetrics.Phase.JSON).getCount());
+        assertEquals(1, metrics.getPhase(DustViewMetrics.Phase.JSON).getErrorCount());
+        assertEquals(19, metrics.getPhase(DustViewMetrics.Phase.JSON).getAverageSize());
+        assertEquals(2, metrics.getPhase(DustViewMetrics.Phase.FETCH).getCount());
+        assertEquals(2, metrics.getPhase(DustViewMetrics.Phase.COMPILE).getCount());
+        assertEquals(2, metrics.getPhase(DustViewMetrics.Phase.RENDER).getCount());
+        assertEquals(30, metrics.getPhase(DustViewMetrics.Phase.RENDER).getTotalSize());
+        assertEquals(2, metrics.getPhase(DustViewMetrics.Phase.BINDING).getCount());
+        assertEquals(1, metrics.getCacheHitCount());
+        assertEquals(1, metrics.getCacheMissCount());
+    }
+
+    @Test
+    public void registerMBeans() throws Exception {
+        final int[] loadCount = {0};
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.JMX_ENABLED, "true");
+        attrMap.put(DustViewConstants.METRICS, "true");
+        attrMap.put(DustViewConstants.DUST_COMPILED, "false");
+        attrMap.put(DustViewConstants.TEMPLATE_LOADER, new DustTemplateLoader() {
+            @Override
+            public String loadTemplate(String templatePath) {
+                loadCount[0]++;
+                return "Hello {name}!";
+            }
+        });
+        v.setAttributesMap(attrMap);
+        v.setBeanName("jmxView");
+        v.afterPropertiesSet();
+
+        ModelMap model = new ModelMap();
+        model.put(TEMPLATE_KEY, "jmx");
+        model.put(VIEW_FILE_PATH, "/jmx/path");
+        model.put(CONTENT_TEXT_KEY, "{\"name\":\"chanwook\"}");
+        v.createMergedOutputModel(model, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName engineName = new ObjectName("framewise.dustview:type=DustTemplateEngine,name=\"jmxView\"");
+        ObjectName viewName = new ObjectName("framewise.dustview:type=DustTemplateView,name=\"jmxView\"");
+        assertEquals(1, server.getAttribute(engineName, "LoadedTemplateCount"));
+        assertEquals("/jmx/path", server.invoke(viewName, "getViewPath", new Object[]{"jmx"}, new String[]{"java.lang.String"}));
+        assertEquals(1, server.getAttribute(viewName, "ViewSourceCacheCount"));
+        assertEquals(26L, server.getAttribute(viewName, "ViewSourceCacheBytes"));
+
+        // reload without refresh parameter
+        server.invoke(viewName, "reloadTemplate", new Object[]{"jmx"}, new String[]{"java.lang.String"});
+        assertEquals(2, loadCount[0]);
+
+        assertEquals(true, server.invoke(viewName, "evictTemplate", new Object[]{"jmx"}, new String[]{"java.lang.String"}));
+        assertEquals(0, server.getAttribute(viewName, "ViewSourceCacheCount"));
+
+        v.destroy();
+        assertFalse(server.isRegistered(engineName));
+        assertFalse(server.isRegistered(viewName));
+    }
+
+    @Test
+    public void refreshInBackground() throws Exception {
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch reloadLatch = new CountDownLatch(1);
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.REFRESH_MODE, "background");
+        attrMap.put(DustViewConstants.REFRESH_INTERVAL, "60");
+        attrMap.put(DustViewConstants.REFRESH_TOKEN, "secret");
+        attrMap.put(DustViewConstants.DUST_COMPILED, "false");
+        attrMap.put(DustViewConstants.TEMPLATE_LOADER, new DustTemplateLoader() {
+            @Override
+            public String loadTemplate(String templatePath) {
+                int count = loadCount.incrementAndGet();
+                if (count > 1) {
+                    // reloading is blocked until requests are done
+                    try {
+                        reloadLatch.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return "Hello {name}! v" + count;
+            }
+        });
+        v.setAttributesMap(attrMap);
+        v.afterPropertiesSet();
+        assertThat(v.getRefreshMode(), is(SimpleDustTemplateView.RefreshMode.BACKGROUND));
+
+        assertEquals("Hello chanwook! v1", requestRefresh(null));
+
+        // refresh without token is ignored
+        assertEquals("Hello chanwook! v1", requestRefresh(""));
+        assertEquals("Hello chanwook! v1", requestRefresh("wrong"));
+        assertEquals(0, v.getTemplateInvalidator().getScheduledCount());
+        assertEquals(2, v.getRejectedRefreshCount());
+
+        // repeated refresh is coalesced, and request is not blocked by reloading
+        for (int index = 0; index < 5; index++) {
+            assertEquals("Hello chanwook! v1", requestRefresh("secret"));
+        }
+        reloadLatch.countDown();
+        assertTrue(v.getTemplateInvalidator().awaitPending(5000));
+        assertEquals(1, v.getTemplateInvalidator().getScheduledCount());
+        assertEquals(4, v.getTemplateInvalidator().getSkippedCount());
+        assertEquals(2, loadCount.get());
+        assertEquals("Hello chanwook! v2", requestRefresh(null));
+
+        // in interval
+        assertFalse(v.getTemplateInvalidator().invalidate("refresh"));
+        v.destroy();
+    }
+
+    private String requestRefresh(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (token != null) {
+            request.setParameter("_refresh", "Y");
+            request.setParameter("_refreshToken", token);
+        }
+        ModelMap model = new ModelMap();
+        model.put(TEMPLATE_KEY, "refresh");
+        model.put(VIEW_FILE_PATH, "/refresh/path");
+        model.put(CONTENT_TEXT_KEY, "{\"name\":\"chanwook\"}");
+        return (String) v.createMergedOutputModel(model, request, new MockHttpServletResponse()).get(v.getExportViewSourceKey());
+    }
+
+    @Test
+    public void renderDirectModel() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.DIRECT_MODEL, "true");
+        attrMap.put(DustViewConstants.PRECOMPILED_MANIFEST, "/precompiled/dust-manifest.properties");
+        v.setAttributesMap(attrMap);
+        v.afterPropertiesSet();
+        assertThat(v.isDirectModel(), is(true));
+
+        // model is not serialized to JSON
+        ObjectMapper jsonMapper = mock(ObjectMapper.class);
+        v.setJsonMapper(jsonMapper);
+
+        HashMap<String, Object> content = new HashMap<String, Object>();
+        content.put("name", "chanwook");
+        ModelMap model = new ModelMap();
+        model.put(TEMPLATE_KEY, "precompiled");
+        model.put(VIEW_FILE_PATH, "/any/path");
+        model.put(CONTENT_KEY, content);
+
+        Map<String, Object> result = v.createMergedOutputModel(model, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertEquals("Hello chanwook!", result.get(v.getExportViewSourceKey()));
+        assertThat(result.get(v.getExportJsonKey()), nullValue());
+        verifyZeroInteractions(jsonMapper);
+    }
+
+    @Test
+    public void renderDirectOutput() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.DIRECT_OUTPUT, "true");
+        attrMap.put(DustViewConstants.PRECOMPILED_MANIFEST, "/precompiled/dust-manifest.properties");
+        v.setAttributesMap(attrMap);
+        v.setUrl("/WEB-INF/view.jsp");
+        v.afterPropertiesSet();
+        assertThat(v.isDirectOutput(), is(true));
+
+        ModelMap model = new ModelMap();
+        model.put(TEMPLATE_KEY, "precompiled");
+        model.put(VIEW_FILE_PATH, "/any/path");
+        model.put(CONTENT_TEXT_KEY, "{\"name\":\"chanwook\"}");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        v.render(model, new MockHttpServletRequest(), response);
+
+        // written to response without JSP forward
+        assertEquals("Hello chanwook!", response.getContentAsString());
+        assertThat(response.getForwardedUrl(), nullValue());
+    }
+
+    @Test
+    public void releasePersistentContextAfterRequest() throws Exception {
+        HashMap<String, Object> attrMap = new HashMap<String, Object>();
+        attrMap.put(DustViewConstants.DIRECT_OUTPUT, "true");
+        attrMap.put(DustViewConstants.DUST_PERSISTENT_CONTEXT, "true");
+        attrMap.put(DustViewConstants.PRECOMPILED_MANIFEST, "/precompiled/dust-manifest.properties");
+        v.setAttributesMap(attrMap);
+        v.setUrl("/WEB-INF/view.jsp");
+        v.afterPropertiesSet();
+        assertThat(Context.getCurrentContext(), nullValue());
+
+        ModelMap model = new ModelMap();
+        model.put(TEMPLATE_KEY, "precompiled");
+        model.put(VIEW_FILE_PATH, "/any/path");
+        model.put(CONTENT_TEXT_KEY, "{\"name\":\"chanwook\"}");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        v.render(model, new MockHttpServletRequest(), response);
+
+        assertEquals("Hello chanwook!", response.getContentAsString());
+        // request thread does not keep context
+        assertThat(Context.getCurrentContext(), nullValue());
+    }
+
     static class MockTemplateLoader implements DustTemplateLoader {
         @Override
         public String loadTemplate(String templatePath) {
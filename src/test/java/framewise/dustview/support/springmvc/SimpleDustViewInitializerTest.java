@@ -1,5 +1,7 @@
 package framewise.dustview.support.springmvc;
 
+import framewise.dustview.core.PooledDustTemplateEngine;
+import framewise.dustview.core.RenderedOutputCache;
 import framewise.dustview.support.DustViewConstants;
 import org.junit.Test;
 
@@ -27,4 +29,86 @@ public class SimpleDustViewInitializerTest {
 
         assert(v.isCompiled());
     }
+
+    @Test
+    public void changeEnginePoolSize() {
+        SimpleDustViewInitializer i = new SimpleDustViewInitializer();
+        SimpleDustTemplateView v = new SimpleDustTemplateView();
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put(DustViewConstants.DUST_ENGINE_POOL_SIZE, "3");
+        map.put(DustViewConstants.DUST_JS_EXTENSION_FILE_PATH, "/dust/dust-extension-test.js");
+
+        i.initializeViewProperty(map, v);
+
+        assertTrue(v.getDustEngine() instanceof PooledDustTemplateEngine);
+        assertEquals(3, ((PooledDustTemplateEngine) v.getDustEngine()).getPoolSize());
+        assertEquals("/dust/dust-extension-test.js", v.getDustEngine().getDustExtensionFilePath());
+    }
+
+    @Test
+    public void changeFlushPoints() {
+        SimpleDustViewInitializer i = new SimpleDustViewInitializer();
+        SimpleDustTemplateView v = new SimpleDustTemplateView();
+        assertEquals(0, v.getFlushPoints().length);
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put(DustViewConstants.DIRECT_OUTPUT, "true");
+        map.put(DustViewConstants.FLUSH_POINTS, "</head>,<!--flush-->");
+
+        i.initializeViewProperty(map, v);
+
+        assertTrue(v.isDirectOutput());
+        assertArrayEquals(new String[]{"</head>", "<!--flush-->"}, v.getFlushPoints());
+    }
+
+    @Test
+    public void changeRenderCache() {
+        SimpleDustViewInitializer i = new SimpleDustViewInitializer();
+        SimpleDustTemplateView v = new SimpleDustTemplateView();
+        assertNull(v.getDustEngine().getRenderedOutputCache());
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put(DustViewConstants.RENDER_CACHE, "true");
+        map.put(DustViewConstants.RENDER_CACHE_SIZE, "10");
+        map.put(DustViewConstants.RENDER_CACHE_TTL, "5");
+        map.put(DustViewConstants.RENDER_CACHE_MAX_BYTES, "1024");
+
+        i.initializeViewProperty(map, v);
+
+        RenderedOutputCache cache = v.getDustEngine().getRenderedOutputCache();
+        assertEquals(10, cache.getMaxEntries());
+        assertEquals(5000, cache.getTtlMillis());
+        assertEquals(1024, cache.getMaxBytes());
+    }
+
+    @Test
+    public void changeMetrics() {
+        SimpleDustViewInitializer i = new SimpleDustViewInitializer();
+        SimpleDustTemplateView v = new SimpleDustTemplateView();
+        assertTrue(v.getMetrics() instanceof NoOpDustViewMetrics);
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put(DustViewConstants.METRICS, "true");
+        i.initializeViewProperty(map, v);
+        assertTrue(v.getMetrics() instanceof InMemoryDustViewMetrics);
+
+        InMemoryDustViewMetrics metrics = new InMemoryDustViewMetrics();
+        map.put(DustViewConstants.METRICS, metrics);
+        i.initializeViewProperty(map, v);
+        assertSame(metrics, v.getMetrics());
+    }
+
+    @Test
+    public void changeViewCacheMaxBytes() {
+        SimpleDustViewInitializer i = new SimpleDustViewInitializer();
+        SimpleDustTemplateView v = new SimpleDustTemplateView();
+        assertTrue(v.getViewSourceCacheProvider() instanceof InMemoryViewSourceCacheProvider);
+
+        HashMap<String, Object> map = new HashMap<String, Object>();
+        map.put(DustViewConstants.VIEW_CACHE_MAX_BYTES, "1024");
+        i.initializeViewProperty(map, v);
+        assertTrue(v.getViewSourceCacheProvider() instanceof BoundedViewSourceCacheProvider);
+        assertEquals(1024, ((BoundedViewSourceCacheProvider) v.getViewSourceCacheProvider()).getMaxBytes());
+    }
 }
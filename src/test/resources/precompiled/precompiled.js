@@ -0,0 +1 @@
+(function(){dust.register("precompiled",body_0);function body_0(chk,ctx){return chk.write("Hello ").reference(ctx._get(false, ["name"]),ctx,"h").write("!");}return body_0;})();
\ No newline at end of file